@@ -0,0 +1,165 @@
+package com.musala.gorskikh.db.dao;
+
+import com.musala.gorskikh.db.entities.DroneEntity;
+import com.musala.gorskikh.db.entities.MedicationEntity;
+import com.musala.gorskikh.db.repositories.DronesRepository;
+import com.musala.gorskikh.db.repositories.MedicationsRepository;
+import com.musala.gorskikh.model.BatteryLevels;
+import com.musala.gorskikh.model.DroneDto;
+import com.musala.gorskikh.model.LoadingMedication;
+import com.musala.gorskikh.services.battery.BatteryReading;
+import com.musala.gorskikh.services.fleet.AvailabilityFilter;
+import com.musala.gorskikh.services.fleet.KeysetPage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static com.musala.gorskikh.db.dao.FleetState.SERIAL_NUMBER_PREFIX;
+
+/**
+ * Latency of {@link DronesDao} reads and loads against fleets of several sizes, see {@link FleetState}.
+ * <p>
+ * Run with the {@code jmh} profile: {@code mvn -P jmh test -DskipTests -Djmh.args=DronesDaoImplJmhBenchmark}.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DronesDaoImplJmhBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Benchmark
+    public void load(FleetState fleet, LoadState load) {
+        fleet.dronesDao.load(load.droneSerialNumber, load.manifest);
+    }
+
+    @Benchmark
+    public long getFreeSpace(FreeSpaceState state) {
+        return state.dronesDao.getFreeSpace(state.nextDrone());
+    }
+
+    @Benchmark
+    public List<DroneDto> getAvailableDrones(FleetState fleet) {
+        return fleet.dronesDao.getAvailableDrones();
+    }
+
+    @Benchmark
+    public KeysetPage<DroneDto> getAvailableDronesPage(FleetState fleet) {
+        return fleet.dronesDao.getAvailableDrones(AvailabilityFilter.ANY, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> getBatteryLevels(FleetState fleet) {
+        return fleet.dronesDao.getBatteryLevels();
+    }
+
+    @Benchmark
+    public KeysetPage<BatteryReading> getBatteryLevelsPage(FleetState fleet) {
+        return fleet.dronesDao.getBatteryLevels(null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public BatteryLevels getBatteryLevelsOf(FleetState fleet, BatteryLevelsState state) {
+        return fleet.dronesDao.getBatteryLevels(state.serialNumbers);
+    }
+
+    /**
+     * Manifest of {@link #manifestSize} medications of 1 gr, loaded into the next loadable drone
+     * of the fleet, which is emptied before every invocation
+     */
+    @State(Scope.Benchmark)
+    public static class LoadState {
+
+        private static final String CODE_PREFIX = "JMH_MED_";
+
+        @Param({"1", "10", "50", "100"})
+        public int manifestSize;
+
+        private List<String> loadableSerialNumbers;
+        private FleetState fleet;
+        private List<LoadingMedication> manifest;
+        private String droneSerialNumber;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(FleetState fleet) {
+            this.fleet = fleet;
+            this.loadableSerialNumbers = fleet.loadableSerialNumbers;
+
+            List<MedicationEntity> medications = IntStream.range(0, manifestSize)
+                    .mapToObj(i -> {
+                        MedicationEntity medication = new MedicationEntity();
+                        medication.setCode(CODE_PREFIX + i);
+                        medication.setName("jmh_medication_" + i);
+                        medication.setWeightGr(BigDecimal.ONE);
+                        return medication;
+                    })
+                    .toList();
+            fleet.getBean(MedicationsRepository.class).mergeAll(medications);
+            manifest = medications.stream()
+                    .map(medication -> new LoadingMedication(medication.getCode(), 1))
+                    .toList();
+        }
+
+        @Setup(Level.Invocation)
+        public void emptyNextDrone() {
+            droneSerialNumber = loadableSerialNumbers.get(next++ % loadableSerialNumbers.size());
+            fleet.jdbcTemplate.update("DELETE FROM drone_medication WHERE drone_serial_number = ?",
+                    droneSerialNumber);
+            fleet.jdbcTemplate.update("""
+                    UPDATE drones SET state = 'IDLE', payload_weight_gr = 0, items_count = 0, version = version + 1
+                    WHERE serial_number = ?""", droneSerialNumber);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class FreeSpaceState {
+
+        private static final int DRONES = 1000;
+
+        private DronesDaoImpl dronesDao;
+        private List<DroneEntity> drones;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(FleetState fleet) {
+            dronesDao = fleet.getBean(DronesDaoImpl.class);
+            drones = fleet.getBean(DronesRepository.class).findAll(PageRequest.ofSize(DRONES)).getContent();
+        }
+
+        private DroneEntity nextDrone() {
+            return drones.get(next++ % drones.size());
+        }
+    }
+
+    /**
+     * {@value #SERIAL_NUMBERS} random serial numbers of the fleet and a tenth as many unknown ones
+     */
+    @State(Scope.Benchmark)
+    public static class BatteryLevelsState {
+
+        private static final int SERIAL_NUMBERS = 100;
+
+        private List<String> serialNumbers;
+
+        @Setup(Level.Trial)
+        public void setUp(FleetState fleet) {
+            List<String> fleetSerialNumbers = new ArrayList<>(fleet.serialNumbers);
+            Collections.shuffle(fleetSerialNumbers, new Random(fleet.fleetSize));
+            serialNumbers = new ArrayList<>(fleetSerialNumbers.subList(0,
+                    Math.min(SERIAL_NUMBERS, fleetSerialNumbers.size())));
+            IntStream.range(0, SERIAL_NUMBERS / 10)
+                    .forEach(i -> serialNumbers.add(SERIAL_NUMBER_PREFIX + "unknown-" + i));
+        }
+    }
+}
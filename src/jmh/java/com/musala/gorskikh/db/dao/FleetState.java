@@ -0,0 +1,97 @@
+package com.musala.gorskikh.db.dao;
+
+import com.musala.gorskikh.DronesApplication;
+import com.musala.gorskikh.model.DroneModelEnum;
+import com.musala.gorskikh.services.fleet.FleetIndex;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Application context over an in-memory H2 database seeded with a fleet of {@link #fleetSize} drones
+ * on top of the test data of the Liquibase changelog.
+ * <p>
+ * Every fourth drone is an idle heavyweight with a full battery, so it can always be loaded. The rest have
+ * random models, states and battery levels, so about a half of the fleet is available for loading.
+ */
+@State(Scope.Benchmark)
+public class FleetState {
+
+    static final String SERIAL_NUMBER_PREFIX = "jmh-";
+
+    private static final int SEED = 42;
+    private static final String[] STATES = {"IDLE", "LOADED", "LOADING", "DELIVERING", "DELIVERED", "RETURNING"};
+
+    @Param({"1000", "10000", "100000"})
+    public int fleetSize;
+
+    ConfigurableApplicationContext context;
+    DronesDao dronesDao;
+    JdbcTemplate jdbcTemplate;
+    List<String> serialNumbers;
+    List<String> loadableSerialNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DronesApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .bannerMode(Banner.Mode.OFF)
+                // arguments, unlike default properties, override application.yml
+                .run("--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN");
+        dronesDao = context.getBean(DronesDao.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        serialNumbers = IntStream.range(0, fleetSize)
+                .mapToObj(i -> String.format("%s%06d", SERIAL_NUMBER_PREFIX, i))
+                .toList();
+        loadableSerialNumbers = IntStream.range(0, fleetSize)
+                .filter(FleetState::isLoadable)
+                .mapToObj(serialNumbers::get)
+                .toList();
+
+        Random random = new Random(SEED);
+        DroneModelEnum[] models = DroneModelEnum.values();
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO drones (serial_number, model, battery_level, state)
+                        VALUES (?, ?, ?, ?)""",
+                IntStream.range(0, fleetSize).boxed().toList(), 1000, (ps, i) -> {
+                    boolean loadable = isLoadable(i);
+                    ps.setString(1, serialNumbers.get(i));
+                    ps.setString(2, loadable ? DroneModelEnum.HEAVYWEIGHT.name()
+                            : models[random.nextInt(models.length)].name());
+                    ps.setInt(3, loadable ? 100 : random.nextInt(101));
+                    ps.setString(4, loadable ? "IDLE" : STATES[random.nextInt(STATES.length)]);
+                });
+
+        // drones were inserted around the DAO, so the index built on startup doesn't know them yet
+        context.getBean(FleetIndex.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private static boolean isLoadable(int i) {
+        return i % 4 == 0;
+    }
+}
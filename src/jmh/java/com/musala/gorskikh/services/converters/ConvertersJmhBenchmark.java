@@ -0,0 +1,135 @@
+package com.musala.gorskikh.services.converters;
+
+import com.musala.gorskikh.db.entities.DroneEntity;
+import com.musala.gorskikh.db.entities.DroneModelEntity;
+import com.musala.gorskikh.db.entities.MedicationEntity;
+import com.musala.gorskikh.db.entities.MedicationImageEntity;
+import com.musala.gorskikh.model.DroneDto;
+import com.musala.gorskikh.model.DroneModelEnum;
+import com.musala.gorskikh.model.DroneState;
+import com.musala.gorskikh.model.ImageDto;
+import com.musala.gorskikh.model.MedicationDto;
+import com.musala.gorskikh.services.fleet.FleetEntry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Throughput of the MapStruct mappings and of the Base64 coding of medication images of several sizes.
+ * <p>
+ * Run with the {@code jmh} profile: {@code mvn -P jmh test -DskipTests -Djmh.args=ConvertersJmhBenchmark}.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ConvertersJmhBenchmark {
+
+    private static final int DRONES = 1000;
+
+    private AnnotationConfigApplicationContext context;
+    private DroneConverter droneConverter;
+    private MedicationConverter medicationConverter;
+
+    private DroneEntity drone;
+    private List<FleetEntry> entries;
+    private MedicationEntity medication;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // the generated mappers inject the mappers they use into fields
+        context = new AnnotationConfigApplicationContext(DroneModelConverterImpl.class, DroneConverterImpl.class,
+                MedicationConverterImpl.class);
+        droneConverter = context.getBean(DroneConverter.class);
+        medicationConverter = context.getBean(MedicationConverter.class);
+
+        DroneModelEntity model = new DroneModelEntity();
+        model.setModel(DroneModelEnum.HEAVYWEIGHT);
+        model.setWeightLimit(BigDecimal.valueOf(500));
+
+        drone = new DroneEntity();
+        drone.setDroneSerialNumber("jmh-drone");
+        drone.setModel(model);
+        drone.setBatteryLevel(BigDecimal.valueOf(100));
+        drone.setState(DroneState.IDLE);
+        drone.setPayloadWeight(BigDecimal.valueOf(120));
+        drone.setItemsCount(3);
+        drone.setVersion(1L);
+
+        entries = IntStream.range(0, DRONES)
+                .mapToObj(i -> FleetEntry.of(drone))
+                .toList();
+
+        medication = new MedicationEntity();
+        medication.setCode("JMH_MED");
+        medication.setName("jmh_medication");
+        medication.setWeightGr(BigDecimal.TEN);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public DroneDto droneEntityToDto() {
+        return droneConverter.entityToDto(drone);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<DroneDto> fleetEntriesToDtos() {
+        return droneConverter.entriesToDtos(entries);
+    }
+
+    @Benchmark
+    public MedicationDto medicationEntityToDtoWithImageUrl() {
+        return medicationConverter.entityToDtoWithImageUrl(medication);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public MedicationDto medicationEntityToDto(ImageState image) {
+        return medicationConverter.entityToDto(medication, image.entity);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ImageDto encodeImage(ImageState image) {
+        return medicationConverter.toDto(image.entity.getImage());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] decodeImage(ImageState image) {
+        return medicationConverter.toBytes(image.dto);
+    }
+
+    /**
+     * Random image of {@link #imageSize} bytes and its Base64 encoded DTO
+     */
+    @State(Scope.Benchmark)
+    public static class ImageState {
+
+        @Param({"16384", "262144", "1048576"})
+        public int imageSize;
+
+        private MedicationImageEntity entity;
+        private ImageDto dto;
+
+        @Setup(Level.Trial)
+        public void setUp(ConvertersJmhBenchmark benchmark) {
+            byte[] image = new byte[imageSize];
+            new Random(imageSize).nextBytes(image);
+            entity = new MedicationImageEntity("JMH_MED", image);
+            dto = benchmark.medicationConverter.toDto(image);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.musala.gorskikh.services.validators;
+
+import com.musala.gorskikh.db.entities.DroneEntity;
+import com.musala.gorskikh.db.entities.DroneModelEntity;
+import com.musala.gorskikh.model.DroneModelEnum;
+import com.musala.gorskikh.model.DroneState;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link DroneLoadingValidator#validate(DroneEntity)} for a drone passing the checks and for drones
+ * rejected by each of them, as a rejection formats its error message.
+ * <p>
+ * Run with the {@code jmh} profile:
+ * {@code mvn -P jmh test -DskipTests -Djmh.args=DroneLoadingValidatorJmhBenchmark}.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class DroneLoadingValidatorJmhBenchmark {
+
+    private final DroneLoadingValidator validator = new DroneLoadingValidator();
+
+    private DroneEntity available;
+    private DroneEntity lowBattery;
+    private DroneEntity delivering;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        available = drone("jmh-available", 100, DroneState.IDLE);
+        lowBattery = drone("jmh-low-battery", 10, DroneState.IDLE);
+        delivering = drone("jmh-delivering", 100, DroneState.DELIVERING);
+    }
+
+    @Benchmark
+    public ValidationResult validate() {
+        return validator.validate(available);
+    }
+
+    @Benchmark
+    public ValidationResult validate_whenLowBattery() {
+        return validator.validate(lowBattery);
+    }
+
+    @Benchmark
+    public ValidationResult validate_whenIllegalState() {
+        return validator.validate(delivering);
+    }
+
+    private static DroneEntity drone(String serialNumber, int batteryLevel, DroneState state) {
+        DroneModelEntity model = new DroneModelEntity();
+        model.setModel(DroneModelEnum.LIGHTWEIGHT);
+        model.setWeightLimit(BigDecimal.valueOf(100));
+
+        DroneEntity drone = new DroneEntity();
+        drone.setDroneSerialNumber(serialNumber);
+        drone.setModel(model);
+        drone.setBatteryLevel(BigDecimal.valueOf(batteryLevel));
+        drone.setState(state);
+        drone.setPayloadWeight(BigDecimal.ZERO);
+        drone.setItemsCount(0);
+        return drone;
+    }
+}
@@ -0,0 +1,79 @@
+package com.musala.gorskikh.services.weights;
+
+import com.musala.gorskikh.services.catalog.CatalogMedication;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.math.BigDecimal.ZERO;
+
+/**
+ * Capacity check of a manifest against the free space of a drone, on {@link BigDecimal} grams as it was done
+ * before {@link Milligrams}, and on {@code long} milligrams by {@link CapacityCalculator}. Weights have
+ * fractional grams, as the {@link BigDecimal} arithmetic then carries a scale.
+ * <p>
+ * Run with the {@code jmh} profile, {@code -prof gc} reports allocations per operation:
+ * {@code mvn -P jmh test -DskipTests "-Djmh.args=CapacityJmhBenchmark -prof gc"}.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class CapacityJmhBenchmark {
+
+    private static final BigDecimal WEIGHT_LIMIT_GR = BigDecimal.valueOf(500);
+    private static final BigDecimal PAYLOAD_GR = new BigDecimal("12.5");
+
+    @Param({"100"})
+    public int manifestSize;
+
+    private Map<GramsMedication, Integer> gramsManifest;
+    private Map<CatalogMedication, Integer> milligramsManifest;
+    private long weightLimitMg;
+    private long payloadMg;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        gramsManifest = new HashMap<>();
+        milligramsManifest = new HashMap<>();
+        for (int i = 0; i < manifestSize; i++) {
+            String code = "JMH_MED_" + i;
+            BigDecimal weightGr = BigDecimal.valueOf(100 + i * 7L, 2);
+            int count = 1 + i % 3;
+            gramsManifest.put(new GramsMedication(code, "Medication_" + i, weightGr), count);
+            milligramsManifest.put(new CatalogMedication(code, "Medication_" + i, weightGr), count);
+        }
+        weightLimitMg = Milligrams.ofLimit(WEIGHT_LIMIT_GR);
+        payloadMg = Milligrams.ofWeight(PAYLOAD_GR);
+    }
+
+    @Benchmark
+    public boolean fits_bigDecimal() {
+        BigDecimal freeSpace = WEIGHT_LIMIT_GR.subtract(PAYLOAD_GR);
+        BigDecimal weight = gramsManifest.entrySet().stream()
+                .map(e -> e.getKey().weightGr()
+                        .multiply(BigDecimal.valueOf(e.getValue())))
+                .reduce(ZERO, BigDecimal::add);
+        return freeSpace.compareTo(weight) >= 0;
+    }
+
+    @Benchmark
+    public boolean fits_milligrams() {
+        long freeSpaceMg = CapacityCalculator.freeSpace(weightLimitMg, payloadMg);
+        long weightMg = 0;
+        for (Map.Entry<CatalogMedication, Integer> e : milligramsManifest.entrySet())
+            weightMg = CapacityCalculator.add(weightMg, CapacityCalculator.weight(e.getKey().weightMg(), e.getValue()));
+        return CapacityCalculator.fits(weightMg, freeSpaceMg);
+    }
+
+    /**
+     * Shape of {@link CatalogMedication} before {@link Milligrams}
+     */
+    private record GramsMedication(String code, String name, BigDecimal weightGr) {
+    }
+}
@@ -2,25 +2,126 @@ package com.musala.gorskikh.db.dao;
 
 import com.musala.gorskikh.db.entities.DroneEntity;
 import com.musala.gorskikh.model.*;
+import com.musala.gorskikh.services.battery.BatteryReading;
+import com.musala.gorskikh.services.fleet.AvailabilityFilter;
+import com.musala.gorskikh.services.fleet.KeysetPage;
+import com.musala.gorskikh.services.partitions.FleetPartitionSet;
+import com.musala.gorskikh.services.validators.ValidationResult;
 import lombok.NonNull;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface DronesDao {
 
     DroneDto register(@NonNull CreateDroneRequest createRequest);
 
+    /**
+     * Registers several drones in a single transaction, drones which can't be registered are skipped.
+     *
+     * @return result for each request in the same order
+     */
+    List<ValidationResult> registerAll(@NonNull List<CreateDroneRequest> createRequests);
+
     void load(@NonNull String droneSerialNumber, @NonNull List<LoadingMedication> medicationCodes);
 
-    List<MedicationDto> getMedications(@NonNull String droneSerialNumber);
+    /**
+     * Loads the drone with several manifests at once: they are checked in the given order against
+     * a single catalog lookup and the free space of the drone, and accepted ones are written together.
+     *
+     * @return result for each manifest in the same order
+     */
+    List<ValidationResult> loadBatch(@NonNull String droneSerialNumber,
+                                     @NonNull List<List<LoadingMedication>> manifests);
+
+    /**
+     * Single attempt of {@link #loadBatch(String, List)} in its own transaction.
+     *
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the drone was changed concurrently
+     */
+    List<ValidationResult> loadBatchAttempt(@NonNull String droneSerialNumber,
+                                            @NonNull List<List<LoadingMedication>> manifests);
+
+    /**
+     * Loads several drones at once: all manifests are checked against a single catalog lookup, manifests
+     * of the same drone in the given order, and accepted ones are written in batches in a single transaction.
+     *
+     * @param mode {@link BulkLoadMode#ALL_OR_NOTHING} writes nothing if any manifest is rejected
+     * @return result for each load in the same order
+     */
+    List<ValidationResult> loadAll(@NonNull List<LoadDroneRequest> loads, @NonNull BulkLoadMode mode);
+
+    /**
+     * Single attempt of {@link #loadAll(List, BulkLoadMode)} in its own transaction.
+     *
+     * @throws org.springframework.dao.OptimisticLockingFailureException if a drone was changed concurrently
+     */
+    List<ValidationResult> loadAllAttempt(@NonNull List<LoadDroneRequest> loads, @NonNull BulkLoadMode mode);
+
+    default List<MedicationDto> getMedications(@NonNull String droneSerialNumber) {
+        return getMedications(droneSerialNumber, ImageMode.INLINE);
+    }
+
+    /**
+     * @param imageMode {@link ImageMode#URL} returns links to the image endpoint and doesn't read the images
+     */
+    List<MedicationDto> getMedications(@NonNull String droneSerialNumber, @NonNull ImageMode imageMode);
 
     void setState(DroneEntity drone, DroneState state);
 
     List<DroneDto> getAvailableDrones();
 
+    List<DroneDto> getAvailableDrones(@NonNull AvailabilityFilter filter);
+
+    /**
+     * Gets a page of available drones ordered by serial number
+     *
+     * @param cursor cursor of the previous page, null for the first page
+     */
+    KeysetPage<DroneDto> getAvailableDrones(@NonNull AvailabilityFilter filter, String cursor, int limit);
+
+    /**
+     * Passes available drones to the consumer one by one in the order of serial numbers without collecting them
+     *
+     * @param afterSerialNumber only drones with greater serial numbers are passed, an empty string for all
+     */
+    void forEachAvailableDrone(@NonNull AvailabilityFilter filter, @NonNull String afterSerialNumber,
+                               @NonNull Consumer<DroneDto> consumer);
+
     Map<String, BigDecimal> getBatteryLevels();
 
+    /**
+     * Gets a page of battery levels of all drones ordered by serial number
+     *
+     * @param cursor cursor of the previous page, null for the first page
+     */
+    KeysetPage<BatteryReading> getBatteryLevels(String cursor, int limit);
+
+    /**
+     * Passes battery levels of all drones to the consumer one by one in the order of serial numbers,
+     * they are read by a forward-only cursor without collecting them
+     */
+    void forEachBatteryLevel(@NonNull Consumer<BatteryReading> consumer);
+
+    /**
+     * Passes battery levels of all drones to the consumer in chunks ordered by serial number.
+     * Every chunk is read by a separate keyset query, so the fleet is never held in memory as a whole.
+     */
+    void scanBatteryLevels(int chunkSize, @NonNull Consumer<List<BatteryReading>> chunkConsumer);
+
+    /**
+     * Same as {@link #scanBatteryLevels(int, Consumer)}, restricted to drones of the partitions
+     */
+    void scanBatteryLevels(int chunkSize, @NonNull FleetPartitionSet partitions,
+                           @NonNull Consumer<List<BatteryReading>> chunkConsumer);
+
     BatteryLevel getBatteryLevel(@NonNull String droneSerialNumber);
+
+    /**
+     * Gets battery levels of the drones with a single query, unknown serial numbers are reported separately
+     */
+    BatteryLevels getBatteryLevels(@NonNull Collection<String> droneSerialNumbers);
 }
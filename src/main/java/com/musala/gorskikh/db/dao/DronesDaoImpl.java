@@ -1,142 +1,435 @@
 package com.musala.gorskikh.db.dao;
 
 import com.musala.gorskikh.db.entities.DroneEntity;
-import com.musala.gorskikh.db.entities.DroneMedicationEntity;
-import com.musala.gorskikh.db.entities.DroneMedicationEntity.DroneModelPk;
 import com.musala.gorskikh.db.entities.DroneModelEntity;
 import com.musala.gorskikh.db.entities.MedicationEntity;
+import com.musala.gorskikh.db.entities.MedicationImageEntity;
 import com.musala.gorskikh.db.repositories.DroneMedicationRepository;
-import com.musala.gorskikh.db.repositories.DroneModelRepository;
 import com.musala.gorskikh.db.repositories.DronesRepository;
-import com.musala.gorskikh.db.repositories.MedicationsRepository;
+import com.musala.gorskikh.db.repositories.MedicationImagesRepository;
 import com.musala.gorskikh.model.*;
+import com.musala.gorskikh.services.DroneStateMachine;
+import com.musala.gorskikh.services.battery.BatteryReading;
+import com.musala.gorskikh.services.catalog.CatalogCache;
+import com.musala.gorskikh.services.catalog.CatalogMedication;
+import com.musala.gorskikh.services.catalog.MedicationJsonCache;
 import com.musala.gorskikh.services.converters.DroneConverter;
 import com.musala.gorskikh.services.converters.MedicationConverter;
+import com.musala.gorskikh.services.fleet.AvailabilityFilter;
+import com.musala.gorskikh.services.fleet.FleetEntry;
+import com.musala.gorskikh.services.fleet.FleetIndex;
+import com.musala.gorskikh.services.fleet.KeysetPage;
+import com.musala.gorskikh.services.images.MedicationImageMetadata;
+import com.musala.gorskikh.services.partitions.FleetPartitionSet;
 import com.musala.gorskikh.services.validators.ValidationResult;
 import com.musala.gorskikh.services.validators.Validator;
+import com.musala.gorskikh.services.weights.CapacityCalculator;
+import com.musala.gorskikh.services.weights.Milligrams;
+import com.musala.gorskikh.util.KeysetCursor;
+import com.musala.gorskikh.util.StripedLock;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
 import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.HttpServerErrorException;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.musala.gorskikh.model.DroneState.*;
-import static com.musala.gorskikh.services.validators.DroneLoadingValidator.AVAILABLE_DRONE_STATES;
-import static com.musala.gorskikh.services.validators.DroneLoadingValidator.MIN_BATTERY_LEVEL;
 import static com.musala.gorskikh.util.ErrorsUtil.*;
 import static java.math.BigDecimal.ZERO;
 import static java.util.Optional.ofNullable;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.*;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
-import static org.springframework.transaction.annotation.Propagation.REQUIRES_NEW;
+import static org.springframework.http.HttpStatus.CONFLICT;
 
+/**
+ * Every public method is observed as {@value #OBSERVATION}, and the phases of a load
+ * as {@value #LOAD_PHASE_OBSERVATION} tagged with the phase.
+ */
 @Service
+@Observed(name = DronesDaoImpl.OBSERVATION)
 public class DronesDaoImpl implements DronesDao {
 
+    static final String OBSERVATION = "drones.dao";
+    static final String LOAD_PHASE_OBSERVATION = "drones.load.phase";
+
+    static final int BATTERY_SCAN_CHUNK_SIZE = 1000;
+    private static final int MAX_SERIAL_NUMBER_LENGTH = 100;
+
     private final DronesRepository dronesRepository;
-    private final MedicationsRepository medicationsRepository;
-    private final DroneModelRepository droneModelRepository;
     private final DroneMedicationRepository droneMedicationRepository;
+    private final MedicationImagesRepository medicationImagesRepository;
+    private final CatalogCache catalogCache;
+    private final MedicationJsonCache medicationJsonCache;
 
     private final DroneConverter droneConverter;
     private final MedicationConverter medicationConverter;
 
     private final Validator<DroneEntity> validator;
+    private final DroneStateMachine droneStateMachine;
+    private final FleetIndex fleetIndex;
+    private final ObservationRegistry observationRegistry;
     private final DronesDao self;
 
-    public DronesDaoImpl(DronesRepository dronesRepository, MedicationsRepository medicationsRepository,
-                         DroneModelRepository droneModelRepository, DroneMedicationRepository droneMedicationRepository, DroneConverter droneConverter, MedicationConverter medicationConverter,
-                         Validator<DroneEntity> validator, @Lazy DronesDao self) {
+    private final StripedLock droneLocks;
+    private final int maxLoadAttempts;
+    private final int maxBatteryLevels;
+
+    public DronesDaoImpl(DronesRepository dronesRepository, DroneMedicationRepository droneMedicationRepository,
+                         MedicationImagesRepository medicationImagesRepository, CatalogCache catalogCache,
+                         MedicationJsonCache medicationJsonCache, DroneConverter droneConverter,
+                         MedicationConverter medicationConverter, Validator<DroneEntity> validator,
+                         DroneStateMachine droneStateMachine, FleetIndex fleetIndex,
+                         ObservationRegistry observationRegistry, @Lazy DronesDao self,
+                         @Value("${drones.load.lock-stripes:64}") int lockStripes,
+                         @Value("${drones.load.max-attempts:3}") int maxLoadAttempts,
+                         @Value("${drones.battery.max-serial-numbers:1000}") int maxBatteryLevels) {
         this.dronesRepository = dronesRepository;
-        this.medicationsRepository = medicationsRepository;
-        this.droneModelRepository = droneModelRepository;
         this.droneMedicationRepository = droneMedicationRepository;
+        this.medicationImagesRepository = medicationImagesRepository;
+        this.catalogCache = catalogCache;
+        this.medicationJsonCache = medicationJsonCache;
         this.droneConverter = droneConverter;
         this.medicationConverter = medicationConverter;
         this.validator = validator;
+        this.droneStateMachine = droneStateMachine;
+        this.fleetIndex = fleetIndex;
+        this.observationRegistry = observationRegistry;
         this.self = self;
+        this.droneLocks = new StripedLock(lockStripes);
+        this.maxLoadAttempts = maxLoadAttempts;
+        this.maxBatteryLevels = maxBatteryLevels;
     }
 
     @Transactional
     @Override
     public DroneDto register(@NonNull CreateDroneRequest createRequest) {
-        DroneModelEnum model = ofNullable(createRequest.getModel())
-                .orElseThrow(() -> new HttpServerErrorException(BAD_REQUEST, modelIsNullError()));
-        String serialNumber = ofNullable(createRequest.getDroneSerialNumber())
-                .orElseThrow(() -> new HttpServerErrorException(BAD_REQUEST, serialNumberIsNullError()));
-
-        if (serialNumber.isBlank())
-            throw new HttpServerErrorException(BAD_REQUEST, serialNumberIsBlankError());
+        ValidationResult result = validateRegistration(createRequest);
+        if (!result.isValid())
+            throw new HttpServerErrorException(BAD_REQUEST, result.getErrorMsg());
 
-        DroneModelEntity droneModel = droneModelRepository.findById(model)
-                .orElseThrow(() -> new HttpServerErrorException(BAD_REQUEST, "Unknown model of drone: " + model));
+        String serialNumber = createRequest.getDroneSerialNumber();
+        DroneModelEntity droneModel = catalogCache.getDroneModel(createRequest.getModel()).orElseThrow();
 
         Optional<DroneEntity> droneById = dronesRepository.findById(serialNumber);
         if (droneById.isPresent())
             throw new HttpServerErrorException(BAD_REQUEST, droneAlreadyExistError(serialNumber));
 
-        DroneEntity droneEntity = createDrone(createRequest, droneModel);
-        return droneConverter.entityToDto(dronesRepository.save(droneEntity));
+        DroneEntity droneEntity = dronesRepository.save(createDrone(createRequest, droneModel));
+        fleetIndex.updateAfterCommit(droneEntity);
+        return droneConverter.entityToDto(droneEntity);
     }
 
+    /**
+     * Rows are checked as by {@link #register(CreateDroneRequest)}, existing drones are looked up
+     * with a single query and new ones are inserted in JDBC batches.
+     */
     @Transactional
+    @Override
+    public List<ValidationResult> registerAll(@NonNull List<CreateDroneRequest> createRequests) {
+        List<ValidationResult> results = new ArrayList<>(createRequests.size());
+        Set<String> serialNumbers = new HashSet<>();
+        for (CreateDroneRequest createRequest : createRequests) {
+            ValidationResult result = validateRegistration(createRequest);
+            if (result.isValid() && !serialNumbers.add(createRequest.getDroneSerialNumber()))
+                result = ValidationResult.error(droneAlreadyExistError(createRequest.getDroneSerialNumber()));
+            results.add(result);
+        }
+        if (serialNumbers.isEmpty())
+            return results;
+
+        Set<String> existing = dronesRepository.findExistingSerialNumbers(serialNumbers);
+        List<DroneEntity> drones = new ArrayList<>(serialNumbers.size());
+        for (int i = 0; i < createRequests.size(); i++) {
+            CreateDroneRequest createRequest = createRequests.get(i);
+            if (!results.get(i).isValid())
+                continue;
+
+            if (existing.contains(createRequest.getDroneSerialNumber())) {
+                results.set(i, ValidationResult.error(droneAlreadyExistError(createRequest.getDroneSerialNumber())));
+                continue;
+            }
+            DroneModelEntity droneModel = catalogCache.getDroneModel(createRequest.getModel()).orElseThrow();
+            drones.add(createDrone(createRequest, droneModel));
+        }
+
+        dronesRepository.insertAll(drones);
+        drones.forEach(fleetIndex::updateAfterCommit);
+        return results;
+    }
+
     @Override
     public void load(@NonNull String droneSerialNumber, @NonNull List<LoadingMedication> medications) {
         if (medications.isEmpty())
             throw new HttpServerErrorException(BAD_REQUEST, emptyMedicationsListError());
 
-        DroneEntity drone = dronesRepository.findByIdFetchMedications(droneSerialNumber)
-                .orElseThrow(() -> new HttpServerErrorException(BAD_REQUEST, droneNotExistError(droneSerialNumber)));
+        ValidationResult result = loadBatch(droneSerialNumber, List.of(medications)).get(0);
+        if (!result.isValid())
+            throw new HttpServerErrorException(BAD_REQUEST, result.getErrorMsg());
+    }
+
+    /**
+     * Loads of the same drone are serialized by an in-process lock, loads of different drones
+     * run in parallel. A load which lost an optimistic version check to another instance
+     * is retried up to the configured count of attempts.
+     */
+    @Override
+    public List<ValidationResult> loadBatch(@NonNull String droneSerialNumber,
+                                            @NonNull List<List<LoadingMedication>> manifests) {
+        return droneLocks.callUnderLock(droneSerialNumber, () -> {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return self.loadBatchAttempt(droneSerialNumber, manifests);
+                } catch (ConcurrencyFailureException ex) {
+                    if (attempt >= maxLoadAttempts)
+                        throw new HttpServerErrorException(CONFLICT,
+                                concurrentLoadingError(droneSerialNumber, attempt));
+                }
+            }
+        });
+    }
 
-        ValidationResult validationResult = validator.validate(drone);
+    @Transactional
+    @Override
+    public List<ValidationResult> loadBatchAttempt(@NonNull String droneSerialNumber,
+                                                   @NonNull List<List<LoadingMedication>> manifests) {
+        Optional<DroneEntity> optDrone = phase("drone-lookup",
+                () -> dronesRepository.findByIdReadOnly(droneSerialNumber));
+        if (optDrone.isEmpty())
+            return rejectAll(manifests, droneNotExistError(droneSerialNumber));
+
+        DroneEntity drone = optDrone.get();
+        ValidationResult validationResult = phase("validation", () -> validator.validate(drone));
         if (!validationResult.isValid())
-            throw new HttpServerErrorException(BAD_REQUEST, validationResult.getErrorMsg());
+            return rejectAll(manifests, validationResult.getErrorMsg());
+
+        Map<String, CatalogMedication> catalog = phase("catalog", () -> getCatalog(manifests));
+        List<ValidationResult> results = new ArrayList<>(manifests.size());
+        DroneLoad load = phase("free-space", () -> {
+            DroneLoad droneLoad = new DroneLoad(drone);
+            manifests.forEach(manifest -> results.add(droneLoad.add(manifest, catalog)));
+            return droneLoad;
+        });
+
+        if (!load.isEmpty()) {
+            loadMedications(drone, load);
+            fleetIndex.updateAfterCommit(drone);
+        }
+
+        return results;
+    }
 
-        Map<MedicationEntity, Integer> medicationCount = getMedicationEntities(medications);
+    /**
+     * Unlike {@link #loadBatch(String, List)}, drones aren't locked in-process: a bulk load relies
+     * on the optimistic version check only and is retried as a whole.
+     */
+    @Override
+    public List<ValidationResult> loadAll(@NonNull List<LoadDroneRequest> loads, @NonNull BulkLoadMode mode) {
+        if (loads.isEmpty())
+            throw new HttpServerErrorException(BAD_REQUEST, emptyLoadsListError());
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return self.loadAllAttempt(loads, mode);
+            } catch (ConcurrencyFailureException ex) {
+                if (attempt >= maxLoadAttempts)
+                    throw new HttpServerErrorException(CONFLICT, concurrentBulkLoadingError(attempt));
+            }
+        }
+    }
+
+    @Transactional
+    @Override
+    public List<ValidationResult> loadAllAttempt(@NonNull List<LoadDroneRequest> loads, @NonNull BulkLoadMode mode) {
+        Set<String> serialNumbers = loads.stream().map(LoadDroneRequest::getDroneSerialNumber).collect(toSet());
+        Map<String, DroneEntity> drones = dronesRepository.findAllReadOnly(serialNumbers).stream()
+                .collect(toMap(DroneEntity::getDroneSerialNumber, identity()));
+        Map<String, CatalogMedication> catalog = getCatalog(loads.stream()
+                .map(LoadDroneRequest::getMedications)
+                .toList());
+
+        Map<String, ValidationResult> droneResults = new HashMap<>();
+        Map<String, DroneLoad> droneLoads = new LinkedHashMap<>();
+        List<ValidationResult> results = new ArrayList<>(loads.size());
+
+        for (LoadDroneRequest load : loads) {
+            String serialNumber = load.getDroneSerialNumber();
+            ValidationResult droneResult = droneResults.computeIfAbsent(serialNumber,
+                    s -> drones.containsKey(s) ? validator.validate(drones.get(s))
+                            : ValidationResult.error(droneNotExistError(s)));
+
+            results.add(droneResult.isValid()
+                    ? droneLoads.computeIfAbsent(serialNumber, s -> new DroneLoad(drones.get(s)))
+                    .add(load.getMedications(), catalog)
+                    : droneResult);
+        }
 
-        BigDecimal freeSpace = getFreeSpace(drone);
-        BigDecimal medicationsWeight = getWeight(medicationCount);
+        if (mode == BulkLoadMode.ALL_OR_NOTHING && results.stream().anyMatch(result -> !result.isValid()))
+            return results.stream()
+                    .map(result -> result.isValid() ? ValidationResult.error(bulkLoadRolledBackError()) : result)
+                    .toList();
 
-        if (freeSpace.compareTo(medicationsWeight) < 0)
-            throw new HttpServerErrorException(BAD_REQUEST,
-                    overweightLoadingError(droneSerialNumber, freeSpace, medicationsWeight));
+        Map<String, Map<String, Integer>> manifests = new LinkedHashMap<>();
+        List<DroneEntity> loadedDrones = new ArrayList<>();
+        for (DroneLoad load : droneLoads.values()) {
+            if (load.isEmpty())
+                continue;
+
+            manifests.put(load.drone.getDroneSerialNumber(), load.codeToCount);
+            load.apply();
+            loadedDrones.add(load.drone);
+        }
+        if (manifests.isEmpty())
+            return results;
+
+        // drones are loaded read-only, Hibernate doesn't batch their dynamic updates
+        droneStateMachine.loadAll(loadedDrones);
+        droneMedicationRepository.mergeCounts(manifests);
+        loadedDrones.forEach(fleetIndex::updateAfterCommit);
 
-        loadMedications(drone, medicationCount);
+        return results;
     }
 
-    @Transactional(propagation = REQUIRES_NEW)
+    @Transactional
     @Override
     public void setState(DroneEntity drone, DroneState state) {
-        drone.setState(state);
-        dronesRepository.save(drone);
+        if (droneStateMachine.transition(drone.getDroneSerialNumber(), state) == 0)
+            throw new HttpServerErrorException(BAD_REQUEST,
+                    illegalStateTransitionError(drone.getDroneSerialNumber(), state));
+
+        fleetIndex.refreshAfterCommit(List.of(drone.getDroneSerialNumber()));
     }
 
     @Transactional(readOnly = true)
     @Override
-    public List<MedicationDto> getMedications(@NonNull String droneSerialNumber) {
+    public List<MedicationDto> getMedications(@NonNull String droneSerialNumber, @NonNull ImageMode imageMode) {
         DroneEntity drone = dronesRepository.findByIdFetchMedications(droneSerialNumber)
                 .orElseThrow(() -> new HttpServerErrorException(BAD_REQUEST, droneNotExistError(droneSerialNumber)));
 
-        return medicationConverter.entitiesToDtos(drone.getMedications());
+        Set<MedicationEntity> medications = drone.getMedications();
+        if (imageMode == ImageMode.URL)
+            return medications.stream().map(medicationConverter::entityToDtoWithImageUrl).toList();
+
+        Map<String, String> imageEtags = medicationImagesRepository.findMetadataByCodeIn(
+                        medications.stream().map(MedicationEntity::getCode).toList()).stream()
+                .collect(toMap(MedicationImageMetadata::code, MedicationImageMetadata::etag));
+
+        List<String> notCachedCodes = medications.stream()
+                .filter(medication -> !medicationJsonCache.isCached(medication, imageEtags.get(medication.getCode())))
+                .map(MedicationEntity::getCode)
+                .toList();
+        Map<String, MedicationImageEntity> images = notCachedCodes.isEmpty() ? Map.of()
+                : medicationImagesRepository.findAllById(notCachedCodes).stream()
+                .collect(toMap(MedicationImageEntity::getCode, identity()));
+
+        return medications.stream()
+                .<MedicationDto>map(medication -> medicationJsonCache.getEncoded(medication,
+                        imageEtags.get(medication.getCode()),
+                        () -> medicationConverter.entityToDto(medication, getImage(medication.getCode(), images))))
+                .toList();
+    }
+
+    /**
+     * The image may be absent in the prefetched ones if its cached JSON was evicted in the meantime.
+     */
+    private MedicationImageEntity getImage(String code, Map<String, MedicationImageEntity> prefetchedImages) {
+        MedicationImageEntity image = prefetchedImages.get(code);
+        return image != null ? image : medicationImagesRepository.findById(code).orElse(null);
     }
 
-    @Transactional(readOnly = true)
     @Override
     public List<DroneDto> getAvailableDrones() {
-        List<DroneEntity> drones =
-                dronesRepository.findAvailable(AVAILABLE_DRONE_STATES, MIN_BATTERY_LEVEL);
-        return droneConverter.entitiesToDtos(drones);
+        return getAvailableDrones(AvailabilityFilter.ANY);
+    }
+
+    @Override
+    public List<DroneDto> getAvailableDrones(@NonNull AvailabilityFilter filter) {
+        return droneConverter.entriesToDtos(fleetIndex.findAvailable(filter));
+    }
+
+    @Override
+    public KeysetPage<DroneDto> getAvailableDrones(@NonNull AvailabilityFilter filter, String cursor, int limit) {
+        List<FleetEntry> entries = fleetIndex.streamAvailable(filter, KeysetCursor.decode(cursor))
+                .limit(limit + 1L)
+                .toList();
+        return KeysetPage.of(entries, limit, FleetEntry::droneSerialNumber).map(droneConverter::entriesToDtos);
+    }
+
+    @Override
+    public void forEachAvailableDrone(@NonNull AvailabilityFilter filter, @NonNull String afterSerialNumber,
+                                      @NonNull Consumer<DroneDto> consumer) {
+        fleetIndex.streamAvailable(filter, afterSerialNumber)
+                .forEach(entry -> consumer.accept(droneConverter.entryToDto(entry)));
     }
 
     @Transactional(readOnly = true)
     @Override
     public Map<String, BigDecimal> getBatteryLevels() {
-        return dronesRepository.findAll().stream()
-                .collect(toMap(DroneEntity::getDroneSerialNumber, DroneEntity::getBatteryLevel));
+        Map<String, BigDecimal> batteryLevels = new HashMap<>();
+        scanBatteryLevels(BATTERY_SCAN_CHUNK_SIZE, chunk -> chunk.forEach(reading ->
+                batteryLevels.put(reading.droneSerialNumber(), reading.level())));
+        return batteryLevels;
+    }
+
+    @Override
+    public KeysetPage<BatteryReading> getBatteryLevels(String cursor, int limit) {
+        List<BatteryReading> readings = dronesRepository.findBatteryLevelsAfter(KeysetCursor.decode(cursor),
+                PageRequest.ofSize(limit + 1));
+        return KeysetPage.of(readings, limit, BatteryReading::droneSerialNumber);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void forEachBatteryLevel(@NonNull Consumer<BatteryReading> consumer) {
+        try (Stream<BatteryReading> readings = dronesRepository.streamBatteryLevels()) {
+            readings.forEach(consumer);
+        }
+    }
+
+    @Override
+    public void scanBatteryLevels(int chunkSize, @NonNull Consumer<List<BatteryReading>> chunkConsumer) {
+        scanChunks(chunkSize, chunkConsumer, dronesRepository::findBatteryLevelsAfter);
+    }
+
+    @Override
+    public void scanBatteryLevels(int chunkSize, @NonNull FleetPartitionSet partitions,
+                                  @NonNull Consumer<List<BatteryReading>> chunkConsumer) {
+        if (partitions.isEmpty())
+            return;
+
+        scanChunks(chunkSize, chunkConsumer, (afterSerialNumber, chunk) -> dronesRepository
+                .findBatteryLevelsAfter(afterSerialNumber, partitions.partitionCount() - 1,
+                        partitions.partitions(), chunk));
+    }
+
+    private static void scanChunks(int chunkSize, Consumer<List<BatteryReading>> chunkConsumer,
+                                   BiFunction<String, Pageable, List<BatteryReading>> nextChunk) {
+        PageRequest chunk = PageRequest.ofSize(chunkSize);
+        String afterSerialNumber = "";
+        List<BatteryReading> readings;
+        do {
+            readings = nextChunk.apply(afterSerialNumber, chunk);
+            if (readings.isEmpty())
+                return;
+
+            chunkConsumer.accept(readings);
+            afterSerialNumber = readings.get(readings.size() - 1).droneSerialNumber();
+        } while (readings.size() == chunkSize);
     }
 
     @Transactional(readOnly = true)
@@ -149,25 +442,61 @@ public class DronesDaoImpl implements DronesDao {
                 .level(batteryLevel);
     }
 
-    public BigDecimal getFreeSpace(DroneEntity drone) {
-        BigDecimal totalWeight = ZERO;
+    @Transactional(readOnly = true)
+    @Override
+    public BatteryLevels getBatteryLevels(@NonNull Collection<String> droneSerialNumbers) {
+        if (droneSerialNumbers.isEmpty())
+            throw new HttpServerErrorException(BAD_REQUEST, emptySerialNumbersListError());
+        Set<String> serialNumbers = new LinkedHashSet<>(droneSerialNumbers);
+        if (serialNumbers.size() > maxBatteryLevels)
+            throw new HttpServerErrorException(BAD_REQUEST, tooManySerialNumbersError(maxBatteryLevels));
+
+        Map<String, BigDecimal> levels = dronesRepository.findBatteryLevels(serialNumbers).stream()
+                .collect(toMap(BatteryReading::droneSerialNumber, BatteryReading::level));
+        List<String> unknownSerialNumbers = serialNumbers.stream()
+                .filter(serialNumber -> !levels.containsKey(serialNumber))
+                .toList();
+
+        return new BatteryLevels(levels, unknownSerialNumbers);
+    }
 
-        for (MedicationEntity medication : drone.getMedications()) {
-            BigDecimal count = droneMedicationRepository
-                    .findByDroneAndMedication(drone.getDroneSerialNumber(), medication.getCode())
-                    .map(dm -> BigDecimal.valueOf(dm.getCount())).orElse(ZERO);
+    /**
+     * Free space is computed from the payload weight stored with the drone,
+     * which is kept up to date by {@link #loadBatchAttempt(String, List)}.
+     *
+     * @return free space in {@link Milligrams}
+     */
+    public long getFreeSpace(DroneEntity drone) {
+        return CapacityCalculator.freeSpace(Milligrams.ofLimit(drone.getModel().getWeightLimit()),
+                Milligrams.ofWeight(drone.getPayloadWeight()));
+    }
 
-            totalWeight = totalWeight.add(medication.getWeightGr().multiply(count));
-        }
+    private static long getWeight(Map<CatalogMedication, Integer> medicationCount) {
+        long weightMg = 0;
+        for (Map.Entry<CatalogMedication, Integer> e : medicationCount.entrySet())
+            weightMg = CapacityCalculator.add(weightMg, CapacityCalculator.weight(e.getKey().weightMg(), e.getValue()));
+        return weightMg;
+    }
 
-        return drone.getModel().getWeightLimit().subtract(totalWeight);
+    private static int getItemsCount(Map<CatalogMedication, Integer> medicationCount) {
+        return medicationCount.values().stream()
+                .mapToInt(Integer::intValue).sum();
     }
 
-    private BigDecimal getWeight(Map<MedicationEntity, Integer> medicationCount) {
-        return medicationCount.entrySet().stream()
-                .map(e -> e.getKey().getWeightGr()
-                        .multiply(BigDecimal.valueOf(e.getValue())))
-                .reduce(ZERO, BigDecimal::add);
+    private ValidationResult validateRegistration(CreateDroneRequest createRequest) {
+        DroneModelEnum model = createRequest.getModel();
+        String serialNumber = createRequest.getDroneSerialNumber();
+        if (model == null)
+            return ValidationResult.error(modelIsNullError());
+        if (serialNumber == null)
+            return ValidationResult.error(serialNumberIsNullError());
+        if (serialNumber.isBlank())
+            return ValidationResult.error(serialNumberIsBlankError());
+        if (serialNumber.length() > MAX_SERIAL_NUMBER_LENGTH)
+            return ValidationResult.error(serialNumberIsTooLongError(MAX_SERIAL_NUMBER_LENGTH));
+        if (catalogCache.getDroneModel(model).isEmpty())
+            return ValidationResult.error(unknownDroneModelError(model));
+        return ValidationResult.success();
     }
 
     private static DroneEntity createDrone(CreateDroneRequest request, DroneModelEntity droneModel) {
@@ -175,43 +504,60 @@ public class DronesDaoImpl implements DronesDao {
         droneEntity.setModel(droneModel);
         droneEntity.setBatteryLevel(BigDecimal.valueOf(100L));
         droneEntity.setState(IDLE);
+        droneEntity.setPayloadWeight(ZERO);
+        droneEntity.setItemsCount(0);
         droneEntity.setDroneSerialNumber(request.getDroneSerialNumber());
         return droneEntity;
     }
 
-    private void loadMedications(DroneEntity drone, Map<MedicationEntity, Integer> medicationCount) {
-        DroneState previousState = drone.getState();
-
-        try {
-            self.setState(drone, LOADING);
-            List<DroneMedicationEntity> droneMedicationEntities = new ArrayList<>();
+    /**
+     * Runs in the transaction of {@link #loadBatchAttempt(String, List)}: if anything fails,
+     * the manifest and the state of the drone are rolled back together. The state, payload and version
+     * are written by a single conditional update, the read-only drone is then brought up to date with it.
+     */
+    private void loadMedications(DroneEntity drone, DroneLoad load) {
+        String serialNumber = drone.getDroneSerialNumber();
+        phase("manifest-write", () -> droneMedicationRepository.mergeCounts(serialNumber, load.codeToCount));
+        load.apply();
+        phase("state-transition", () -> {
+            if (droneStateMachine.load(drone) == 0)
+                throw new ObjectOptimisticLockingFailureException(DroneEntity.class, serialNumber);
+        });
+        drone.setState(LOADED);
+        drone.setVersion(drone.getVersion() + 1);
+    }
 
-            for (MedicationEntity medication : medicationCount.keySet()) {
-                DroneModelPk droneModel = new DroneModelPk(drone, medication);
-                Integer newMedicationCount = medicationCount.get(medication);
-                int count = droneMedicationRepository.findById(droneModel)
-                        .map(dm -> dm.getCount() + newMedicationCount).orElse(newMedicationCount);
-                droneMedicationEntities.add(new DroneMedicationEntity(droneModel, count));
-            }
+    private <T> T phase(String phase, Supplier<T> step) {
+        return Observation.createNotStarted(LOAD_PHASE_OBSERVATION, observationRegistry)
+                .lowCardinalityKeyValue("phase", phase)
+                .observe(step);
+    }
 
-            droneMedicationRepository.saveAll(droneMedicationEntities);
+    private void phase(String phase, Runnable step) {
+        Observation.createNotStarted(LOAD_PHASE_OBSERVATION, observationRegistry)
+                .lowCardinalityKeyValue("phase", phase)
+                .observe(step);
+    }
 
-            self.setState(drone, LOADED);
-        } catch (Exception ex) {
-            self.setState(drone, previousState);
-            throw ex;
-        }
+    private static List<ValidationResult> rejectAll(List<List<LoadingMedication>> manifests, String errorMsg) {
+        return manifests.stream()
+                .map(m -> ValidationResult.error(errorMsg)).toList();
     }
 
-    private List<String> getAbsentCodes(List<String> searchMedicationCodes, List<MedicationEntity> medicationsFromDb) {
-        List<String> factCodes = medicationsFromDb.stream()
-                .map(MedicationEntity::getCode).toList();
+    private Map<String, CatalogMedication> getCatalog(List<List<LoadingMedication>> manifests) {
+        Set<String> codes = manifests.stream()
+                .flatMap(List::stream)
+                .map(LoadingMedication::getMedicationCode)
+                .collect(toSet());
 
-        return searchMedicationCodes.stream()
-                .filter(c -> !factCodes.contains(c)).toList();
+        return catalogCache.getMedications(codes);
     }
 
-    private Map<MedicationEntity, Integer> getMedicationEntities(List<LoadingMedication> medications) {
+    private Map<CatalogMedication, Integer> getLoadingMedications(List<LoadingMedication> medications,
+                                                                  Map<String, CatalogMedication> catalog) {
+        if (medications.isEmpty())
+            throw new HttpServerErrorException(BAD_REQUEST, emptyMedicationsListError());
+
         List<String> duplicateCodes = medications.stream()
                 .collect(groupingBy(LoadingMedication::getMedicationCode, counting())).entrySet().stream()
                 .filter(e -> e.getValue() > 1)
@@ -226,19 +572,61 @@ public class DronesDaoImpl implements DronesDao {
         if (!wrongCodeToCount.isEmpty())
             throw new HttpServerErrorException(BAD_REQUEST, countWrongError(wrongCodeToCount));
 
+        List<String> absentCodes = codeToCount.keySet().stream()
+                .filter(c -> !catalog.containsKey(c)).toList();
+        if (!absentCodes.isEmpty())
+            throw new HttpServerErrorException(BAD_REQUEST, medicationsNotExistError(absentCodes));
 
-        List<String> codes = codeToCount.keySet().stream().toList();
+        return codeToCount.entrySet().stream()
+                .collect(toMap(e -> catalog.get(e.getKey()), Map.Entry::getValue));
+    }
 
-        Map<MedicationEntity, Integer> medicationCount = medicationsRepository.findAllByCodeIn(codes).stream()
-                .collect(toMap(identity(), m -> codeToCount.get(m.getCode())));
+    /**
+     * Manifests of a drone accepted within one transaction, checked against the free space of the drone
+     * left by the previously accepted ones. Weights are summed in {@link Milligrams}, the payload of the drone
+     * is converted back to grams once per load.
+     */
+    private class DroneLoad {
+
+        private final DroneEntity drone;
+        private final long freeSpaceMg;
+        private final Map<String, Integer> codeToCount = new HashMap<>();
+        private long loadedWeightMg;
+        private int loadedItems;
+
+        private DroneLoad(DroneEntity drone) {
+            this.drone = drone;
+            this.freeSpaceMg = getFreeSpace(drone);
+        }
 
-        if (medicationCount.size() < codeToCount.size()) {
-            List<MedicationEntity> dbCodes = medicationCount.keySet().stream().toList();
-            List<String> absentCodes = getAbsentCodes(codes, dbCodes);
-            throw new HttpServerErrorException(BAD_REQUEST, medicationsNotExistError(absentCodes));
+        private ValidationResult add(List<LoadingMedication> manifest, Map<String, CatalogMedication> catalog) {
+            try {
+                Map<CatalogMedication, Integer> medicationCount = getLoadingMedications(manifest, catalog);
+                long medicationsWeightMg = getWeight(medicationCount);
+                long remainingSpaceMg = CapacityCalculator.freeSpace(freeSpaceMg, loadedWeightMg);
+
+                if (!CapacityCalculator.fits(medicationsWeightMg, remainingSpaceMg))
+                    throw new HttpServerErrorException(BAD_REQUEST, overweightLoadingError(
+                            drone.getDroneSerialNumber(), Milligrams.toGrams(remainingSpaceMg),
+                            Milligrams.toGrams(medicationsWeightMg)));
+
+                medicationCount.forEach((medication, count) -> codeToCount.merge(medication.code(), count, Integer::sum));
+                loadedWeightMg += medicationsWeightMg;
+                loadedItems += getItemsCount(medicationCount);
+                return ValidationResult.success();
+            } catch (HttpServerErrorException ex) {
+                return ValidationResult.error(ex.getStatusText());
+            }
         }
 
-        return medicationCount;
+        private boolean isEmpty() {
+            return codeToCount.isEmpty();
+        }
+
+        private void apply() {
+            drone.setPayloadWeight(drone.getPayloadWeight().add(Milligrams.toGrams(loadedWeightMg)));
+            drone.setItemsCount(drone.getItemsCount() + loadedItems);
+        }
     }
 
     private Map<String, Integer> getWrongCounts(Map<String, Integer> codeToCount) {
@@ -4,6 +4,7 @@ import com.musala.gorskikh.model.DroneState;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.util.HashSet;
@@ -15,6 +16,7 @@ import static jakarta.persistence.EnumType.STRING;
 @Data
 @Setter
 @Entity
+@DynamicUpdate
 @Table(name = "drones")
 public class DroneEntity {
 
@@ -33,6 +35,16 @@ public class DroneEntity {
     @Column(name = "state")
     private DroneState state;
 
+    @Column(name = "payload_weight_gr")
+    private BigDecimal payloadWeight;
+
+    @Column(name = "items_count")
+    private Integer itemsCount;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     @ManyToMany(cascade = MERGE)
     @JoinTable(
             name = "drone_medication",
@@ -1,6 +1,7 @@
 package com.musala.gorskikh.db.entities;
 
 import com.musala.gorskikh.model.DroneModelEnum;
+import com.musala.gorskikh.services.catalog.CatalogCacheInvalidator;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.Setter;
@@ -12,6 +13,7 @@ import static jakarta.persistence.EnumType.STRING;
 @Data
 @Setter
 @Entity
+@EntityListeners(CatalogCacheInvalidator.class)
 @Table(name = "drone_model")
 public class DroneModelEntity {
 
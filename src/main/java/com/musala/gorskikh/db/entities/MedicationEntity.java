@@ -1,5 +1,6 @@
 package com.musala.gorskikh.db.entities;
 
+import com.musala.gorskikh.services.catalog.CatalogCacheInvalidator;
 import lombok.Data;
 
 import jakarta.persistence.*;
@@ -7,6 +8,7 @@ import java.math.BigDecimal;
 
 @Data
 @Entity
+@EntityListeners(CatalogCacheInvalidator.class)
 @Table(name = "medications")
 public class MedicationEntity {
 
@@ -19,8 +21,4 @@ public class MedicationEntity {
 
     @Column(name = "weight_gr")
     private BigDecimal weightGr;
-
-    @Lob
-    @Column(name = "image", columnDefinition="BLOB")
-    private byte[] image;
 }
@@ -0,0 +1,48 @@
+package com.musala.gorskikh.db.entities;
+
+import com.musala.gorskikh.services.catalog.CatalogCacheInvalidator;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.SneakyThrows;
+
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+@Data
+@Entity
+@NoArgsConstructor
+@EntityListeners(CatalogCacheInvalidator.class)
+@Table(name = "medication_images")
+public class MedicationImageEntity {
+
+    @Id
+    @Column(name = "medication_code")
+    private String code;
+
+    @Lob
+    @Column(name = "image", columnDefinition = "BLOB")
+    private byte[] image;
+
+    /**
+     * Hex SHA-256 of the image, served as its ETag
+     */
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "size")
+    private Long size;
+
+    public MedicationImageEntity(String code, byte[] image) {
+        this.code = code;
+        this.image = image;
+    }
+
+    @SneakyThrows
+    @PrePersist
+    @PreUpdate
+    void computeEtag() {
+        etag = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(image));
+        size = (long) image.length;
+    }
+}
@@ -9,7 +9,8 @@ import java.util.Optional;
 
 @Repository
 public interface DroneMedicationRepository
-        extends JpaRepository<DroneMedicationEntity, DroneMedicationEntity.DroneModelPk> {
+        extends JpaRepository<DroneMedicationEntity, DroneMedicationEntity.DroneModelPk>,
+        DroneMedicationRepositoryCustom {
 
     @Query("""
             SELECT e FROM DroneMedicationEntity e
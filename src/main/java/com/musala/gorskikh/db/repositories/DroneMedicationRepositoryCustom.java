@@ -0,0 +1,17 @@
+package com.musala.gorskikh.db.repositories;
+
+import java.util.Map;
+
+public interface DroneMedicationRepositoryCustom {
+
+    /**
+     * Adds the given counts to the drone's manifest, inserting rows for medications
+     * that are not loaded yet. All rows are written with a single batched statement.
+     */
+    void mergeCounts(String droneSerialNumber, Map<String, Integer> codeToCount);
+
+    /**
+     * Same as {@link #mergeCounts(String, Map)} for the manifests of several drones in a single batched statement
+     */
+    void mergeCounts(Map<String, Map<String, Integer>> droneToCodeCounts);
+}
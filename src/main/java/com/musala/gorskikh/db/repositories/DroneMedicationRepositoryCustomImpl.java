@@ -0,0 +1,51 @@
+package com.musala.gorskikh.db.repositories;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class DroneMedicationRepositoryCustomImpl implements DroneMedicationRepositoryCustom {
+
+    private static final String MERGE_COUNT_SQL = """
+            MERGE INTO drone_medication t
+            USING (VALUES (CAST(? AS VARCHAR(100)), CAST(? AS VARCHAR(50)), CAST(? AS INTEGER)))
+                AS s (drone_serial_number, medication_code, count)
+            ON t.drone_serial_number = s.drone_serial_number AND t.medication_code = s.medication_code
+            WHEN MATCHED THEN UPDATE SET count = t.count + s.count
+            WHEN NOT MATCHED THEN INSERT (drone_serial_number, medication_code, count)
+                VALUES (s.drone_serial_number, s.medication_code, s.count)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public DroneMedicationRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                               @Value("${drones.jdbc.batch-size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void mergeCounts(String droneSerialNumber, Map<String, Integer> codeToCount) {
+        jdbcTemplate.batchUpdate(MERGE_COUNT_SQL, codeToCount.entrySet(), batchSize, (ps, e) -> {
+            ps.setString(1, droneSerialNumber);
+            ps.setString(2, e.getKey());
+            ps.setInt(3, e.getValue());
+        });
+    }
+
+    @Override
+    public void mergeCounts(Map<String, Map<String, Integer>> droneToCodeCounts) {
+        List<Object[]> rows = new ArrayList<>();
+        droneToCodeCounts.forEach((droneSerialNumber, codeToCount) -> codeToCount.forEach((code, count) ->
+                rows.add(new Object[]{droneSerialNumber, code, count})));
+
+        jdbcTemplate.batchUpdate(MERGE_COUNT_SQL, rows, batchSize, (ps, row) -> {
+            ps.setString(1, (String) row[0]);
+            ps.setString(2, (String) row[1]);
+            ps.setInt(3, (Integer) row[2]);
+        });
+    }
+}
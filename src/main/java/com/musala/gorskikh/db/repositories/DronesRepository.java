@@ -2,23 +2,43 @@ package com.musala.gorskikh.db.repositories;
 
 import com.musala.gorskikh.db.entities.DroneEntity;
 import com.musala.gorskikh.model.DroneState;
+import com.musala.gorskikh.services.battery.BatteryReading;
+import com.musala.gorskikh.services.fleet.FleetRow;
+import com.musala.gorskikh.services.fleet.FleetVersion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface DronesRepository
-        extends JpaRepository<DroneEntity, String> {
+        extends JpaRepository<DroneEntity, String>, DronesRepositoryCustom {
 
-    @Query("""
-            SELECT e FROM DroneEntity e
-            WHERE e.state in :states AND e.batteryLevel >= :minBatteryLevel
-            """)
-    List<DroneEntity> findAvailable(List<DroneState> states, BigDecimal minBatteryLevel);
+    /**
+     * Loads the drones without tracking their changes, they are written by {@link #updateLoads}.
+     * Models are fetched by the same query rather than by a query per model.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query(value = """
+            SELECT e FROM DroneEntity e LEFT JOIN FETCH e.model
+            WHERE e.droneSerialNumber IN :serialNumbers""")
+    List<DroneEntity> findAllReadOnly(Collection<String> serialNumbers);
+
+    @Query(value = """
+            SELECT e.droneSerialNumber FROM DroneEntity e
+            WHERE e.droneSerialNumber IN :serialNumbers""")
+    Set<String> findExistingSerialNumbers(Collection<String> serialNumbers);
 
     @Query(value = """
             SELECT e.batteryLevel FROM DroneEntity e
@@ -26,7 +46,99 @@ public interface DronesRepository
     Optional<BigDecimal> getBatteryLevel(String serialNumber);
 
     @Query(value = """
-            SELECT e FROM DroneEntity e LEFT JOIN FETCH e.medications
+            SELECT new com.musala.gorskikh.services.battery.BatteryReading(e.droneSerialNumber, e.batteryLevel)
+            FROM DroneEntity e
+            WHERE e.droneSerialNumber IN :serialNumbers""")
+    List<BatteryReading> findBatteryLevels(Collection<String> serialNumbers);
+
+    /**
+     * Keyset page of battery levels ordered by serial number, only the page size of the pageable is used.
+     */
+    @Query(value = """
+            SELECT new com.musala.gorskikh.services.battery.BatteryReading(e.droneSerialNumber, e.batteryLevel)
+            FROM DroneEntity e
+            WHERE e.droneSerialNumber > :afterSerialNumber
+            ORDER BY e.droneSerialNumber""")
+    List<BatteryReading> findBatteryLevelsAfter(String afterSerialNumber, Pageable pageable);
+
+    /**
+     * Battery levels of all drones ordered by serial number read by a forward-only cursor,
+     * the stream must be consumed in a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = """
+            SELECT new com.musala.gorskikh.services.battery.BatteryReading(e.droneSerialNumber, e.batteryLevel)
+            FROM DroneEntity e
+            ORDER BY e.droneSerialNumber""")
+    Stream<BatteryReading> streamBatteryLevels();
+
+    /**
+     * Keyset page of battery levels of drones in the partitions, see {@link #findBatteryLevelsAfter}.
+     * A drone belongs to partition {@code ORA_HASH(serial_number, maxPartition)}.
+     */
+    @Query(value = """
+            SELECT new com.musala.gorskikh.services.battery.BatteryReading(e.droneSerialNumber, e.batteryLevel)
+            FROM DroneEntity e
+            WHERE e.droneSerialNumber > :afterSerialNumber
+                AND function('ORA_HASH', e.droneSerialNumber, :maxPartition) IN :partitions
+            ORDER BY e.droneSerialNumber""")
+    List<BatteryReading> findBatteryLevelsAfter(String afterSerialNumber, int maxPartition,
+                                                Collection<Integer> partitions, Pageable pageable);
+
+    /**
+     * Keyset page of the fleet index columns ordered by serial number, only the page size of the pageable is used.
+     */
+    @Query(value = """
+            SELECT new com.musala.gorskikh.services.fleet.FleetRow(e.droneSerialNumber, m.model, m.weightLimit,
+                e.state, e.batteryLevel, e.payloadWeight, e.version)
+            FROM DroneEntity e JOIN e.model m
+            WHERE e.droneSerialNumber > :afterSerialNumber
+            ORDER BY e.droneSerialNumber""")
+    List<FleetRow> findFleetRowsAfter(String afterSerialNumber, Pageable pageable);
+
+    @Query(value = """
+            SELECT new com.musala.gorskikh.services.fleet.FleetRow(e.droneSerialNumber, m.model, m.weightLimit,
+                e.state, e.batteryLevel, e.payloadWeight, e.version)
+            FROM DroneEntity e JOIN e.model m
+            WHERE e.droneSerialNumber IN :serialNumbers""")
+    List<FleetRow> findFleetRows(Collection<String> serialNumbers);
+
+    /**
+     * Keyset page of versions ordered by serial number, only the page size of the pageable is used.
+     */
+    @Query(value = """
+            SELECT new com.musala.gorskikh.services.fleet.FleetVersion(e.droneSerialNumber, e.version)
+            FROM DroneEntity e
+            WHERE e.droneSerialNumber > :afterSerialNumber
+            ORDER BY e.droneSerialNumber""")
+    List<FleetVersion> findFleetVersionsAfter(String afterSerialNumber, Pageable pageable);
+
+    /**
+     * Loads the drone without tracking its changes, they are written by a conditional update,
+     * see {@link com.musala.gorskikh.services.DroneStateMachine#load}
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query(value = """
+            SELECT e FROM DroneEntity e LEFT JOIN FETCH e.model
+            WHERE e.droneSerialNumber = :serialNumber""")
+    Optional<DroneEntity> findByIdReadOnly(String serialNumber);
+
+    @Query(value = """
+            SELECT e FROM DroneEntity e LEFT JOIN FETCH e.model LEFT JOIN FETCH e.medications
             WHERE e.droneSerialNumber = :serialNumber""")
     Optional<DroneEntity> findByIdFetchMedications(String serialNumber);
+
+    @Modifying
+    @Query(value = """
+            UPDATE DroneEntity e SET e.state = :target, e.version = e.version + 1
+            WHERE e.droneSerialNumber = :serialNumber AND e.state IN :sources""")
+    int compareAndSetState(String serialNumber, Collection<DroneState> sources, DroneState target);
+
+    @Modifying
+    @Query(value = """
+            UPDATE DroneEntity e SET e.state = :target, e.payloadWeight = :payloadWeight,
+                e.itemsCount = :itemsCount, e.version = e.version + 1
+            WHERE e.droneSerialNumber = :serialNumber AND e.version = :version AND e.state IN :sources""")
+    int compareAndSetLoad(String serialNumber, long version, Collection<DroneState> sources, DroneState target,
+                          BigDecimal payloadWeight, int itemsCount);
 }
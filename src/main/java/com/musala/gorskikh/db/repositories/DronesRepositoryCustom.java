@@ -0,0 +1,24 @@
+package com.musala.gorskikh.db.repositories;
+
+import com.musala.gorskikh.db.entities.DroneEntity;
+import com.musala.gorskikh.model.DroneState;
+
+import java.util.Collection;
+import java.util.Set;
+
+public interface DronesRepositoryCustom {
+
+    /**
+     * Moves the drones to the target state writing their payload weight and items count with a single batched
+     * statement, each row only if its version is still the version of the entity and its state is one of
+     * the sources. The entities get the target state and incremented versions.
+     *
+     * @throws org.springframework.dao.OptimisticLockingFailureException if a drone was changed concurrently
+     */
+    void updateLoads(Collection<DroneEntity> drones, Set<DroneState> sources, DroneState target);
+
+    /**
+     * Inserts new drones with a single batched statement, versions of the entities are set to the initial one
+     */
+    void insertAll(Collection<DroneEntity> drones);
+}
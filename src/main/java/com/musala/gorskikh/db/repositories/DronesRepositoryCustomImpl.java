@@ -0,0 +1,76 @@
+package com.musala.gorskikh.db.repositories;
+
+import com.musala.gorskikh.db.entities.DroneEntity;
+import com.musala.gorskikh.model.DroneState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.joining;
+
+public class DronesRepositoryCustomImpl implements DronesRepositoryCustom {
+
+    private static final String UPDATE_LOAD_SQL = """
+            UPDATE drones SET state = ?, payload_weight_gr = ?, items_count = ?, version = version + 1
+            WHERE serial_number = ? AND version = ? AND state IN (%s)""";
+
+    private static final String INSERT_SQL = """
+            INSERT INTO drones (serial_number, model, battery_level, state, payload_weight_gr, items_count, version)
+            VALUES (?, ?, ?, ?, ?, ?, 0)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public DronesRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                      @Value("${drones.jdbc.batch-size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void updateLoads(Collection<DroneEntity> drones, Set<DroneState> sources, DroneState target) {
+        List<DroneState> sourceStates = List.copyOf(sources);
+        String sql = format(UPDATE_LOAD_SQL, sourceStates.stream().map(source -> "?").collect(joining(", ")));
+        int[][] counts = jdbcTemplate.batchUpdate(sql, drones, batchSize, (ps, drone) -> {
+            ps.setString(1, target.name());
+            ps.setBigDecimal(2, drone.getPayloadWeight());
+            ps.setInt(3, drone.getItemsCount());
+            ps.setString(4, drone.getDroneSerialNumber());
+            ps.setLong(5, drone.getVersion());
+            for (int i = 0; i < sourceStates.size(); i++)
+                ps.setString(6 + i, sourceStates.get(i).name());
+        });
+
+        int[] rowCounts = Arrays.stream(counts).flatMapToInt(Arrays::stream).toArray();
+        int i = 0;
+        for (DroneEntity drone : drones) {
+            if (rowCounts[i++] == 0)
+                throw new ObjectOptimisticLockingFailureException(DroneEntity.class, drone.getDroneSerialNumber());
+        }
+
+        drones.forEach(drone -> {
+            drone.setState(target);
+            drone.setVersion(drone.getVersion() + 1);
+        });
+    }
+
+    @Override
+    public void insertAll(Collection<DroneEntity> drones) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, drones, batchSize, (ps, drone) -> {
+            ps.setString(1, drone.getDroneSerialNumber());
+            ps.setString(2, drone.getModel().getModel().name());
+            ps.setBigDecimal(3, drone.getBatteryLevel());
+            ps.setString(4, drone.getState().name());
+            ps.setBigDecimal(5, drone.getPayloadWeight());
+            ps.setInt(6, drone.getItemsCount());
+        });
+
+        drones.forEach(drone -> drone.setVersion(0L));
+    }
+}
@@ -0,0 +1,28 @@
+package com.musala.gorskikh.db.repositories;
+
+import com.musala.gorskikh.db.entities.MedicationImageEntity;
+import com.musala.gorskikh.services.images.MedicationImageMetadata;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MedicationImagesRepository
+        extends JpaRepository<MedicationImageEntity, String>, MedicationImagesRepositoryCustom {
+
+    @Query(value = """
+            SELECT new com.musala.gorskikh.services.images.MedicationImageMetadata(e.code, e.etag, e.size)
+            FROM MedicationImageEntity e
+            WHERE e.code = :code""")
+    Optional<MedicationImageMetadata> findMetadataById(String code);
+
+    @Query(value = """
+            SELECT new com.musala.gorskikh.services.images.MedicationImageMetadata(e.code, e.etag, e.size)
+            FROM MedicationImageEntity e
+            WHERE e.code IN :codes""")
+    List<MedicationImageMetadata> findMetadataByCodeIn(Collection<String> codes);
+}
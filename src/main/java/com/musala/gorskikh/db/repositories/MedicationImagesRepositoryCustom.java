@@ -0,0 +1,20 @@
+package com.musala.gorskikh.db.repositories;
+
+import com.musala.gorskikh.services.images.MedicationImageMetadata;
+
+import java.io.InputStream;
+import java.util.Collection;
+
+public interface MedicationImagesRepositoryCustom {
+
+    /**
+     * Inserts or replaces the image of the medication streaming it into the BLOB until the end of the stream,
+     * which is left open. The metadata of the image is reset until {@link #updateMetadata} is called.
+     */
+    void mergeImage(String code, InputStream image);
+
+    /**
+     * Writes the ETags and sizes of images with a single batched statement
+     */
+    void updateMetadata(Collection<MedicationImageMetadata> metadata);
+}
@@ -0,0 +1,50 @@
+package com.musala.gorskikh.db.repositories;
+
+import com.musala.gorskikh.services.images.MedicationImageMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.io.InputStream;
+import java.util.Collection;
+
+public class MedicationImagesRepositoryCustomImpl implements MedicationImagesRepositoryCustom {
+
+    private static final String MERGE_IMAGE_SQL = """
+            MERGE INTO medication_images t
+            USING (VALUES (CAST(? AS VARCHAR(50)), CAST(? AS BLOB))) AS s (medication_code, image)
+            ON t.medication_code = s.medication_code
+            WHEN MATCHED THEN UPDATE SET image = s.image, etag = '', size = 0
+            WHEN NOT MATCHED THEN INSERT (medication_code, image, etag, size)
+                VALUES (s.medication_code, s.image, '', 0)""";
+
+    private static final String UPDATE_METADATA_SQL = """
+            UPDATE medication_images SET etag = ?, size = ?
+            WHERE medication_code = ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public MedicationImagesRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                                @Value("${drones.jdbc.batch-size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void mergeImage(String code, InputStream image) {
+        jdbcTemplate.update(MERGE_IMAGE_SQL, ps -> {
+            ps.setString(1, code);
+            ps.setBinaryStream(2, StreamUtils.nonClosing(image));
+        });
+    }
+
+    @Override
+    public void updateMetadata(Collection<MedicationImageMetadata> metadata) {
+        jdbcTemplate.batchUpdate(UPDATE_METADATA_SQL, metadata, batchSize, (ps, image) -> {
+            ps.setString(1, image.etag());
+            ps.setLong(2, image.size());
+            ps.setString(3, image.code());
+        });
+    }
+}
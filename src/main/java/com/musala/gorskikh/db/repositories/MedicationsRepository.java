@@ -1,13 +1,21 @@
 package com.musala.gorskikh.db.repositories;
 
 import com.musala.gorskikh.db.entities.MedicationEntity;
+import com.musala.gorskikh.services.catalog.CatalogMedication;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface MedicationsRepository extends JpaRepository<MedicationEntity, String> {
+public interface MedicationsRepository
+        extends JpaRepository<MedicationEntity, String>, MedicationsRepositoryCustom {
 
-    List<MedicationEntity> findAllByCodeIn(List<String> codes);
+    @Query(value = """
+            SELECT new com.musala.gorskikh.services.catalog.CatalogMedication(e.code, e.name, e.weightGr)
+            FROM MedicationEntity e
+            WHERE e.code IN :codes""")
+    List<CatalogMedication> findCatalogByCodeIn(Collection<String> codes);
 }
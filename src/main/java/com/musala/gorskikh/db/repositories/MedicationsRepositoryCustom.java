@@ -0,0 +1,13 @@
+package com.musala.gorskikh.db.repositories;
+
+import com.musala.gorskikh.db.entities.MedicationEntity;
+
+import java.util.Collection;
+
+public interface MedicationsRepositoryCustom {
+
+    /**
+     * Inserts new medications and updates names and weights of existing ones with a single batched statement
+     */
+    void mergeAll(Collection<MedicationEntity> medications);
+}
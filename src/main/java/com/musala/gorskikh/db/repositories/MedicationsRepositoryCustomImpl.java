@@ -0,0 +1,36 @@
+package com.musala.gorskikh.db.repositories;
+
+import com.musala.gorskikh.db.entities.MedicationEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+
+public class MedicationsRepositoryCustomImpl implements MedicationsRepositoryCustom {
+
+    private static final String MERGE_SQL = """
+            MERGE INTO medications t
+            USING (VALUES (CAST(? AS VARCHAR(50)), CAST(? AS VARCHAR(50)), CAST(? AS NUMERIC)))
+                AS s (code, name, weight_gr)
+            ON t.code = s.code
+            WHEN MATCHED THEN UPDATE SET name = s.name, weight_gr = s.weight_gr
+            WHEN NOT MATCHED THEN INSERT (code, name, weight_gr) VALUES (s.code, s.name, s.weight_gr)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public MedicationsRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                           @Value("${drones.jdbc.batch-size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void mergeAll(Collection<MedicationEntity> medications) {
+        jdbcTemplate.batchUpdate(MERGE_SQL, medications, batchSize, (ps, medication) -> {
+            ps.setString(1, medication.getCode());
+            ps.setString(2, medication.getName());
+            ps.setBigDecimal(3, medication.getWeightGr());
+        });
+    }
+}
@@ -1,6 +1,8 @@
 package com.musala.gorskikh.exceptions;
 
 import com.musala.gorskikh.model.Error;
+import com.musala.gorskikh.services.metrics.RejectionCounter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,16 +18,25 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
 
+/**
+ * Errors are written as JSON whatever the client accepts, e.g. to an NDJSON stream request rejected before
+ * it's started. Client errors of {@link HttpServerErrorException} are counted as rejections.
+ */
 @Slf4j
+@RequiredArgsConstructor
 @ControllerAdvice(basePackages = "com.musala.gorskikh")
 public class GlobalExceptionHandler {
 
+    private final RejectionCounter rejectionCounter;
+
     @ExceptionHandler(Exception.class)
     private ResponseEntity<Error> globalHandler(Exception ex, WebRequest request) {
         log.error("Occurred exception. Request: {}", request.getDescription(false), ex);
 
         return ResponseEntity.internalServerError()
+                .contentType(APPLICATION_JSON)
                 .body(createError(INTERNAL_SERVER_ERROR, ex));
     }
 
@@ -35,14 +46,18 @@ public class GlobalExceptionHandler {
         log.error("Occurred bad request exception. Request: {}", request.getDescription(false), ex);
 
         return ResponseEntity.internalServerError()
+                .contentType(APPLICATION_JSON)
                 .body(createError(BAD_REQUEST, ex));
     }
 
     @ExceptionHandler(HttpServerErrorException.class)
     private ResponseEntity<Error> httpServerErrorHandler(HttpServerErrorException ex, WebRequest request) {
         log.error("Occurred http request exception. Request: {}", request.getDescription(false), ex);
+        if (ex.getStatusCode().is4xxClientError())
+            rejectionCounter.count(ex.getStatusText());
 
         return ResponseEntity.internalServerError()
+                .contentType(APPLICATION_JSON)
                 .body(createError((HttpStatus)ex.getStatusCode(), ex));
     }
 
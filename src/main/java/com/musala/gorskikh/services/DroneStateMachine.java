@@ -0,0 +1,106 @@
+package com.musala.gorskikh.services;
+
+import com.musala.gorskikh.db.entities.DroneEntity;
+import com.musala.gorskikh.db.repositories.DronesRepository;
+import com.musala.gorskikh.model.DroneState;
+import lombok.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.musala.gorskikh.model.DroneState.*;
+
+/**
+ * Single place describing which {@link DroneState} changes are allowed.
+ * Transitions are applied as a conditional update, so a drone which was moved to another state
+ * concurrently is not touched and the caller gets zero affected rows. Every applied transition
+ * increments the version of the drone.
+ */
+@Service
+public class DroneStateMachine {
+
+    /**
+     * States a load passes, a loaded drone is written once at the end of the path
+     */
+    public static final List<DroneState> LOAD_PATH = List.of(LOADING, LOADED);
+
+    private static final Map<DroneState, Set<DroneState>> TRANSITIONS = new EnumMap<>(DroneState.class);
+
+    static {
+        TRANSITIONS.put(IDLE, EnumSet.of(LOADING));
+        TRANSITIONS.put(LOADING, EnumSet.of(LOADED, IDLE));
+        TRANSITIONS.put(LOADED, EnumSet.of(LOADING, DELIVERING));
+        TRANSITIONS.put(DELIVERING, EnumSet.of(DELIVERED));
+        TRANSITIONS.put(DELIVERED, EnumSet.of(RETURNING));
+        TRANSITIONS.put(RETURNING, EnumSet.of(IDLE));
+    }
+
+    private final DronesRepository dronesRepository;
+
+    public DroneStateMachine(DronesRepository dronesRepository) {
+        this.dronesRepository = dronesRepository;
+    }
+
+    public static boolean canTransition(@NonNull DroneState source, @NonNull DroneState target) {
+        return TRANSITIONS.getOrDefault(source, Set.of()).contains(target);
+    }
+
+    public static Set<DroneState> getSources(@NonNull DroneState target) {
+        Set<DroneState> sources = EnumSet.noneOf(DroneState.class);
+        TRANSITIONS.forEach((source, targets) -> {
+            if (targets.contains(target))
+                sources.add(source);
+        });
+        return sources;
+    }
+
+    /**
+     * @return states from which the drone may pass all the states of the path in order
+     */
+    public static Set<DroneState> getSources(@NonNull List<DroneState> path) {
+        for (int i = 1; i < path.size(); i++) {
+            if (!canTransition(path.get(i - 1), path.get(i)))
+                return Set.of();
+        }
+        return getSources(path.get(0));
+    }
+
+    /**
+     * Moves the drone to the target state if its current state allows it.
+     *
+     * @return count of updated rows: 1 if the transition was applied, 0 otherwise
+     */
+    @Transactional
+    public int transition(@NonNull String droneSerialNumber, @NonNull DroneState target) {
+        return dronesRepository.compareAndSetState(droneSerialNumber, getSources(target), target);
+    }
+
+    /**
+     * Moves the drone along {@link #LOAD_PATH} writing its payload weight and items count in the same
+     * conditional update, if its current state allows the path and its version is still the version of the entity.
+     *
+     * @return count of updated rows: 1 if the load was written, 0 otherwise
+     */
+    @Transactional
+    public int load(@NonNull DroneEntity drone) {
+        return dronesRepository.compareAndSetLoad(drone.getDroneSerialNumber(), drone.getVersion(),
+                getSources(LOAD_PATH), LOAD_PATH.get(LOAD_PATH.size() - 1),
+                drone.getPayloadWeight(), drone.getItemsCount());
+    }
+
+    /**
+     * Moves the drones along {@link #LOAD_PATH} as {@link #load} does, with a single batched statement
+     *
+     * @throws org.springframework.dao.OptimisticLockingFailureException if a drone was changed concurrently
+     */
+    @Transactional
+    public void loadAll(@NonNull Collection<DroneEntity> drones) {
+        dronesRepository.updateLoads(drones, getSources(LOAD_PATH), LOAD_PATH.get(LOAD_PATH.size() - 1));
+    }
+}
@@ -0,0 +1,129 @@
+package com.musala.gorskikh.services;
+
+import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.model.LoadingMedication;
+import com.musala.gorskikh.services.validators.ValidationResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Collects load requests for the same drone arriving within the commit window and passes them
+ * to {@link DronesDao#loadBatch(String, List)} as one batch, so a burst of small loads is checked
+ * and written in a single transaction. Every caller still gets the result of its own manifest.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "drones.load.group-commit.enabled", havingValue = "true")
+public class LoadGroupCommitQueue {
+
+    private final DronesDao dronesDao;
+    private final Duration commitWindow;
+    private final int maxBatchSize;
+
+    private final ScheduledExecutorService flusher;
+    private final Map<String, PendingBatch> pendingBatches = new ConcurrentHashMap<>();
+    private final DistributionSummary batchSizes;
+
+    public LoadGroupCommitQueue(DronesDao dronesDao, MeterRegistry meterRegistry,
+                                @Value("${drones.load.group-commit.window:5ms}") Duration commitWindow,
+                                @Value("${drones.load.group-commit.max-batch-size:32}") int maxBatchSize,
+                                @Value("${drones.load.group-commit.flush-threads:4}") int flushThreads) {
+        this.dronesDao = dronesDao;
+        this.commitWindow = commitWindow;
+        this.maxBatchSize = maxBatchSize;
+        this.flusher = Executors.newScheduledThreadPool(flushThreads);
+        this.batchSizes = DistributionSummary.builder("drones.load.group-commit.batch.size")
+                .description("Count of load requests written by one group commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Void> submit(@NonNull String droneSerialNumber,
+                                          @NonNull List<LoadingMedication> medications) {
+        PendingLoad load = new PendingLoad(medications, new CompletableFuture<>());
+        PendingBatch[] fullBatch = new PendingBatch[1];
+
+        pendingBatches.compute(droneSerialNumber, (serialNumber, batch) -> {
+            if (batch == null) {
+                PendingBatch newBatch = new PendingBatch();
+                newBatch.timer = flusher.schedule(() -> flushIfPending(serialNumber, newBatch),
+                        commitWindow.toNanos(), TimeUnit.NANOSECONDS);
+                batch = newBatch;
+            }
+
+            batch.loads.add(load);
+            if (batch.loads.size() < maxBatchSize)
+                return batch;
+
+            fullBatch[0] = batch;
+            return null;
+        });
+
+        if (fullBatch[0] != null) {
+            fullBatch[0].timer.cancel(false);
+            flusher.execute(() -> flush(droneSerialNumber, fullBatch[0]));
+        }
+
+        return load.result();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        pendingBatches.forEach((serialNumber, batch) -> flushIfPending(serialNumber, batch));
+        flusher.shutdown();
+        if (!flusher.awaitTermination(commitWindow.toMillis() + 5_000, MILLISECONDS))
+            log.warn("Group commit of drone loads didn't finish in time");
+    }
+
+    private void flushIfPending(String droneSerialNumber, PendingBatch batch) {
+        if (pendingBatches.remove(droneSerialNumber, batch))
+            flush(droneSerialNumber, batch);
+    }
+
+    private void flush(String droneSerialNumber, PendingBatch batch) {
+        List<PendingLoad> loads = batch.loads;
+        batchSizes.record(loads.size());
+
+        try {
+            List<ValidationResult> results = dronesDao.loadBatch(droneSerialNumber,
+                    loads.stream().map(PendingLoad::medications).toList());
+
+            for (int i = 0; i < loads.size(); i++) {
+                ValidationResult result = results.get(i);
+                if (result.isValid())
+                    loads.get(i).result().complete(null);
+                else
+                    loads.get(i).result().completeExceptionally(
+                            new HttpServerErrorException(BAD_REQUEST, result.getErrorMsg()));
+            }
+        } catch (Exception ex) {
+            log.error("Couldn't load the drone {} with a batch of {} requests", droneSerialNumber, loads.size(), ex);
+            loads.forEach(l -> l.result().completeExceptionally(ex));
+        }
+    }
+
+    private record PendingLoad(List<LoadingMedication> medications, CompletableFuture<Void> result) {
+    }
+
+    private static class PendingBatch {
+
+        private final List<PendingLoad> loads = new ArrayList<>();
+        private ScheduledFuture<?> timer;
+    }
+}
@@ -1,27 +1,143 @@
 package com.musala.gorskikh.services;
 
 import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.services.battery.BatteryHistory;
+import com.musala.gorskikh.services.battery.BatteryReading;
+import com.musala.gorskikh.services.partitions.FleetPartitionSet;
+import com.musala.gorskikh.services.partitions.FleetPartitions;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import static java.lang.String.format;
-import static java.lang.String.join;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
 import static java.util.concurrent.TimeUnit.MINUTES;
 
 @Slf4j
 @Service
-public record Scheduler(DronesDao dronesDao) {
+public class Scheduler {
+
+    /**
+     * FULL logs battery levels of all drones, DELTA logs only drones whose battery level
+     * crossed the threshold since the previous run.
+     */
+    public enum AuditMode {FULL, DELTA}
+
+    private final DronesDao dronesDao;
+    private final BatteryHistory batteryHistory;
+    private final FleetPartitions fleetPartitions;
+    private final AuditMode auditMode;
+    private final int chunkSize;
+    private final BigDecimal threshold;
+
+    /**
+     * Drones below the threshold at the previous run in DELTA mode
+     */
+    private final Set<String> belowThreshold = new HashSet<>();
+    private FleetPartitionSet belowThresholdPartitions;
+
+    public Scheduler(DronesDao dronesDao, BatteryHistory batteryHistory, FleetPartitions fleetPartitions,
+                     @Value("${drones.battery-audit.mode:FULL}") AuditMode auditMode,
+                     @Value("${drones.battery-audit.chunk-size:1000}") int chunkSize,
+                     @Value("${drones.battery-audit.threshold:25}") BigDecimal threshold) {
+        this.dronesDao = dronesDao;
+        this.batteryHistory = batteryHistory;
+        this.fleetPartitions = fleetPartitions;
+        this.auditMode = auditMode;
+        this.chunkSize = chunkSize;
+        this.threshold = threshold;
+    }
 
     @Scheduled(fixedDelay = 5, timeUnit = MINUTES)
     public void checkingBatteryLevelTask() {
-        String values = dronesDao.getBatteryLevels().entrySet().stream()
-                .map(e -> format("Serial number: '%s' - Battery level: %s", e.getKey(), e.getValue()))
-                .reduce((s, s2) -> join("\n", s, s2))
-                .orElse("[]");
-
-        log.info("""
-                Battery level of drones:
-                """ + values);
+        switch (auditMode) {
+            case FULL -> logBatteryLevels();
+            case DELTA -> logThresholdCrossings();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${drones.battery-history.flush-interval:PT1S}")
+    public void flushingBatteryHistoryTask() {
+        batteryHistory.flush();
+    }
+
+    /**
+     * Downsampling covers the whole fleet, so it's run by the owner of the first partition only
+     */
+    @Scheduled(fixedDelayString = "${drones.battery-history.downsample-interval:PT10M}")
+    public void downsamplingBatteryHistoryTask() {
+        if (fleetPartitions.getOwnedPartitions().partitions().contains(0))
+            batteryHistory.downsample(Instant.now());
+    }
+
+    /**
+     * Logs a report per chunk of drones of the partitions owned by this node,
+     * battery levels are recorded to the history
+     *
+     * @return count of logged drones
+     */
+    synchronized int logBatteryLevels() {
+        Instant sampledAt = Instant.now();
+        int[] count = {0};
+        dronesDao.scanBatteryLevels(chunkSize, fleetPartitions.getOwnedPartitions(), chunk -> {
+            batteryHistory.record(chunk, sampledAt);
+
+            StringBuilder report = new StringBuilder("Battery level of drones:");
+            chunk.forEach(reading -> appendReading(report, reading));
+
+            log.info(report.toString());
+            count[0] += chunk.size();
+        });
+
+        if (count[0] == 0)
+            log.info("Battery level of drones: []");
+        return count[0];
+    }
+
+    /**
+     * Only drones of the partitions owned by this node are audited, battery levels are recorded to the history.
+     * Crossings are tracked from scratch whenever the owned partitions change.
+     *
+     * @return count of drones which crossed the threshold
+     */
+    synchronized int logThresholdCrossings() {
+        Instant sampledAt = Instant.now();
+        FleetPartitionSet partitions = fleetPartitions.getOwnedPartitions();
+        if (!partitions.equals(belowThresholdPartitions)) {
+            belowThreshold.clear();
+            belowThresholdPartitions = partitions;
+        }
+
+        int[] count = {0};
+        dronesDao.scanBatteryLevels(chunkSize, partitions, chunk -> {
+            batteryHistory.record(chunk, sampledAt);
+
+            StringBuilder report = new StringBuilder("Battery level of drones crossed " + threshold + ":");
+            int crossed = 0;
+            for (BatteryReading reading : chunk) {
+                boolean below = reading.level().compareTo(threshold) < 0;
+                boolean changed = below
+                        ? belowThreshold.add(reading.droneSerialNumber())
+                        : belowThreshold.remove(reading.droneSerialNumber());
+                if (changed) {
+                    appendReading(report, reading).append(below ? " - dropped below" : " - rose above");
+                    crossed++;
+                }
+            }
+
+            if (crossed > 0)
+                log.info(report.toString());
+            count[0] += crossed;
+        });
+        return count[0];
+    }
+
+    private static StringBuilder appendReading(StringBuilder report, BatteryReading reading) {
+        return report.append("\nSerial number: '").append(reading.droneSerialNumber())
+                .append("' - Battery level: ").append(reading.level());
     }
 }
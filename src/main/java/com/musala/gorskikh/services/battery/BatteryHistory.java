@@ -0,0 +1,195 @@
+package com.musala.gorskikh.services.battery;
+
+import com.musala.gorskikh.db.repositories.DronesRepository;
+import com.musala.gorskikh.model.BatteryHistoryPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static com.musala.gorskikh.util.ErrorsUtil.droneNotExistError;
+import static com.musala.gorskikh.util.ErrorsUtil.illegalTimeRangeError;
+import static java.math.RoundingMode.HALF_UP;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Time series of battery levels. Samples are buffered in memory and written in batches,
+ * samples older than the raw retention are downsampled into min/avg/max buckets,
+ * buckets older than the bucket retention are deleted.
+ * <p>
+ * Timestamps are stored in epoch seconds and levels in tenths of percent.
+ */
+@Slf4j
+@Service
+public class BatteryHistory {
+
+    private static final String INSERT_SAMPLE = """
+            MERGE INTO battery_samples (drone_serial_number, sampled_at, level)
+            KEY (drone_serial_number, sampled_at)
+            VALUES (?, ?, ?)""";
+
+    private static final String DOWNSAMPLE = """
+            MERGE INTO battery_buckets t
+            USING (SELECT drone_serial_number, bucket_start,
+                          MIN(level) AS min_level, MAX(level) AS max_level,
+                          SUM(level) AS level_sum, COUNT(*) AS samples
+                   FROM (SELECT drone_serial_number, sampled_at - MOD(sampled_at, ?) AS bucket_start, level
+                         FROM battery_samples
+                         WHERE sampled_at < ? AND id <= ?)
+                   GROUP BY drone_serial_number, bucket_start) AS s
+            ON t.drone_serial_number = s.drone_serial_number AND t.bucket_start = s.bucket_start
+            WHEN MATCHED THEN UPDATE SET
+                min_level = LEAST(t.min_level, s.min_level),
+                max_level = GREATEST(t.max_level, s.max_level),
+                level_sum = t.level_sum + s.level_sum,
+                samples = t.samples + s.samples
+            WHEN NOT MATCHED THEN
+                INSERT (drone_serial_number, bucket_start, min_level, max_level, level_sum, samples)
+                VALUES (s.drone_serial_number, s.bucket_start, s.min_level, s.max_level, s.level_sum, s.samples)""";
+
+    private static final String SELECT_LAST_SAMPLE_ID = "SELECT MAX(id) FROM battery_samples WHERE sampled_at < ?";
+
+    private static final String DELETE_SAMPLES = "DELETE FROM battery_samples WHERE sampled_at < ? AND id <= ?";
+
+    private static final String DELETE_BUCKETS = "DELETE FROM battery_buckets WHERE bucket_start < ?";
+
+    private static final String SELECT_HISTORY = """
+            SELECT bucket_start AS point_time, min_level, max_level, level_sum, samples
+            FROM battery_buckets
+            WHERE drone_serial_number = ? AND bucket_start > ? AND bucket_start < ?
+            UNION ALL
+            SELECT sampled_at, level, level, level, 1
+            FROM battery_samples
+            WHERE drone_serial_number = ? AND sampled_at >= ? AND sampled_at < ?
+            ORDER BY point_time""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DronesRepository dronesRepository;
+    private final BlockingQueue<BatterySample> buffer;
+    private final Counter droppedSamples;
+    private final int batchSize;
+    private final Duration rawRetention;
+    private final Duration bucketSize;
+    private final Duration bucketRetention;
+
+    public BatteryHistory(JdbcTemplate jdbcTemplate, DronesRepository dronesRepository, MeterRegistry meterRegistry,
+                          @Value("${drones.battery-history.buffer-capacity:100000}") int bufferCapacity,
+                          @Value("${drones.jdbc.batch-size:50}") int batchSize,
+                          @Value("${drones.battery-history.raw-retention:PT24H}") Duration rawRetention,
+                          @Value("${drones.battery-history.bucket-size:PT1H}") Duration bucketSize,
+                          @Value("${drones.battery-history.bucket-retention:P90D}") Duration bucketRetention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dronesRepository = dronesRepository;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.rawRetention = rawRetention;
+        this.bucketSize = bucketSize;
+        this.bucketRetention = bucketRetention;
+        this.droppedSamples = meterRegistry.counter("drones.battery-history.dropped");
+        meterRegistry.gaugeCollectionSize("drones.battery-history.buffer.size", List.of(), buffer);
+    }
+
+    /**
+     * Buffers the samples until the next {@link #flush()}. Samples not fitting into the full buffer are dropped.
+     */
+    public void record(@NonNull Collection<BatterySample> samples) {
+        for (BatterySample sample : samples) {
+            if (!buffer.offer(sample))
+                droppedSamples.increment();
+        }
+    }
+
+    public void record(@NonNull Collection<BatteryReading> readings, @NonNull Instant sampledAt) {
+        record(readings.stream()
+                .map(reading -> new BatterySample(reading.droneSerialNumber(), sampledAt, reading.level()))
+                .toList());
+    }
+
+    /**
+     * Writes the buffered samples in batches
+     *
+     * @return count of written samples
+     */
+    public int flush() {
+        List<BatterySample> samples = new ArrayList<>();
+        buffer.drainTo(samples);
+        if (samples.isEmpty())
+            return 0;
+
+        jdbcTemplate.batchUpdate(INSERT_SAMPLE, samples, batchSize, (statement, sample) -> {
+            statement.setString(1, sample.droneSerialNumber());
+            statement.setLong(2, sample.sampledAt().getEpochSecond());
+            statement.setInt(3, toTenths(sample.level()));
+        });
+        log.debug("{} battery samples were written", samples.size());
+        return samples.size();
+    }
+
+    /**
+     * Moves samples older than the raw retention into buckets and deletes expired buckets.
+     * Only whole buckets are downsampled, samples arriving later for a downsampled bucket are merged into it.
+     * Both the aggregation and the deletion are bounded by the last sample id seen before them, so a sample
+     * written in between isn't deleted unaggregated, it's left for the next downsampling.
+     */
+    @Transactional
+    public void downsample(@NonNull Instant now) {
+        long bucketSeconds = bucketSize.toSeconds();
+        long rawCutoff = now.minus(rawRetention).getEpochSecond();
+        rawCutoff -= Math.floorMod(rawCutoff, bucketSeconds);
+
+        Long lastSampleId = jdbcTemplate.queryForObject(SELECT_LAST_SAMPLE_ID, Long.class, rawCutoff);
+        int buckets = 0;
+        int samples = 0;
+        if (lastSampleId != null) {
+            buckets = jdbcTemplate.update(DOWNSAMPLE, bucketSeconds, rawCutoff, lastSampleId);
+            samples = jdbcTemplate.update(DELETE_SAMPLES, rawCutoff, lastSampleId);
+        }
+        int expiredBuckets = jdbcTemplate.update(DELETE_BUCKETS, now.minus(bucketRetention).getEpochSecond());
+        log.debug("{} battery samples were downsampled into {} buckets, {} expired buckets were deleted",
+                samples, buckets, expiredBuckets);
+    }
+
+    @Transactional(readOnly = true)
+    public List<BatteryHistoryPoint> getHistory(@NonNull String droneSerialNumber,
+                                                @NonNull Instant from, @NonNull Instant to) {
+        if (!from.isBefore(to))
+            throw new HttpServerErrorException(BAD_REQUEST, illegalTimeRangeError(from, to));
+        if (!dronesRepository.existsById(droneSerialNumber))
+            throw new HttpServerErrorException(BAD_REQUEST, droneNotExistError(droneSerialNumber));
+
+        long fromSecond = from.getEpochSecond();
+        long toSecond = to.getEpochSecond() + (to.getNano() > 0 ? 1 : 0);
+        return jdbcTemplate.query(SELECT_HISTORY,
+                (rs, rowNum) -> new BatteryHistoryPoint()
+                        .timestamp(Instant.ofEpochSecond(rs.getLong("point_time")))
+                        .minLevel(fromTenths(rs.getLong("min_level")))
+                        .maxLevel(fromTenths(rs.getLong("max_level")))
+                        .avgLevel(fromTenths(rs.getLong("level_sum"))
+                                .divide(BigDecimal.valueOf(rs.getInt("samples")), 1, HALF_UP))
+                        .samples(rs.getInt("samples")),
+                droneSerialNumber, fromSecond - bucketSize.toSeconds(), toSecond,
+                droneSerialNumber, fromSecond, toSecond);
+    }
+
+    private static int toTenths(BigDecimal level) {
+        return level.movePointRight(1).setScale(0, HALF_UP).intValueExact();
+    }
+
+    private static BigDecimal fromTenths(long level) {
+        return BigDecimal.valueOf(level, 1);
+    }
+}
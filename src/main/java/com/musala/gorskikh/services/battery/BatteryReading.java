@@ -0,0 +1,9 @@
+package com.musala.gorskikh.services.battery;
+
+import java.math.BigDecimal;
+
+/**
+ * Battery level of a drone read without hydrating the drone entity.
+ */
+public record BatteryReading(String droneSerialNumber, BigDecimal level) {
+}
@@ -0,0 +1,10 @@
+package com.musala.gorskikh.services.battery;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Battery level of a drone observed at a point of time.
+ */
+public record BatterySample(String droneSerialNumber, Instant sampledAt, BigDecimal level) {
+}
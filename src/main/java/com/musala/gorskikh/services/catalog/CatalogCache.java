@@ -0,0 +1,107 @@
+package com.musala.gorskikh.services.catalog;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.musala.gorskikh.db.entities.DroneModelEntity;
+import com.musala.gorskikh.db.repositories.DroneModelRepository;
+import com.musala.gorskikh.db.repositories.MedicationsRepository;
+import com.musala.gorskikh.model.DroneModelEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Bounded read-through cache of the medication catalog and drone models.
+ * Hit, miss and eviction counters are published as {@code cache.*} metrics.
+ */
+@Service
+public class CatalogCache {
+
+    private final MedicationsRepository medicationsRepository;
+    private final DroneModelRepository droneModelRepository;
+
+    private final Cache<String, CatalogMedication> medications;
+    private final Cache<DroneModelEnum, DroneModelEntity> droneModels;
+
+    public CatalogCache(MedicationsRepository medicationsRepository, DroneModelRepository droneModelRepository,
+                        MeterRegistry meterRegistry,
+                        @Value("${drones.cache.catalog.max-medications:10000}") long maxMedications) {
+        this.medicationsRepository = medicationsRepository;
+        this.droneModelRepository = droneModelRepository;
+
+        this.medications = Caffeine.newBuilder()
+                .maximumSize(maxMedications)
+                .recordStats()
+                .build();
+        this.droneModels = Caffeine.newBuilder()
+                .maximumSize(DroneModelEnum.values().length)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, medications, "catalog.medications");
+        CaffeineCacheMetrics.monitor(meterRegistry, droneModels, "catalog.drone-models");
+    }
+
+    /**
+     * @return catalog data of known medications by their codes, unknown codes are absent in the result
+     */
+    public Map<String, CatalogMedication> getMedications(@NonNull Collection<String> codes) {
+        return medications.getAll(codes, this::loadMedications);
+    }
+
+    public Optional<DroneModelEntity> getDroneModel(@NonNull DroneModelEnum model) {
+        return Optional.ofNullable(droneModels.get(model, m -> droneModelRepository.findById(m).orElse(null)));
+    }
+
+    /**
+     * Drops the given medications from the cache once the current transaction is committed,
+     * so a concurrent reader can't put the old version back.
+     */
+    public void invalidateMedications(@NonNull Collection<String> codes) {
+        Set<String> invalidated = Set.copyOf(codes);
+        afterCommit(() -> medications.invalidateAll(invalidated));
+    }
+
+    public void invalidateDroneModel(@NonNull DroneModelEnum model) {
+        afterCommit(() -> droneModels.invalidate(model));
+    }
+
+    public void invalidateAll() {
+        afterCommit(() -> {
+            medications.invalidateAll();
+            droneModels.invalidateAll();
+        });
+    }
+
+    private Map<String, CatalogMedication> loadMedications(Set<? extends String> codes) {
+        return medicationsRepository.findCatalogByCodeIn(List.copyOf(codes)).stream()
+                .collect(toMap(CatalogMedication::code, identity()));
+    }
+
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.musala.gorskikh.services.catalog;
+
+import com.musala.gorskikh.db.entities.DroneModelEntity;
+import com.musala.gorskikh.db.entities.MedicationEntity;
+import com.musala.gorskikh.db.entities.MedicationImageEntity;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * JPA listener of catalog entities invalidating {@link CatalogCache} and {@link MedicationJsonCache}
+ * when their rows change.
+ */
+@Component
+public class CatalogCacheInvalidator {
+
+    private final CatalogCache catalogCache;
+    private final MedicationJsonCache medicationJsonCache;
+
+    public CatalogCacheInvalidator(@Lazy CatalogCache catalogCache, @Lazy MedicationJsonCache medicationJsonCache) {
+        this.catalogCache = catalogCache;
+        this.medicationJsonCache = medicationJsonCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof MedicationEntity medication) {
+            catalogCache.invalidateMedications(List.of(medication.getCode()));
+            medicationJsonCache.invalidate(List.of(medication.getCode()));
+        } else if (entity instanceof MedicationImageEntity image)
+            medicationJsonCache.invalidate(List.of(image.getCode()));
+        else if (entity instanceof DroneModelEntity droneModel)
+            catalogCache.invalidateDroneModel(droneModel.getModel());
+    }
+}
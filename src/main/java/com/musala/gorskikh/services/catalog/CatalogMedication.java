@@ -0,0 +1,25 @@
+package com.musala.gorskikh.services.catalog;
+
+import com.musala.gorskikh.db.entities.MedicationEntity;
+import com.musala.gorskikh.services.weights.Milligrams;
+import lombok.NonNull;
+
+import java.math.BigDecimal;
+
+/**
+ * Catalog data of a medication needed for loading, without its image.
+ */
+public record CatalogMedication(String code, String name, long weightMg) {
+
+    /**
+     * Used by the query projecting the catalog, see
+     * {@link com.musala.gorskikh.db.repositories.MedicationsRepository#findCatalogByCodeIn}
+     */
+    public CatalogMedication(String code, String name, BigDecimal weightGr) {
+        this(code, name, Milligrams.ofWeight(weightGr));
+    }
+
+    public static CatalogMedication of(@NonNull MedicationEntity medication) {
+        return new CatalogMedication(medication.getCode(), medication.getName(), medication.getWeightGr());
+    }
+}
@@ -0,0 +1,45 @@
+package com.musala.gorskikh.services.catalog;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.musala.gorskikh.db.entities.MedicationEntity;
+import com.musala.gorskikh.model.MedicationDto;
+import lombok.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Medication which is written to a response as its already serialized JSON, image included.
+ * Only the catalog fields are set on the DTO itself.
+ */
+@JsonSerialize(using = EncodedMedicationDto.Serializer.class)
+public class EncodedMedicationDto extends MedicationDto {
+
+    private final Utf8Json json;
+
+    EncodedMedicationDto(@NonNull MedicationEntity medication, @NonNull Utf8Json json) {
+        this.json = json;
+        code(medication.getCode());
+        name(medication.getName());
+        weightGr(medication.getWeightGr());
+    }
+
+    public String getJson() {
+        return json.getValue();
+    }
+
+    static class Serializer extends StdSerializer<EncodedMedicationDto> {
+
+        Serializer() {
+            super(EncodedMedicationDto.class);
+        }
+
+        @Override
+        public void serialize(EncodedMedicationDto value, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeRawValue(value.json);
+        }
+    }
+}
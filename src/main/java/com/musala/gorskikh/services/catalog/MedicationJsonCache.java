@@ -0,0 +1,91 @@
+package com.musala.gorskikh.services.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.musala.gorskikh.db.entities.MedicationEntity;
+import com.musala.gorskikh.model.MedicationDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static com.musala.gorskikh.services.catalog.CatalogCache.afterCommit;
+
+/**
+ * Cache of medications serialized to JSON with their Base64 images, held as UTF-8 bytes only
+ * and bounded by their size.
+ * A fragment is keyed by the medication code and is served only while its content version,
+ * i.e. the catalog fields and the image ETag, matches the current one.
+ */
+@Service
+public class MedicationJsonCache {
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Fragment> fragments;
+
+    public MedicationJsonCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                               @Value("${drones.cache.medication-json.max-size:32MB}") DataSize maxSize) {
+        this.objectMapper = objectMapper;
+        this.fragments = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String code, Fragment fragment) -> fragment.json().byteLength())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, fragments, "catalog.medication-json");
+    }
+
+    public boolean isCached(@NonNull MedicationEntity medication, String imageEtag) {
+        Fragment fragment = fragments.getIfPresent(medication.getCode());
+        return fragment != null && fragment.isVersionOf(medication, imageEtag);
+    }
+
+    /**
+     * @param dtoSupplier creates the medication DTO with its image when there is no fragment of the current version
+     */
+    public EncodedMedicationDto getEncoded(@NonNull MedicationEntity medication, String imageEtag,
+                                           @NonNull Supplier<MedicationDto> dtoSupplier) {
+        Fragment fragment = fragments.getIfPresent(medication.getCode());
+        if (fragment == null || !fragment.isVersionOf(medication, imageEtag)) {
+            fragment = encode(medication, imageEtag, dtoSupplier.get());
+            fragments.put(medication.getCode(), fragment);
+        }
+
+        return new EncodedMedicationDto(medication, fragment.json());
+    }
+
+    public void invalidate(@NonNull Collection<String> codes) {
+        Set<String> invalidated = Set.copyOf(codes);
+        afterCommit(() -> fragments.invalidateAll(invalidated));
+    }
+
+    public void invalidateAll() {
+        afterCommit(fragments::invalidateAll);
+    }
+
+    @SneakyThrows(JsonProcessingException.class)
+    private Fragment encode(MedicationEntity medication, String imageEtag, MedicationDto dto) {
+        Utf8Json json = new Utf8Json(objectMapper.writeValueAsBytes(dto));
+        return new Fragment(medication.getName(), medication.getWeightGr(), imageEtag, json);
+    }
+
+    private record Fragment(String name, BigDecimal weightGr, String imageEtag, Utf8Json json) {
+
+        boolean isVersionOf(MedicationEntity medication, String imageEtag) {
+            return name.equals(medication.getName())
+                    && weightGr.compareTo(medication.getWeightGr()) == 0
+                    && Objects.equals(this.imageEtag, imageEtag);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.musala.gorskikh.services.catalog;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serialized JSON kept only as its UTF-8 bytes, which a UTF-8 generator copies to its output as is.
+ * Unlike {@link SerializedString} no {@link String} is held, the value is decoded only for character
+ * based generators. It's written as a raw value, the quoted forms are built on demand by {@link SerializedString}.
+ */
+final class Utf8Json implements SerializableString {
+
+    private final byte[] bytes;
+
+    /**
+     * @param json UTF-8 bytes of the JSON, owned by the instance from now on
+     */
+    Utf8Json(@NonNull byte[] json) {
+        this.bytes = json;
+    }
+
+    int byteLength() {
+        return bytes.length;
+    }
+
+    @Override
+    public String getValue() {
+        return new String(bytes, UTF_8);
+    }
+
+    @Override
+    public int charLength() {
+        return getValue().length();
+    }
+
+    @Override
+    public byte[] asUnquotedUTF8() {
+        return bytes;
+    }
+
+    @Override
+    public int appendUnquotedUTF8(byte[] buffer, int offset) {
+        if (offset + bytes.length > buffer.length)
+            return -1;
+
+        System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+        return bytes.length;
+    }
+
+    @Override
+    public int appendUnquoted(char[] buffer, int offset) {
+        return -1;
+    }
+
+    @Override
+    public int writeUnquotedUTF8(OutputStream out) throws IOException {
+        out.write(bytes);
+        return bytes.length;
+    }
+
+    @Override
+    public int putUnquotedUTF8(ByteBuffer buffer) {
+        if (bytes.length > buffer.remaining())
+            return -1;
+
+        buffer.put(bytes);
+        return bytes.length;
+    }
+
+    @Override
+    public char[] asQuotedChars() {
+        return quoted().asQuotedChars();
+    }
+
+    @Override
+    public byte[] asQuotedUTF8() {
+        return quoted().asQuotedUTF8();
+    }
+
+    @Override
+    public int appendQuotedUTF8(byte[] buffer, int offset) {
+        return quoted().appendQuotedUTF8(buffer, offset);
+    }
+
+    @Override
+    public int appendQuoted(char[] buffer, int offset) {
+        return quoted().appendQuoted(buffer, offset);
+    }
+
+    @Override
+    public int writeQuotedUTF8(OutputStream out) throws IOException {
+        return quoted().writeQuotedUTF8(out);
+    }
+
+    @Override
+    public int putQuotedUTF8(ByteBuffer buffer) {
+        return quoted().putQuotedUTF8(buffer);
+    }
+
+    /**
+     * The JSON as a string value, which is only needed if it's written as a field name or a string
+     */
+    private SerializedString quoted() {
+        return new SerializedString(getValue());
+    }
+}
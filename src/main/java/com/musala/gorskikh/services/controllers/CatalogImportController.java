@@ -0,0 +1,39 @@
+package com.musala.gorskikh.services.controllers;
+
+import com.musala.gorskikh.services.imports.CatalogImportSummary;
+import com.musala.gorskikh.services.imports.CatalogImporter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming import kept out of the OpenAPI specification, as the generator binds a request body as a whole
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Medications")
+public class CatalogImportController {
+
+    static final String ZIP_VALUE = "application/zip";
+
+    private final CatalogImporter catalogImporter;
+
+    @Operation(summary = "Importing the medication catalog",
+            description = "ZIP archive starting with 'manifest.ndjson', holding a medication with code, name and " +
+                    "weightGr per line, followed by JPEG images named '<code>.jpg'. Medications are inserted or " +
+                    "updated by code and images are streamed into the database without buffering the archive.")
+    @PostMapping(value = "/medications/import", consumes = ZIP_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public CatalogImportSummary importCatalog(InputStream archive) throws IOException {
+        log.debug("Received a request for importing the medication catalog");
+
+        return catalogImporter.importCatalog(archive);
+    }
+}
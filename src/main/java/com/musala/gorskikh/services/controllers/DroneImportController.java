@@ -0,0 +1,49 @@
+package com.musala.gorskikh.services.controllers;
+
+import com.musala.gorskikh.services.imports.DroneImportFormat;
+import com.musala.gorskikh.services.imports.DroneImportSummary;
+import com.musala.gorskikh.services.imports.DroneImporter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+
+/**
+ * Streaming import kept out of the OpenAPI specification, as the generator binds a request body as a whole
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Drones")
+public class DroneImportController {
+
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    static final String CSV_VALUE = "text/csv";
+
+    private final DroneImporter droneImporter;
+
+    @Operation(summary = "Registering drones from a stream",
+            description = "NDJSON body holds a drone registration request per line, CSV body holds " +
+                    "'droneSerialNumber,model' per line with an optional header. The body is read incrementally, " +
+                    "the response reports the count of registered drones and errors of rejected rows.")
+    @PostMapping(value = "/drones/import", consumes = {NDJSON_VALUE, CSV_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public DroneImportSummary importDrones(@RequestHeader(CONTENT_TYPE) MediaType contentType, InputStream body)
+            throws IOException {
+        log.debug("Received a request for importing drones as {}", contentType);
+
+        DroneImportFormat format = contentType.isCompatibleWith(MediaType.valueOf(CSV_VALUE))
+                ? DroneImportFormat.CSV
+                : DroneImportFormat.NDJSON;
+        return droneImporter.importDrones(body, format);
+    }
+}
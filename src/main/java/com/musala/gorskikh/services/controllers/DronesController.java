@@ -3,29 +3,63 @@ package com.musala.gorskikh.services.controllers;
 import com.musala.gorskikh.api.DronesApi;
 import com.musala.gorskikh.db.dao.DronesDao;
 import com.musala.gorskikh.model.*;
+import com.musala.gorskikh.services.LoadGroupCommitQueue;
+import com.musala.gorskikh.services.battery.BatteryHistory;
+import com.musala.gorskikh.services.battery.BatteryReading;
+import com.musala.gorskikh.services.fleet.AvailabilityFilter;
+import com.musala.gorskikh.services.fleet.KeysetPage;
+import com.musala.gorskikh.services.metrics.RejectionCounter;
+import com.musala.gorskikh.services.telemetry.TelemetryBuffer;
+import com.musala.gorskikh.services.validators.ValidationResult;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.client.HttpServerErrorException;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 
 @Slf4j
 @RestController
 @RequiredArgsConstructor
 public class DronesController implements DronesApi {
 
+    static final String NEXT_CURSOR_HEADER = "Next-Cursor";
+
     private final DronesDao dao;
+    private final BatteryHistory batteryHistory;
+    private final TelemetryBuffer telemetryBuffer;
+    private final ObjectProvider<LoadGroupCommitQueue> groupCommitQueue;
+    private final RejectionCounter rejectionCounter;
 
     @Override
-    public ResponseEntity<List<DroneDto>> getAvailableDrones() {
-        log.debug("Received a request for getting all available drones");
-
-        return ResponseEntity.ok(dao.getAvailableDrones());
+    public ResponseEntity<List<DroneDto>> getAvailableDrones(BigDecimal minBatteryLevel, DroneModelEnum model,
+                                                             BigDecimal minFreeCapacityGr, String cursor,
+                                                             Integer limit) {
+        log.debug("Received a request for getting available drones. Min battery level: {}, model: {}, " +
+                        "min free capacity: {}, cursor: {}, limit: {}",
+                minBatteryLevel, model, minFreeCapacityGr, cursor, limit);
+
+        AvailabilityFilter filter = new AvailabilityFilter(minBatteryLevel, model, minFreeCapacityGr);
+        if (limit == null)
+            return ResponseEntity.ok(dao.getAvailableDrones(filter));
+
+        KeysetPage<DroneDto> page = dao.getAvailableDrones(filter, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null)
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        return response.body(page.items());
     }
 
     @Override
@@ -36,6 +70,48 @@ public class DronesController implements DronesApi {
         return ResponseEntity.ok(batteryLevel);
     }
 
+    @Override
+    public ResponseEntity<BatteryLevelsPage> getBatteryLevelsPage(@NonNull Integer limit, String cursor) {
+        log.debug("Received a request for getting a page of battery levels, cursor: {}, limit: {}", cursor, limit);
+
+        KeysetPage<BatteryReading> page = dao.getBatteryLevels(cursor, limit);
+        List<DroneBatteryLevel> levels = page.items().stream()
+                .map(reading -> new DroneBatteryLevel(reading.droneSerialNumber(), reading.level()))
+                .toList();
+        return ResponseEntity.ok(new BatteryLevelsPage(levels, page.nextCursor()));
+    }
+
+    @Override
+    public ResponseEntity<BatteryLevels> getBatteryLevelsOf(@NonNull BatteryLevelsRequest batteryLevelsRequest) {
+        log.debug("Received a request for getting battery levels of {} drones",
+                batteryLevelsRequest.getDroneSerialNumbers().size());
+
+        return ResponseEntity.ok(dao.getBatteryLevels(batteryLevelsRequest.getDroneSerialNumbers()));
+    }
+
+    @Override
+    public ResponseEntity<List<BatteryHistoryPoint>> getBatteryHistory(@NonNull String droneSerialNumber,
+                                                                       @NonNull Instant from, @NonNull Instant to) {
+        log.debug("Received a request for getting battery history of a specific drone: {} from {} to {}",
+                droneSerialNumber, from, to);
+
+        return ResponseEntity.ok(batteryHistory.getHistory(droneSerialNumber, from, to));
+    }
+
+    @Override
+    public ResponseEntity<Void> ingestTelemetry(@NonNull TelemetryBatch telemetryBatch) {
+        log.debug("Received a request for ingesting {} telemetry readings", telemetryBatch.getReadings().size());
+
+        if (!telemetryBuffer.offer(telemetryBatch.getReadings())) {
+            log.warn("Telemetry buffer is full, {} readings were rejected", telemetryBatch.getReadings().size());
+            return ResponseEntity.status(TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(telemetryBuffer.getRetryAfterSeconds()))
+                    .build();
+        }
+
+        return ResponseEntity.accepted().build();
+    }
+
     @Override
     public ResponseEntity<Void> loadDrone(@NonNull LoadDroneRequest loadRequest) {
         List<LoadingMedication> medications = loadRequest.getMedications();
@@ -47,13 +123,37 @@ public class DronesController implements DronesApi {
 
         log.info("Received a request for loading a drone {} with medications: {}", droneSerialNumber, medicationsStr);
 
-        dao.load(droneSerialNumber, medications);
+        LoadGroupCommitQueue queue = groupCommitQueue.getIfAvailable();
+        if (queue != null)
+            awaitGroupCommit(queue.submit(droneSerialNumber, medications));
+        else
+            dao.load(droneSerialNumber, medications);
 
         log.info("The drone {} was loaded with medications {}", droneSerialNumber, medicationsStr);
 
         return ResponseEntity.ok().build();
     }
 
+    @Override
+    public ResponseEntity<BulkLoadResponse> loadDrones(@NonNull BulkLoadRequest bulkLoadRequest) {
+        List<LoadDroneRequest> loads = bulkLoadRequest.getLoads();
+        BulkLoadMode mode = bulkLoadRequest.getMode() != null ? bulkLoadRequest.getMode() : BulkLoadMode.BEST_EFFORT;
+        log.info("Received a request for loading {} drones, mode: {}", loads.size(), mode);
+
+        List<ValidationResult> results = dao.loadAll(loads, mode);
+        rejectionCounter.count(results);
+        List<BulkLoadResult> loadResults = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            ValidationResult result = results.get(i);
+            loadResults.add(new BulkLoadResult(loads.get(i).getDroneSerialNumber(), result.isValid(),
+                    result.getErrorMsg()));
+        }
+
+        log.info("{} of {} loads were written", loadResults.stream().filter(BulkLoadResult::getLoaded).count(),
+                loads.size());
+        return ResponseEntity.ok(new BulkLoadResponse(loadResults));
+    }
+
     @Override
     public ResponseEntity<Void> registerDrone(@NonNull CreateDroneRequest createDroneRequest) {
         log.info("Received a request for register a drone: {}", createDroneRequest);
@@ -65,12 +165,24 @@ public class DronesController implements DronesApi {
     }
 
     @Override
-    public ResponseEntity<List<MedicationDto>> getMedicationsByDrone(@NonNull String droneSerialNumber) {
-        log.debug("Received a request for getting loaded medications for the drone with serial number: {}",
-                droneSerialNumber);
+    public ResponseEntity<List<MedicationDto>> getMedicationsByDrone(@NonNull String droneSerialNumber,
+                                                                     ImageMode imageMode) {
+        log.debug("Received a request for getting loaded medications for the drone with serial number: {}, " +
+                "image mode: {}", droneSerialNumber, imageMode);
 
-        List<MedicationDto> medications = dao.getMedications(droneSerialNumber);
+        List<MedicationDto> medications = dao.getMedications(droneSerialNumber,
+                imageMode != null ? imageMode : ImageMode.INLINE);
 
         return ResponseEntity.ok(medications);
     }
+
+    private static void awaitGroupCommit(CompletableFuture<Void> result) {
+        try {
+            result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw ex;
+        }
+    }
 }
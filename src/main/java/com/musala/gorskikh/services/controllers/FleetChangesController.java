@@ -0,0 +1,42 @@
+package com.musala.gorskikh.services.controllers;
+
+import com.musala.gorskikh.model.DroneState;
+import com.musala.gorskikh.services.feed.FleetChangeFeed;
+import com.musala.gorskikh.services.feed.FleetChangeFilter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+
+/**
+ * Streaming endpoint kept out of the OpenAPI specification, as the generator has no type for an event stream
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Drones")
+public class FleetChangesController {
+
+    private final FleetChangeFeed changeFeed;
+
+    @Operation(summary = "Streaming committed changes of drones",
+            description = "Server-Sent Events named 'drone' carry the state of a changed drone. An event named " +
+                    "'resync' means that events were dropped, the client should reload drones and continue.")
+    @GetMapping(value = "/drones/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) Set<String> droneSerialNumber,
+                                    @RequestParam(required = false) Set<DroneState> state,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        log.debug("Received a request for streaming changes of drones: {}, states: {}, after event {}",
+                droneSerialNumber, state, lastEventId);
+
+        return changeFeed.subscribe(new FleetChangeFilter(droneSerialNumber, state), lastEventId);
+    }
+}
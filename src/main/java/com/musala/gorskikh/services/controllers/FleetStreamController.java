@@ -0,0 +1,113 @@
+package com.musala.gorskikh.services.controllers;
+
+import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.model.DroneBatteryLevel;
+import com.musala.gorskikh.model.DroneDto;
+import com.musala.gorskikh.model.DroneModelEnum;
+import com.musala.gorskikh.services.fleet.AvailabilityFilter;
+import com.musala.gorskikh.util.KeysetCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+
+import static com.musala.gorskikh.util.ErrorsUtil.streamLimitError;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * NDJSON variants of fleet-wide reads, chosen by {@code Accept: application/x-ndjson}. Kept out of the OpenAPI
+ * specification, as the generator has no type for a stream. Rows are written to the response as they are read,
+ * so neither time to the first byte nor memory use depends on the size of the fleet.
+ */
+@Slf4j
+@RestController
+@Tag(name = "Drones")
+public class FleetStreamController {
+
+    static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final DronesDao dao;
+    private final ObjectWriter writer;
+
+    public FleetStreamController(DronesDao dao, ObjectMapper objectMapper) {
+        this.dao = dao;
+        this.writer = objectMapper.writer();
+    }
+
+    /**
+     * The stream starts after the cursor of a page of the JSON variant. It isn't paged itself, as the cursor
+     * of the next page couldn't be returned once the stream is written, so a limit is rejected.
+     */
+    @Operation(summary = "Streaming available drones",
+            description = "A drone per line ordered by serial number, starting after the cursor if it's given")
+    @GetMapping(value = "/drones", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAvailableDrones(
+            @RequestParam(required = false) BigDecimal minBatteryLevel,
+            @RequestParam(required = false) DroneModelEnum model,
+            @RequestParam(required = false) BigDecimal minFreeCapacityGr,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        log.debug("Received a request for streaming available drones. Min battery level: {}, model: {}, " +
+                "min free capacity: {}, cursor: {}", minBatteryLevel, model, minFreeCapacityGr, cursor);
+
+        if (limit != null)
+            throw new HttpServerErrorException(BAD_REQUEST, streamLimitError());
+        // decoded before the response is committed, so a wrong cursor is still rejected with 400
+        String afterSerialNumber = KeysetCursor.decode(cursor);
+
+        AvailabilityFilter filter = new AvailabilityFilter(minBatteryLevel, model, minFreeCapacityGr);
+        return ndjson(output -> this.<DroneDto>writeLines(output,
+                lines -> dao.forEachAvailableDrone(filter, afterSerialNumber, lines)));
+    }
+
+    @Operation(summary = "Streaming battery levels of all drones",
+            description = "A battery level per line ordered by serial number")
+    @GetMapping(value = "/drones/battery/levels", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBatteryLevels() {
+        log.debug("Received a request for streaming battery levels of all drones");
+
+        return ndjson(output -> this.<DroneBatteryLevel>writeLines(output,
+                lines -> dao.forEachBatteryLevel(reading ->
+                        lines.accept(new DroneBatteryLevel(reading.droneSerialNumber(), reading.level())))));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.valueOf(NDJSON_VALUE))
+                .body(body);
+    }
+
+    private <T> void writeLines(OutputStream output, Consumer<Consumer<T>> source) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(output, BUFFER_SIZE);
+        try {
+            source.accept(value -> {
+                try {
+                    buffered.write(writer.writeValueAsBytes(value));
+                    buffered.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        buffered.flush();
+    }
+}
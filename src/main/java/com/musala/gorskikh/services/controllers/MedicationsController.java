@@ -0,0 +1,60 @@
+package com.musala.gorskikh.services.controllers;
+
+import com.musala.gorskikh.api.MedicationsApi;
+import com.musala.gorskikh.services.images.MedicationImageMetadata;
+import com.musala.gorskikh.services.images.MedicationImages;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.Arrays;
+
+import static com.musala.gorskikh.util.ErrorsUtil.medicationImageNotExistError;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.MediaType.IMAGE_JPEG;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+public class MedicationsController implements MedicationsApi {
+
+    private final MedicationImages medicationImages;
+
+    @Override
+    public ResponseEntity<Resource> getMedicationImage(@NonNull String code, String ifNoneMatch) {
+        log.debug("Received a request for getting image of the medication {}, If-None-Match: {}", code, ifNoneMatch);
+
+        MedicationImageMetadata metadata = medicationImages.getMetadata(code)
+                .orElseThrow(() -> new HttpServerErrorException(BAD_REQUEST, medicationImageNotExistError(code)));
+        String etag = "\"" + metadata.etag() + "\"";
+
+        if (isNotModified(ifNoneMatch, etag))
+            return ResponseEntity.status(NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(IMAGE_JPEG)
+                .contentLength(metadata.size())
+                .body(medicationImages.getImage(metadata));
+    }
+
+    private static boolean isNotModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+}
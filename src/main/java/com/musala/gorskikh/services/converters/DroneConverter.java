@@ -2,8 +2,13 @@ package com.musala.gorskikh.services.converters;
 
 import com.musala.gorskikh.db.entities.DroneEntity;
 import com.musala.gorskikh.model.DroneDto;
+import com.musala.gorskikh.services.fleet.FleetEntry;
+import com.musala.gorskikh.services.weights.Milligrams;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Named;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Mapper(componentModel = "spring", uses = DroneModelConverter.class)
@@ -12,4 +17,15 @@ public interface DroneConverter {
     DroneDto entityToDto(DroneEntity entity);
 
     List<DroneDto> entitiesToDtos(List<DroneEntity> entity);
+
+    @Mapping(target = "model.model", source = "model")
+    @Mapping(target = "model.weightLimit", source = "weightLimitMg", qualifiedByName = "milligramsToGrams")
+    DroneDto entryToDto(FleetEntry entry);
+
+    List<DroneDto> entriesToDtos(List<FleetEntry> entries);
+
+    @Named("milligramsToGrams")
+    default BigDecimal milligramsToGrams(long milligrams) {
+        return Milligrams.toGrams(milligrams);
+    }
 }
@@ -1,26 +1,32 @@
 package com.musala.gorskikh.services.converters;
 
 import com.musala.gorskikh.db.entities.MedicationEntity;
+import com.musala.gorskikh.db.entities.MedicationImageEntity;
 import com.musala.gorskikh.model.ImageDto;
 import com.musala.gorskikh.model.MedicationDto;
+import com.musala.gorskikh.services.images.MedicationImages;
 import lombok.NonNull;
 import lombok.SneakyThrows;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 import java.util.Base64;
-import java.util.List;
-import java.util.Set;
 
 import static com.musala.gorskikh.model.ImageContentType.IMAGE_JPEG;
 
-@Mapper(componentModel = "spring")
+@Mapper(componentModel = "spring", imports = MedicationImages.class)
 public interface MedicationConverter {
 
     MedicationEntity dtoToEntity(MedicationDto dto);
 
-    MedicationDto entityToDto(MedicationEntity entity);
+    @Mapping(target = "code", source = "entity.code")
+    @Mapping(target = "image", source = "image.image")
+    @Mapping(target = "imageUrl", ignore = true)
+    MedicationDto entityToDto(MedicationEntity entity, MedicationImageEntity image);
 
-    List<MedicationDto> entitiesToDtos(Set<MedicationEntity> entity);
+    @Mapping(target = "image", ignore = true)
+    @Mapping(target = "imageUrl", expression = "java(MedicationImages.getImageUrl(entity.getCode()))")
+    MedicationDto entityToDtoWithImageUrl(MedicationEntity entity);
 
     @SneakyThrows
     default byte[] toBytes(@NonNull ImageDto image) {
@@ -0,0 +1,47 @@
+package com.musala.gorskikh.services.feed;
+
+import com.musala.gorskikh.model.DroneState;
+import com.musala.gorskikh.services.fleet.FleetEntry;
+import com.musala.gorskikh.services.weights.Milligrams;
+import lombok.NonNull;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Committed change of a drone published by {@link FleetChangeFeed}. Carries the state of the drone after
+ * the change, events of the same drone may arrive out of order, so a client keeps the greatest version.
+ */
+public record FleetChange(long id,
+                          String droneSerialNumber,
+                          Set<ChangeType> changes,
+                          DroneState state,
+                          BigDecimal batteryLevel,
+                          BigDecimal freeCapacity,
+                          long version) {
+
+    public enum ChangeType {REGISTERED, STATE, BATTERY, MANIFEST}
+
+    /**
+     * @return the types of changes between the entries, empty if nothing visible to clients has changed
+     */
+    static Set<ChangeType> diff(FleetEntry previous, @NonNull FleetEntry current) {
+        if (previous == null)
+            return EnumSet.of(ChangeType.REGISTERED);
+
+        Set<ChangeType> changes = EnumSet.noneOf(ChangeType.class);
+        if (previous.state() != current.state())
+            changes.add(ChangeType.STATE);
+        if (previous.batteryLevel().compareTo(current.batteryLevel()) != 0)
+            changes.add(ChangeType.BATTERY);
+        if (previous.freeCapacityMg() != current.freeCapacityMg())
+            changes.add(ChangeType.MANIFEST);
+        return changes;
+    }
+
+    static FleetChange of(long id, @NonNull Set<ChangeType> changes, @NonNull FleetEntry entry) {
+        return new FleetChange(id, entry.droneSerialNumber(), changes, entry.state(), entry.batteryLevel(),
+                Milligrams.toGrams(entry.freeCapacityMg()), entry.version());
+    }
+}
@@ -0,0 +1,251 @@
+package com.musala.gorskikh.services.feed;
+
+import com.musala.gorskikh.services.fleet.FleetEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-Sent Events feed of committed drone changes published by {@link com.musala.gorskikh.services.fleet.FleetIndex}.
+ * <p>
+ * Publishing never blocks on subscribers: every subscriber has a bounded buffer drained by a pool of sender
+ * threads. A subscriber whose buffer overflows loses the buffered events and gets a {@code resync} event instead,
+ * after which it should reload the fleet and continue from the id of the resync event.
+ * <p>
+ * The latest events are kept in a ring, so a reconnecting client passing {@code Last-Event-ID} gets the events
+ * it missed, or a {@code resync} event if they are no longer kept. Event ids are {@code <epoch>-<sequence>}, where
+ * the epoch is random per feed instance, so an id issued before a restart or by another node always resyncs.
+ */
+@Slf4j
+@Service
+public class FleetChangeFeed {
+
+    static final String CHANGE_EVENT = "drone";
+    static final String RESYNC_EVENT = "resync";
+
+    private final String epoch = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, Character.MAX_RADIX);
+    private final FleetChange[] history;
+    private final int subscriberBuffer;
+    private final Duration timeout;
+    private final ExecutorService senders;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Counter resyncs;
+
+    /**
+     * Sequence of the next event within the epoch, sequences start from 1
+     */
+    private long nextId = 1;
+
+    public FleetChangeFeed(MeterRegistry meterRegistry,
+                           @Value("${drones.feed.history-size:10000}") int historySize,
+                           @Value("${drones.feed.subscriber-buffer:256}") int subscriberBuffer,
+                           @Value("${drones.feed.sender-threads:4}") int senderThreads,
+                           @Value("${drones.feed.timeout:PT30M}") Duration timeout) {
+        this.history = new FleetChange[historySize];
+        this.subscriberBuffer = subscriberBuffer;
+        this.timeout = timeout;
+        this.senders = Executors.newFixedThreadPool(senderThreads);
+        this.resyncs = meterRegistry.counter("drones.feed.resyncs");
+        meterRegistry.gaugeCollectionSize("drones.feed.subscribers", List.of(), subscribers);
+    }
+
+    /**
+     * Publishes the change between the entries of a drone, if there is one visible to clients
+     */
+    public synchronized void publish(FleetEntry previous, @NonNull FleetEntry current) {
+        Set<FleetChange.ChangeType> changes = FleetChange.diff(previous, current);
+        if (changes.isEmpty())
+            return;
+
+        FleetChange change = FleetChange.of(nextId, changes, current);
+        history[(int) (nextId % history.length)] = change;
+        nextId++;
+
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.filter.matches(change))
+                subscriber.offer(change);
+        }
+    }
+
+    /**
+     * @param lastEventId id of the latest event received by the client before reconnecting, null for a new client
+     */
+    public SseEmitter subscribe(@NonNull FleetChangeFilter filter, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        subscribe(filter, lastEventId, emitter);
+        return emitter;
+    }
+
+    void subscribe(FleetChangeFilter filter, String lastEventId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter, filter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(ex -> subscribers.remove(subscriber));
+
+        synchronized (this) {
+            if (lastEventId != null)
+                replay(subscriber, lastEventId);
+            subscribers.add(subscriber);
+        }
+        log.debug("A client subscribed to fleet changes with {} after event {}", filter, lastEventId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdown();
+    }
+
+    /**
+     * @return the SSE id of the event with the sequence in the epoch of this feed
+     */
+    String eventId(long id) {
+        return epoch + "-" + id;
+    }
+
+    /**
+     * @return the sequence of the event, -1 if the id is malformed or was issued in another epoch
+     */
+    private long parseEventId(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !epoch.equals(eventId.substring(0, separator)))
+            return -1;
+
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Hands the missed events to the subscriber apart from its buffer, so a replay is bounded by the history only
+     */
+    private void replay(Subscriber subscriber, String lastEventId) {
+        long lastId = parseEventId(lastEventId);
+        long oldestId = Math.max(1, nextId - history.length);
+        if (lastId < oldestId - 1 || lastId >= nextId) {
+            subscriber.resync(nextId - 1);
+            return;
+        }
+
+        List<FleetChange> missed = new ArrayList<>();
+        for (long id = lastId + 1; id < nextId; id++) {
+            FleetChange change = history[(int) (id % history.length)];
+            if (subscriber.filter.matches(change))
+                missed.add(change);
+        }
+        subscriber.replay(missed);
+    }
+
+    /**
+     * The buffers and the pending resync are guarded by the subscriber, so a resync is never sent
+     * after changes published later than it. Replayed changes are sent before the buffered ones.
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final FleetChangeFilter filter;
+        private final Queue<FleetChange> replayed = new ArrayDeque<>();
+        private final BlockingQueue<FleetChange> buffer = new ArrayBlockingQueue<>(subscriberBuffer);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private long resyncId = -1;
+
+        private Subscriber(SseEmitter emitter, FleetChangeFilter filter) {
+            this.emitter = emitter;
+            this.filter = filter;
+        }
+
+        private void offer(FleetChange change) {
+            synchronized (this) {
+                if (buffer.offer(change)) {
+                    scheduleDrain();
+                    return;
+                }
+            }
+
+            resync(change.id());
+        }
+
+        private void replay(List<FleetChange> changes) {
+            if (changes.isEmpty())
+                return;
+
+            synchronized (this) {
+                replayed.addAll(changes);
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * Drops the buffered events and tells the client to reload the fleet as of the event
+         */
+        private void resync(long id) {
+            synchronized (this) {
+                replayed.clear();
+                buffer.clear();
+                resyncId = id;
+            }
+            resyncs.increment();
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true))
+                senders.execute(this::drain);
+        }
+
+        private void drain() {
+            try {
+                do {
+                    SseEmitter.SseEventBuilder event;
+                    while ((event = nextEvent()) != null)
+                        emitter.send(event);
+
+                    draining.set(false);
+                } while (hasPending() && draining.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException ex) {
+                log.debug("A client of fleet changes was disconnected: {}", ex.getMessage());
+                subscribers.remove(this);
+                emitter.completeWithError(ex);
+            }
+        }
+
+        private synchronized SseEmitter.SseEventBuilder nextEvent() {
+            if (resyncId >= 0) {
+                long resync = resyncId;
+                resyncId = -1;
+                return SseEmitter.event().id(eventId(resync)).name(RESYNC_EVENT).data(eventId(resync));
+            }
+
+            FleetChange change = replayed.isEmpty() ? buffer.poll() : replayed.poll();
+            return change != null
+                    ? SseEmitter.event().id(eventId(change.id())).name(CHANGE_EVENT).data(change)
+                    : null;
+        }
+
+        private synchronized boolean hasPending() {
+            return resyncId >= 0 || !replayed.isEmpty() || !buffer.isEmpty();
+        }
+    }
+}
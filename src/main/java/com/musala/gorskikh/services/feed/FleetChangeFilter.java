@@ -0,0 +1,24 @@
+package com.musala.gorskikh.services.feed;
+
+import com.musala.gorskikh.model.DroneState;
+
+import java.util.Set;
+
+/**
+ * Restrictions of a {@link FleetChangeFeed} subscription, an empty set means no restriction.
+ * The state restriction is applied to the state after the change.
+ */
+public record FleetChangeFilter(Set<String> serialNumbers, Set<DroneState> states) {
+
+    public static final FleetChangeFilter ANY = new FleetChangeFilter(Set.of(), Set.of());
+
+    public FleetChangeFilter {
+        serialNumbers = serialNumbers != null ? Set.copyOf(serialNumbers) : Set.of();
+        states = states != null ? Set.copyOf(states) : Set.of();
+    }
+
+    public boolean matches(FleetChange change) {
+        return (serialNumbers.isEmpty() || serialNumbers.contains(change.droneSerialNumber()))
+                && (states.isEmpty() || states.contains(change.state()));
+    }
+}
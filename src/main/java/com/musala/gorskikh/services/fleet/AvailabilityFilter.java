@@ -0,0 +1,15 @@
+package com.musala.gorskikh.services.fleet;
+
+import com.musala.gorskikh.model.DroneModelEnum;
+
+import java.math.BigDecimal;
+
+/**
+ * Optional restrictions of {@link FleetIndex#findAvailable(AvailabilityFilter)}, {@code null} means no restriction.
+ */
+public record AvailabilityFilter(BigDecimal minBatteryLevel,
+                                 DroneModelEnum model,
+                                 BigDecimal minFreeCapacityGr) {
+
+    public static final AvailabilityFilter ANY = new AvailabilityFilter(null, null, null);
+}
@@ -0,0 +1,40 @@
+package com.musala.gorskikh.services.fleet;
+
+import com.musala.gorskikh.db.entities.DroneEntity;
+import com.musala.gorskikh.model.DroneModelEnum;
+import com.musala.gorskikh.model.DroneState;
+import com.musala.gorskikh.services.weights.CapacityCalculator;
+import com.musala.gorskikh.services.weights.Milligrams;
+import lombok.NonNull;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable snapshot of a drone kept by {@link FleetIndex}, weights are in {@link Milligrams}.
+ */
+public record FleetEntry(String droneSerialNumber,
+                         DroneModelEnum model,
+                         long weightLimitMg,
+                         DroneState state,
+                         BigDecimal batteryLevel,
+                         long freeCapacityMg,
+                         long version) {
+
+    public static FleetEntry of(@NonNull DroneEntity drone) {
+        return of(new FleetRow(drone.getDroneSerialNumber(), drone.getModel().getModel(),
+                drone.getModel().getWeightLimit(), drone.getState(), drone.getBatteryLevel(),
+                drone.getPayloadWeight(), drone.getVersion()));
+    }
+
+    public static FleetEntry of(@NonNull FleetRow row) {
+        long weightLimitMg = Milligrams.ofLimit(row.weightLimit());
+        return new FleetEntry(
+                row.droneSerialNumber(),
+                row.model(),
+                weightLimitMg,
+                row.state(),
+                row.batteryLevel(),
+                CapacityCalculator.freeSpace(weightLimitMg, Milligrams.ofWeight(row.payloadWeight())),
+                row.version() != null ? row.version() : 0L);
+    }
+}
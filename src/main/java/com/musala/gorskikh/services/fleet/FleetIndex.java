@@ -0,0 +1,183 @@
+package com.musala.gorskikh.services.fleet;
+
+import com.musala.gorskikh.db.entities.DroneEntity;
+import com.musala.gorskikh.db.repositories.DronesRepository;
+import com.musala.gorskikh.services.feed.FleetChangeFeed;
+import com.musala.gorskikh.services.weights.CapacityCalculator;
+import com.musala.gorskikh.services.weights.Milligrams;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+import static com.musala.gorskikh.services.validators.DroneLoadingValidator.AVAILABLE_DRONE_STATES;
+import static com.musala.gorskikh.services.validators.DroneLoadingValidator.MIN_BATTERY_LEVEL;
+
+/**
+ * In-memory view of the fleet answering availability queries without the database.
+ * Readers never lock: entries are immutable and replaced as a whole. Writers going through
+ * {@link com.musala.gorskikh.db.dao.DronesDao} update the index after their transaction commits,
+ * and an older version of a drone never replaces a newer one.
+ * <p>
+ * Writes of other nodes are picked up by a periodic refresh comparing the versions of drones with the indexed ones,
+ * so the index lags behind them by the refresh interval at most. Deleted drones are evicted by the rebuild only.
+ * <p>
+ * Every change of the index except the initial build is published to {@link FleetChangeFeed}.
+ */
+@Slf4j
+@Service
+public class FleetIndex {
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    private final DronesRepository dronesRepository;
+    private final FleetChangeFeed changeFeed;
+    private final ConcurrentNavigableMap<String, FleetEntry> entries = new ConcurrentSkipListMap<>();
+
+    public FleetIndex(DronesRepository dronesRepository, FleetChangeFeed changeFeed) {
+        this.dronesRepository = dronesRepository;
+        this.changeFeed = changeFeed;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    @Scheduled(fixedDelayString = "${drones.fleet-index.rebuild-interval:PT10M}",
+            initialDelayString = "${drones.fleet-index.rebuild-interval:PT10M}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        boolean initial = entries.isEmpty();
+        // drones put by writers during the scan aren't in the snapshot, so they are never evicted
+        Set<String> unseen = new HashSet<>(entries.keySet());
+        int drones = 0;
+        String afterSerialNumber = "";
+        List<FleetRow> page;
+        do {
+            page = dronesRepository.findFleetRowsAfter(afterSerialNumber, PageRequest.ofSize(REBUILD_PAGE_SIZE));
+            for (FleetRow row : page) {
+                put(FleetEntry.of(row), !initial);
+                unseen.remove(row.droneSerialNumber());
+            }
+            drones += page.size();
+            if (!page.isEmpty())
+                afterSerialNumber = page.get(page.size() - 1).droneSerialNumber();
+        } while (page.size() == REBUILD_PAGE_SIZE);
+
+        unseen.forEach(entries::remove);
+        log.info("Fleet index was rebuilt with {} drones, {} deleted drones were evicted", drones, unseen.size());
+    }
+
+    /**
+     * Puts the drones changed by other nodes into the index: only the versions are scanned,
+     * the rows are read for the drones whose version differs from the indexed one.
+     */
+    @Scheduled(fixedDelayString = "${drones.fleet-index.refresh-interval:PT5S}",
+            initialDelayString = "${drones.fleet-index.refresh-interval:PT5S}")
+    @Transactional(readOnly = true)
+    public void refresh() {
+        List<String> changed = new ArrayList<>();
+        String afterSerialNumber = "";
+        List<FleetVersion> page;
+        do {
+            page = dronesRepository.findFleetVersionsAfter(afterSerialNumber, PageRequest.ofSize(REBUILD_PAGE_SIZE));
+            for (FleetVersion version : page) {
+                FleetEntry entry = entries.get(version.droneSerialNumber());
+                if (entry == null || entry.version() < (version.version() != null ? version.version() : 0L))
+                    changed.add(version.droneSerialNumber());
+            }
+            if (!page.isEmpty())
+                afterSerialNumber = page.get(page.size() - 1).droneSerialNumber();
+        } while (page.size() == REBUILD_PAGE_SIZE);
+
+        findRows(changed).forEach(row -> put(FleetEntry.of(row), true));
+        log.debug("Fleet index was refreshed with {} changed drones", changed.size());
+    }
+
+    /**
+     * Puts the state of the drone into the index once the current transaction is committed,
+     * or immediately if there is no transaction.
+     */
+    public void updateAfterCommit(@NonNull DroneEntity drone) {
+        afterCommit(() -> put(FleetEntry.of(drone), true));
+    }
+
+    /**
+     * Reads back the drones updated in the current transaction, so the index gets the versions
+     * they were written with, and puts them into the index once the transaction is committed.
+     */
+    public void refreshAfterCommit(@NonNull Collection<String> droneSerialNumbers) {
+        List<FleetRow> rows = findRows(droneSerialNumbers);
+        afterCommit(() -> rows.forEach(row -> put(FleetEntry.of(row), true)));
+    }
+
+    public List<FleetEntry> findAvailable(@NonNull AvailabilityFilter filter) {
+        return streamAvailable(filter, "").toList();
+    }
+
+    /**
+     * @param afterSerialNumber only drones with greater serial numbers are returned, an empty string for all
+     * @return available drones ordered by serial number, read lazily from the index
+     */
+    public Stream<FleetEntry> streamAvailable(@NonNull AvailabilityFilter filter, @NonNull String afterSerialNumber) {
+        BigDecimal minBatteryLevel = filter.minBatteryLevel() != null
+                ? filter.minBatteryLevel().max(MIN_BATTERY_LEVEL)
+                : MIN_BATTERY_LEVEL;
+        long minFreeCapacityMg = filter.minFreeCapacityGr() != null
+                ? Milligrams.ofRequestedCapacity(filter.minFreeCapacityGr())
+                : Long.MIN_VALUE;
+
+        return entries.tailMap(afterSerialNumber, false).values().stream()
+                .filter(e -> AVAILABLE_DRONE_STATES.contains(e.state()))
+                .filter(e -> e.batteryLevel().compareTo(minBatteryLevel) >= 0)
+                .filter(e -> filter.model() == null || filter.model() == e.model())
+                .filter(e -> CapacityCalculator.fits(minFreeCapacityMg, e.freeCapacityMg()));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private List<FleetRow> findRows(Collection<String> droneSerialNumbers) {
+        List<String> serialNumbers = List.copyOf(droneSerialNumbers);
+        List<FleetRow> rows = new ArrayList<>(serialNumbers.size());
+        for (int from = 0; from < serialNumbers.size(); from += REBUILD_PAGE_SIZE) {
+            rows.addAll(dronesRepository.findFleetRows(
+                    serialNumbers.subList(from, Math.min(from + REBUILD_PAGE_SIZE, serialNumbers.size()))));
+        }
+        return rows;
+    }
+
+    private void put(FleetEntry entry, boolean publish) {
+        FleetEntry[] previous = new FleetEntry[1];
+        FleetEntry current = entries.compute(entry.droneSerialNumber(), (serialNumber, existing) -> {
+            previous[0] = existing;
+            return existing == null || entry.version() >= existing.version() ? entry : existing;
+        });
+        if (publish && current == entry)
+            changeFeed.publish(previous[0], entry);
+    }
+}
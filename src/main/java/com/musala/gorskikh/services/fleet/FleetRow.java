@@ -0,0 +1,18 @@
+package com.musala.gorskikh.services.fleet;
+
+import com.musala.gorskikh.model.DroneModelEnum;
+import com.musala.gorskikh.model.DroneState;
+
+import java.math.BigDecimal;
+
+/**
+ * Columns of a drone kept by {@link FleetIndex} read without hydrating the drone entity.
+ */
+public record FleetRow(String droneSerialNumber,
+                       DroneModelEnum model,
+                       BigDecimal weightLimit,
+                       DroneState state,
+                       BigDecimal batteryLevel,
+                       BigDecimal payloadWeight,
+                       Long version) {
+}
@@ -0,0 +1,8 @@
+package com.musala.gorskikh.services.fleet;
+
+/**
+ * Version of a drone read by {@link FleetIndex} to detect drones changed by other nodes.
+ */
+public record FleetVersion(String droneSerialNumber,
+                           Long version) {
+}
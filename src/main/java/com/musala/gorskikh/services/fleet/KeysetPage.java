@@ -0,0 +1,29 @@
+package com.musala.gorskikh.services.fleet;
+
+import com.musala.gorskikh.util.KeysetCursor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page of items ordered by a key
+ *
+ * @param nextCursor cursor of the next page, null on the last page
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+
+    /**
+     * @param fetched items after the cursor, the page is the last one if there are no more than limit of them
+     */
+    public static <T> KeysetPage<T> of(List<T> fetched, int limit, Function<T, String> key) {
+        if (fetched.size() <= limit)
+            return new KeysetPage<>(fetched, null);
+
+        List<T> items = fetched.subList(0, limit);
+        return new KeysetPage<>(items, KeysetCursor.encode(key.apply(items.get(limit - 1))));
+    }
+
+    public <R> KeysetPage<R> map(Function<List<T>, List<R>> mapper) {
+        return new KeysetPage<>(mapper.apply(items), nextCursor);
+    }
+}
@@ -0,0 +1,101 @@
+package com.musala.gorskikh.services.images;
+
+import lombok.NonNull;
+import org.springframework.core.io.AbstractResource;
+
+import javax.sql.DataSource;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Resource streaming a medication image from its BLOB. Every {@link #getInputStream()} holds
+ * its own connection until the stream is closed.
+ */
+class BlobImageResource extends AbstractResource {
+
+    private static final String SELECT_IMAGE = "SELECT image FROM medication_images WHERE medication_code = ?";
+
+    private final DataSource dataSource;
+    private final MedicationImageMetadata metadata;
+
+    BlobImageResource(@NonNull DataSource dataSource, @NonNull MedicationImageMetadata metadata) {
+        this.dataSource = dataSource;
+        this.metadata = metadata;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            PreparedStatement statement = connection.prepareStatement(SELECT_IMAGE);
+            statement.setString(1, metadata.code());
+            ResultSet resultSet = statement.executeQuery();
+            if (!resultSet.next())
+                throw new FileNotFoundException(getDescription() + " doesn't exist");
+
+            return new ConnectionBoundInputStream(resultSet.getBinaryStream(1), connection);
+        } catch (SQLException ex) {
+            closeQuietly(connection, ex);
+            throw new IOException(ex);
+        } catch (IOException | RuntimeException ex) {
+            closeQuietly(connection, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public long contentLength() {
+        return metadata.size();
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Image of medication '" + metadata.code() + "'";
+    }
+
+    private static void closeQuietly(Connection connection, Exception cause) {
+        if (connection == null)
+            return;
+
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            cause.addSuppressed(ex);
+        }
+    }
+
+    private static class ConnectionBoundInputStream extends FilterInputStream {
+
+        private final Connection connection;
+
+        ConnectionBoundInputStream(InputStream in, Connection connection) {
+            super(in);
+            this.connection = connection;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                try {
+                    connection.close();
+                } catch (SQLException ex) {
+                    throw new IOException(ex);
+                }
+            }
+        }
+    }
+}
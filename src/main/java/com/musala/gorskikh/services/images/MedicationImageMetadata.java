@@ -0,0 +1,7 @@
+package com.musala.gorskikh.services.images;
+
+/**
+ * Metadata of a medication image, available without reading the image itself.
+ */
+public record MedicationImageMetadata(String code, String etag, long size) {
+}
@@ -0,0 +1,39 @@
+package com.musala.gorskikh.services.images;
+
+import com.musala.gorskikh.db.repositories.MedicationImagesRepository;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.Optional;
+
+/**
+ * Access to medication images which never materializes an image in memory:
+ * the metadata is read by a projection and the image is streamed from its BLOB.
+ */
+@Service
+@RequiredArgsConstructor
+public class MedicationImages {
+
+    public static final String IMAGE_URL_TEMPLATE = "/medications/%s/image";
+
+    private final MedicationImagesRepository medicationImagesRepository;
+    private final DataSource dataSource;
+
+    public Optional<MedicationImageMetadata> getMetadata(@NonNull String code) {
+        return medicationImagesRepository.findMetadataById(code);
+    }
+
+    /**
+     * @return resource streaming the image, the database is not accessed until the resource is read
+     */
+    public Resource getImage(@NonNull MedicationImageMetadata metadata) {
+        return new BlobImageResource(dataSource, metadata);
+    }
+
+    public static String getImageUrl(@NonNull String code) {
+        return IMAGE_URL_TEMPLATE.formatted(code);
+    }
+}
@@ -0,0 +1,10 @@
+package com.musala.gorskikh.services.imports;
+
+/**
+ * Row of the manifest or image of a catalog import which wasn't imported
+ *
+ * @param entry name of the archive entry, a manifest row is named as {@code manifest.ndjson:<line>}
+ * @param code  code of the medication, null if the row couldn't be parsed
+ */
+public record CatalogImportError(String entry, String code, String error) {
+}
@@ -0,0 +1,13 @@
+package com.musala.gorskikh.services.imports;
+
+import java.util.List;
+
+/**
+ * @param medications     count of inserted or updated medications
+ * @param images          count of inserted or replaced images
+ * @param errors          errors of rejected rows and images in order, at most the configured count of them
+ * @param errorsTruncated whether there were more rejected rows and images than reported errors
+ */
+public record CatalogImportSummary(long medications, long images, List<CatalogImportError> errors,
+                                   boolean errorsTruncated) {
+}
@@ -0,0 +1,363 @@
+package com.musala.gorskikh.services.imports;
+
+import com.musala.gorskikh.db.entities.MedicationEntity;
+import com.musala.gorskikh.db.repositories.MedicationImagesRepository;
+import com.musala.gorskikh.db.repositories.MedicationsRepository;
+import com.musala.gorskikh.services.catalog.CatalogCache;
+import com.musala.gorskikh.services.catalog.MedicationJsonCache;
+import com.musala.gorskikh.services.images.MedicationImageMetadata;
+import com.musala.gorskikh.services.metrics.RejectionCounter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static com.musala.gorskikh.util.ErrorsUtil.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Imports the medication catalog from a ZIP archive read as a stream. The archive starts with the manifest
+ * {@value #MANIFEST}, a medication per line, followed by JPEG images named {@code <code>.jpg}, possibly in
+ * directories.
+ * <p>
+ * Medications are upserted by code in chunks, every chunk in its own transaction with a batched statement.
+ * Every image is streamed from the archive straight into its BLOB, so neither the archive nor an image is held
+ * in memory. The caches of the changed medications are invalidated as each chunk commits.
+ * <p>
+ * As the manifest commits before the images are read, an imported medication left without an image, neither
+ * in the archive nor stored before, is kept and reported as an error of its missing image entry.
+ */
+@Slf4j
+@Service
+public class CatalogImporter {
+
+    static final String MANIFEST = "manifest.ndjson";
+
+    private static final int MAX_CODE_LENGTH = 50;
+    private static final int MAX_NAME_LENGTH = 50;
+    /**
+     * Patterns of {@link com.musala.gorskikh.model.MedicationDto}, the importer accepts only rows the API would
+     */
+    private static final Pattern CODE_PATTERN = Pattern.compile("^[A-Za-z0-9][A-Za-z0-9_]*[A-Za-z0-9]$");
+    private static final Pattern NAME_PATTERN = Pattern.compile("^[A-Za-z0-9](?:[A-Za-z0-9_-]*[A-Za-z0-9])?$");
+    private static final int MIN_WEIGHT = 1;
+    private static final int MAX_WEIGHT = 150;
+    private static final byte[] JPEG_MAGIC = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+    private final MedicationsRepository medicationsRepository;
+    private final MedicationImagesRepository medicationImagesRepository;
+    private final CatalogCache catalogCache;
+    private final MedicationJsonCache medicationJsonCache;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    private final Counter importedMedications;
+    private final Counter importedImages;
+    private final RejectionCounter rejectionCounter;
+
+    public CatalogImporter(MedicationsRepository medicationsRepository,
+                           MedicationImagesRepository medicationImagesRepository, CatalogCache catalogCache,
+                           MedicationJsonCache medicationJsonCache, ObjectMapper objectMapper,
+                           PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                           @Value("${drones.import.chunk-size:500}") int chunkSize,
+                           @Value("${drones.import.max-errors:1000}") int maxErrors) {
+        this.medicationsRepository = medicationsRepository;
+        this.medicationImagesRepository = medicationImagesRepository;
+        this.catalogCache = catalogCache;
+        this.medicationJsonCache = medicationJsonCache;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+
+        this.importedMedications = meterRegistry.counter("drones.import.catalog", "entry", "medication");
+        this.importedImages = meterRegistry.counter("drones.import.catalog", "entry", "image");
+        this.rejectionCounter = new RejectionCounter(meterRegistry);
+    }
+
+    public CatalogImportSummary importCatalog(@NonNull InputStream archive) throws IOException {
+        ZipInputStream zip = new ZipInputStream(archive, UTF_8);
+        ZipEntry entry = nextFile(zip);
+        if (entry == null || !entry.getName().equals(MANIFEST))
+            throw new HttpServerErrorException(BAD_REQUEST, catalogManifestMissingError(MANIFEST));
+
+        Summary summary = new Summary();
+        Set<String> codes = importManifest(zip, summary);
+
+        try {
+            Boolean more = true;
+            while (Boolean.TRUE.equals(more))
+                more = transactionTemplate.execute(status -> importImages(zip, codes, summary));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        reportMissingImages(codes, summary);
+
+        log.info("Imported {} medications and {} images, rejected {} entries",
+                summary.medications, summary.images, summary.rejected);
+        return new CatalogImportSummary(summary.medications, summary.images, summary.errors,
+                summary.rejected > summary.errors.size());
+    }
+
+    /**
+     * @return codes of the imported medications
+     */
+    private Set<String> importManifest(ZipInputStream zip, Summary summary) throws IOException {
+        Set<String> codes = new LinkedHashSet<>();
+        List<MedicationEntity> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(StreamUtils.nonClosing(zip), UTF_8));
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank())
+                continue;
+
+            String entry = MANIFEST + ":" + lineNumber;
+            ManifestRow row;
+            try {
+                row = objectMapper.readValue(line, ManifestRow.class);
+            } catch (IOException ex) {
+                summary.reject(entry, null, malformedImportRowError(ex.getMessage()));
+                continue;
+            }
+
+            String error = validate(row);
+            if (error == null && !codes.add(row.code()))
+                error = duplicateMedicationError(row.code());
+            if (error != null) {
+                summary.reject(entry, row.code(), error);
+                continue;
+            }
+
+            chunk.add(row.toEntity());
+            if (chunk.size() == chunkSize) {
+                mergeMedications(chunk, summary);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            mergeMedications(chunk, summary);
+
+        return codes;
+    }
+
+    private void mergeMedications(List<MedicationEntity> chunk, Summary summary) {
+        List<String> codes = chunk.stream().map(MedicationEntity::getCode).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            medicationsRepository.mergeAll(chunk);
+            catalogCache.invalidateMedications(codes);
+            medicationJsonCache.invalidate(codes);
+        });
+
+        summary.medications += chunk.size();
+        importedMedications.increment(chunk.size());
+    }
+
+    /**
+     * Runs in a transaction importing at most a chunk of images
+     *
+     * @return whether there may be more images in the archive
+     */
+    private boolean importImages(ZipInputStream zip, Set<String> codes, Summary summary) {
+        List<MedicationImageMetadata> chunk = new ArrayList<>(chunkSize);
+        try {
+            ZipEntry entry;
+            while (chunk.size() < chunkSize && (entry = nextFile(zip)) != null) {
+                String name = entry.getName();
+                String code = codeOf(name);
+                if (code == null || !codes.contains(code)) {
+                    summary.reject(name, code, unknownMedicationImageError(name));
+                    continue;
+                }
+
+                ImageStream image = new ImageStream(new BufferedInputStream(StreamUtils.nonClosing(zip)));
+                if (!image.isJpeg()) {
+                    summary.reject(name, code, notJpegImageError(name));
+                    continue;
+                }
+
+                medicationImagesRepository.mergeImage(code, image);
+                chunk.add(new MedicationImageMetadata(code, image.getEtag(), image.getSize()));
+                summary.imageCodes.add(code);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        if (chunk.isEmpty())
+            return false;
+
+        List<String> imageCodes = chunk.stream().map(MedicationImageMetadata::code).toList();
+        medicationImagesRepository.updateMetadata(chunk);
+        medicationJsonCache.invalidate(imageCodes);
+
+        summary.images += chunk.size();
+        importedImages.increment(chunk.size());
+        return chunk.size() == chunkSize;
+    }
+
+    private void reportMissingImages(Set<String> codes, Summary summary) {
+        List<String> withoutImages = codes.stream().filter(code -> !summary.imageCodes.contains(code)).toList();
+        for (int from = 0; from < withoutImages.size(); from += chunkSize) {
+            List<String> chunk = withoutImages.subList(from, Math.min(from + chunkSize, withoutImages.size()));
+            Set<String> stored = new HashSet<>();
+            medicationImagesRepository.findMetadataByCodeIn(chunk)
+                    .forEach(metadata -> stored.add(metadata.code()));
+
+            for (String code : chunk) {
+                if (!stored.contains(code))
+                    summary.reject(code + ".jpg", code, medicationImageNotExistError(code));
+            }
+        }
+    }
+
+    private static ZipEntry nextFile(ZipInputStream zip) throws IOException {
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null && entry.isDirectory())
+            zip.closeEntry();
+        return entry;
+    }
+
+    /**
+     * @return code of the medication by the name of an image entry, null if it isn't a JPEG file name
+     */
+    private static String codeOf(String entryName) {
+        String fileName = entryName.substring(entryName.lastIndexOf('/') + 1);
+        String lowerCaseName = fileName.toLowerCase(Locale.ROOT);
+        if (lowerCaseName.endsWith(".jpg"))
+            return fileName.substring(0, fileName.length() - 4);
+        if (lowerCaseName.endsWith(".jpeg"))
+            return fileName.substring(0, fileName.length() - 5);
+        return null;
+    }
+
+    private static String validate(ManifestRow row) {
+        if (row.code() == null || row.code().isBlank())
+            return medicationCodeIsBlankError();
+        if (row.code().length() > MAX_CODE_LENGTH)
+            return medicationFieldIsTooLongError("Code", MAX_CODE_LENGTH);
+        if (!CODE_PATTERN.matcher(row.code()).matches())
+            return medicationFieldMismatchesPatternError("Code", CODE_PATTERN.pattern());
+        if (row.name() == null || row.name().isBlank())
+            return medicationNameIsBlankError();
+        if (row.name().length() > MAX_NAME_LENGTH)
+            return medicationFieldIsTooLongError("Name", MAX_NAME_LENGTH);
+        if (!NAME_PATTERN.matcher(row.name()).matches())
+            return medicationFieldMismatchesPatternError("Name", NAME_PATTERN.pattern());
+        if (row.weightGr() == null || row.weightGr().compareTo(BigDecimal.valueOf(MIN_WEIGHT)) < 0
+                || row.weightGr().compareTo(BigDecimal.valueOf(MAX_WEIGHT)) > 0)
+            return medicationWeightOutOfRangeError(row.weightGr(), MIN_WEIGHT, MAX_WEIGHT);
+        return null;
+    }
+
+    private record ManifestRow(String code, String name, BigDecimal weightGr) {
+
+        private MedicationEntity toEntity() {
+            MedicationEntity medication = new MedicationEntity();
+            medication.setCode(code);
+            medication.setName(name);
+            medication.setWeightGr(weightGr);
+            return medication;
+        }
+    }
+
+    /**
+     * Image stream computing the ETag and the size of the image while it's read
+     */
+    private static class ImageStream extends FilterInputStream {
+
+        private final MessageDigest digest;
+        private long size;
+
+        private ImageStream(BufferedInputStream in) {
+            super(in);
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        private boolean isJpeg() throws IOException {
+            in.mark(JPEG_MAGIC.length);
+            byte[] magic = in.readNBytes(JPEG_MAGIC.length);
+            in.reset();
+            return Arrays.equals(JPEG_MAGIC, magic);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                digest.update((byte) b);
+                size++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = in.read(b, off, len);
+            if (count > 0) {
+                digest.update(b, off, count);
+                size += count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            throw new IOException("Skipping an image would break its ETag");
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private String getEtag() {
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        private long getSize() {
+            return size;
+        }
+    }
+
+    private class Summary {
+
+        private final List<CatalogImportError> errors = new ArrayList<>();
+        private final Set<String> imageCodes = new HashSet<>();
+        private long medications;
+        private long images;
+        private long rejected;
+
+        private void reject(String entry, String code, String error) {
+            rejected++;
+            rejectionCounter.count(error);
+            if (errors.size() < maxErrors)
+                errors.add(new CatalogImportError(entry, code, error));
+        }
+    }
+}
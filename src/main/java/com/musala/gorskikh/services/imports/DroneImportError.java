@@ -0,0 +1,10 @@
+package com.musala.gorskikh.services.imports;
+
+/**
+ * Row of an import which wasn't registered
+ *
+ * @param line              number of the line starting from 1
+ * @param droneSerialNumber serial number of the drone, null if the row couldn't be parsed
+ */
+public record DroneImportError(long line, String droneSerialNumber, String error) {
+}
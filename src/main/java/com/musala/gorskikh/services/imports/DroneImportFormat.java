@@ -0,0 +1,64 @@
+package com.musala.gorskikh.services.imports;
+
+import com.musala.gorskikh.model.CreateDroneRequest;
+import com.musala.gorskikh.model.DroneModelEnum;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Formats of a drone registration import, every non-blank line of the body is a drone
+ */
+public enum DroneImportFormat {
+
+    /**
+     * A {@link CreateDroneRequest} JSON object per line
+     */
+    NDJSON {
+        @Override
+        CreateDroneRequest parse(String line, ObjectMapper objectMapper) throws IOException {
+            return objectMapper.readValue(line, CreateDroneRequest.class);
+        }
+
+        @Override
+        boolean isHeader(String line) {
+            return false;
+        }
+    },
+
+    /**
+     * {@code droneSerialNumber,model} per line, optionally preceded by this header,
+     * values may be enclosed in double quotes
+     */
+    CSV {
+        @Override
+        CreateDroneRequest parse(String line, ObjectMapper objectMapper) {
+            String[] values = line.split(",", -1);
+            if (values.length != 2)
+                throw new IllegalArgumentException("expected 2 values, but found " + values.length);
+
+            String model = unquote(values[1]);
+            return new CreateDroneRequest(unquote(values[0]), model.isEmpty() ? null : DroneModelEnum.fromValue(model));
+        }
+
+        @Override
+        boolean isHeader(String line) {
+            return unquote(line.split(",", -1)[0]).equalsIgnoreCase("droneSerialNumber");
+        }
+
+        private static String unquote(String value) {
+            String trimmed = value.trim();
+            return trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")
+                    ? trimmed.substring(1, trimmed.length() - 1)
+                    : trimmed;
+        }
+    };
+
+    /**
+     * @throws IOException              if the line isn't a valid JSON object
+     * @throws IllegalArgumentException if the line has wrong values
+     */
+    abstract CreateDroneRequest parse(String line, ObjectMapper objectMapper) throws IOException;
+
+    abstract boolean isHeader(String line);
+}
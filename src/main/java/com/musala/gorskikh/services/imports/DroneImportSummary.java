@@ -0,0 +1,11 @@
+package com.musala.gorskikh.services.imports;
+
+import java.util.List;
+
+/**
+ * @param errors          errors of rejected rows in order, at most the configured count of them
+ * @param errorsTruncated whether there were more rejected rows than reported errors
+ */
+public record DroneImportSummary(long imported, long rejected, List<DroneImportError> errors,
+                                 boolean errorsTruncated) {
+}
@@ -0,0 +1,148 @@
+package com.musala.gorskikh.services.imports;
+
+import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.model.CreateDroneRequest;
+import com.musala.gorskikh.services.metrics.RejectionCounter;
+import com.musala.gorskikh.services.validators.ValidationResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.musala.gorskikh.util.ErrorsUtil.malformedImportRowError;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Registers drones read from a stream line by line. Rows are registered in chunks, every chunk
+ * in its own transaction with a single existence check and batched inserts, so memory use depends only on
+ * the chunk size and the count of reported errors, not on the size of the stream.
+ * <p>
+ * Rows of committed chunks stay registered if the import fails later.
+ */
+@Slf4j
+@Service
+public class DroneImporter {
+
+    private final DronesDao dronesDao;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final int maxAttempts;
+
+    private final Counter importedRows;
+    private final Counter rejectedRows;
+    private final RejectionCounter rejectionCounter;
+
+    public DroneImporter(DronesDao dronesDao, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${drones.import.chunk-size:500}") int chunkSize,
+                         @Value("${drones.import.max-errors:1000}") int maxErrors,
+                         @Value("${drones.load.max-attempts:3}") int maxAttempts) {
+        this.dronesDao = dronesDao;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+        this.maxAttempts = maxAttempts;
+
+        this.importedRows = meterRegistry.counter("drones.import.rows", "result", "imported");
+        this.rejectedRows = meterRegistry.counter("drones.import.rows", "result", "rejected");
+        this.rejectionCounter = new RejectionCounter(meterRegistry);
+    }
+
+    public DroneImportSummary importDrones(@NonNull InputStream body, @NonNull DroneImportFormat format)
+            throws IOException {
+        Summary summary = new Summary();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, UTF_8));
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (summary.rows == 0 && chunk.isEmpty() && format.isHeader(line)))
+                continue;
+
+            try {
+                chunk.add(new Row(lineNumber, format.parse(line, objectMapper)));
+            } catch (IOException | IllegalArgumentException ex) {
+                summary.reject(lineNumber, null, malformedImportRowError(ex.getMessage()));
+                continue;
+            }
+
+            if (chunk.size() == chunkSize) {
+                register(chunk, summary);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            register(chunk, summary);
+
+        log.info("Imported {} drones, rejected {} rows", summary.imported, summary.rejected);
+        return new DroneImportSummary(summary.imported, summary.rejected, summary.errors,
+                summary.rejected > summary.errors.size());
+    }
+
+    private void register(List<Row> chunk, Summary summary) {
+        List<CreateDroneRequest> requests = chunk.stream().map(Row::request).toList();
+        List<ValidationResult> results = registerWithRetries(requests);
+
+        for (int i = 0; i < chunk.size(); i++) {
+            ValidationResult result = results.get(i);
+            if (result.isValid())
+                summary.imported();
+            else
+                summary.reject(chunk.get(i).line(), requests.get(i).getDroneSerialNumber(), result.getErrorMsg());
+        }
+    }
+
+    /**
+     * A drone registered concurrently after the existence check fails the whole chunk,
+     * the retry finds it by the existence check
+     */
+    private List<ValidationResult> registerWithRetries(List<CreateDroneRequest> requests) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return dronesDao.registerAll(requests);
+            } catch (DuplicateKeyException ex) {
+                if (attempt >= maxAttempts)
+                    throw ex;
+            }
+        }
+    }
+
+    private record Row(long line, CreateDroneRequest request) {
+    }
+
+    private class Summary {
+
+        private final List<DroneImportError> errors = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long rejected;
+
+        private void imported() {
+            rows++;
+            imported++;
+            importedRows.increment();
+        }
+
+        private void reject(long line, String droneSerialNumber, String error) {
+            rows++;
+            rejected++;
+            rejectedRows.increment();
+            rejectionCounter.count(error);
+            if (errors.size() < maxErrors)
+                errors.add(new DroneImportError(line, droneSerialNumber, error));
+        }
+    }
+}
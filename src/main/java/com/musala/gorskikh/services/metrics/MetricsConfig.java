@@ -0,0 +1,104 @@
+package com.musala.gorskikh.services.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import javax.sql.DataSource;
+
+/**
+ * Metrics beyond the ones of Spring Boot: observations of {@link Observed} beans, SQL statements
+ * and transactions per HTTP request. Connection pool wait is timed by HikariCP itself
+ * as {@code hikaricp.connections.acquire}.
+ * <p>
+ * SQL per request is recorded only if {@code drones.metrics.sql-per-request.enabled} is set, as it puts
+ * a proxy in front of the data source.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+    /**
+     * Runs before {@code @Transactional} advice, which has the lowest precedence
+     */
+    private static final int OBSERVED_ADVISOR_ORDER = 0;
+
+    /**
+     * The registry is resolved on the first call: an advisor is created before the post-processors
+     * which attach the meter and tracing handlers to the registry
+     */
+    @Bean
+    public static Advisor observedAdvisor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                new AnnotationMatchingPointcut(Observed.class, true), new ObservedMethodInterceptor(observationRegistry));
+        advisor.setOrder(OBSERVED_ADVISOR_ORDER);
+        return advisor;
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "drones.metrics.sql-per-request.enabled", havingValue = "true")
+    static class SqlPerRequestConfig {
+
+        @Bean
+        public static BeanPostProcessor sqlStatementCounterPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                    if (bean instanceof DataSource dataSource)
+                        return ProxyDataSourceBuilder.create(dataSource)
+                                .name(beanName)
+                                .listener(new SqlStatementCounter())
+                                .build();
+
+                    return bean;
+                }
+            };
+        }
+
+        /**
+         * Replaces the transaction manager of Spring Boot to count the transactions it commits or rolls back,
+         * joined transactions aren't counted as they don't end on their own
+         */
+        @Bean
+        public JpaTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+            JpaTransactionManager transactionManager = new JpaTransactionManager() {
+                @Override
+                protected void doCommit(@NonNull DefaultTransactionStatus status) {
+                    try {
+                        super.doCommit(status);
+                    } finally {
+                        SqlStatementCounter.transactionEnded();
+                    }
+                }
+
+                @Override
+                protected void doRollback(@NonNull DefaultTransactionStatus status) {
+                    try {
+                        super.doRollback(status);
+                    } finally {
+                        SqlStatementCounter.transactionEnded();
+                    }
+                }
+            };
+            customizers.ifAvailable(customizer -> customizer.customize(transactionManager));
+            return transactionManager;
+        }
+
+        @Bean
+        public RequestSqlMetricsFilter requestSqlMetricsFilter(MeterRegistry meterRegistry) {
+            return new RequestSqlMetricsFilter(meterRegistry);
+        }
+    }
+}
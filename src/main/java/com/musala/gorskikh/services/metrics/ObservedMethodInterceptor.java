@@ -0,0 +1,63 @@
+package com.musala.gorskikh.services.metrics;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
+import lombok.NonNull;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static io.micrometer.observation.ObservationRegistry.NOOP;
+
+/**
+ * Observes calls of the public methods of beans annotated with {@link Observed}: each call is timed under
+ * the name of the annotation tagged by its class and method, and becomes a span when tracing is sampled.
+ * <p>
+ * Unlike {@code ObservedAspect}, it's applied by an ordered advisor, so an observation wraps the transaction
+ * of the method and includes its commit.
+ */
+class ObservedMethodInterceptor implements MethodInterceptor {
+
+    private final Supplier<ObservationRegistry> observationRegistry;
+    private final Map<Class<?>, Optional<Observed>> observedAnnotations = new ConcurrentHashMap<>();
+
+    ObservedMethodInterceptor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        this.observationRegistry = SingletonSupplier.of(() -> observationRegistry.getIfAvailable(() -> NOOP));
+    }
+
+    @Override
+    public Object invoke(@NonNull MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Class<?> targetClass = invocation.getThis() != null ? AopUtils.getTargetClass(invocation.getThis())
+                : method.getDeclaringClass();
+        Observed observed = observedAnnotations.computeIfAbsent(targetClass,
+                type -> Optional.ofNullable(AnnotatedElementUtils.findMergedAnnotation(type, Observed.class)))
+                .orElse(null);
+        if (observed == null || method.getDeclaringClass() == Object.class)
+            return invocation.proceed();
+
+        Observation observation = Observation.createNotStarted(observed.name(), observationRegistry.get())
+                .contextualName(targetClass.getSimpleName() + "#" + method.getName())
+                .lowCardinalityKeyValue("class", targetClass.getSimpleName())
+                .lowCardinalityKeyValue("method", method.getName())
+                .start();
+        try (Observation.Scope ignored = observation.openScope()) {
+            return invocation.proceed();
+        } catch (Throwable ex) {
+            observation.error(ex);
+            throw ex;
+        } finally {
+            observation.stop();
+        }
+    }
+}
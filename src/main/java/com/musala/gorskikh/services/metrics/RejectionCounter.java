@@ -0,0 +1,41 @@
+package com.musala.gorskikh.services.metrics;
+
+import com.musala.gorskikh.services.validators.ValidationResult;
+import com.musala.gorskikh.util.ErrorsUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Counts rejections returned to clients by the {@value #REJECTIONS_METER} counter tagged with their reason,
+ * see {@link ErrorsUtil#reasonOf}. A rejection is counted once, where it's returned: by the exception handler
+ * for a request, by a bulk request for its results, by an import for its rows.
+ */
+@Component
+public class RejectionCounter {
+
+    public static final String REJECTIONS_METER = "drones.rejections";
+
+    private final MeterRegistry meterRegistry;
+
+    public RejectionCounter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void count(@NonNull String error) {
+        meterRegistry.counter(REJECTIONS_METER, "reason", ErrorsUtil.reasonOf(error)).increment();
+    }
+
+    /**
+     * Counts the failed results of a bulk request, the results rolled back by another failure aren't counted
+     * as they aren't rejections of their own
+     */
+    public void count(@NonNull List<ValidationResult> results) {
+        String rolledBack = ErrorsUtil.bulkLoadRolledBackError();
+        results.stream()
+                .filter(result -> !result.isValid() && !rolledBack.equals(result.getErrorMsg()))
+                .forEach(result -> count(result.getErrorMsg()));
+    }
+}
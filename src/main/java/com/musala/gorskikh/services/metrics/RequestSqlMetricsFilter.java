@@ -0,0 +1,57 @@
+package com.musala.gorskikh.services.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records SQL statements and transactions per HTTP request, tagged as {@code http.server.requests}
+ * by the method and the URI template. Only the work done on the request thread is counted:
+ * a streaming response written asynchronously isn't.
+ */
+class RequestSqlMetricsFilter extends OncePerRequestFilter {
+
+    static final String STATEMENTS_METER = "drones.http.sql.statements";
+    static final String TRANSACTIONS_METER = "drones.http.sql.transactions";
+
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+
+    RequestSqlMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        long statements = SqlStatementCounter.statements();
+        long transactions = SqlStatementCounter.transactions();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : UNKNOWN_URI;
+
+            summary(STATEMENTS_METER, request.getMethod(), uri)
+                    .record(SqlStatementCounter.statements() - statements);
+            summary(TRANSACTIONS_METER, request.getMethod(), uri)
+                    .record(SqlStatementCounter.transactions() - transactions);
+        }
+    }
+
+    private DistributionSummary summary(String name, String method, String uri) {
+        return DistributionSummary.builder(name)
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,46 @@
+package com.musala.gorskikh.services.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+
+/**
+ * Listener of the data source proxy counting statements executed by the current thread, and counter of transactions
+ * ended by it, which is called by the transaction manager. A JDBC batch is counted as a single statement,
+ * as it's a single round trip to the database. Statements run in auto-commit aren't counted as transactions.
+ * <p>
+ * Counters only grow, readers take the difference between two reads.
+ */
+class SqlStatementCounter implements QueryExecutionListener {
+
+    private static final ThreadLocal<Counts> COUNTS = ThreadLocal.withInitial(Counts::new);
+
+    static long statements() {
+        return COUNTS.get().statements;
+    }
+
+    static long transactions() {
+        return COUNTS.get().transactions;
+    }
+
+    static void transactionEnded() {
+        COUNTS.get().transactions++;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        COUNTS.get().statements++;
+    }
+
+    private static class Counts {
+
+        private long statements;
+        private long transactions;
+    }
+}
@@ -0,0 +1,18 @@
+package com.musala.gorskikh.services.partitions;
+
+import java.util.Set;
+
+/**
+ * Partitions of the serial number space owned by a node. A drone belongs to partition
+ * {@code ORA_HASH(serial_number, partitionCount - 1)}.
+ */
+public record FleetPartitionSet(int partitionCount, Set<Integer> partitions) {
+
+    public FleetPartitionSet {
+        partitions = Set.copyOf(partitions);
+    }
+
+    public boolean isEmpty() {
+        return partitions.isEmpty();
+    }
+}
@@ -0,0 +1,261 @@
+package com.musala.gorskikh.services.partitions;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.integration.jdbc.lock.DefaultLockRepository;
+import org.springframework.integration.jdbc.lock.JdbcLockRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Leases of fleet partitions between the nodes of a cluster, claimed through the JDBC lock registry.
+ * <p>
+ * Every node holds a membership lock and claims up to {@code ceil(partitions / nodes)} partitions, releasing
+ * the partitions over its share when nodes join. Leases are renewed three times per lease period, so
+ * partitions of a failed node expire and are claimed by the other nodes within about one lease period.
+ * <p>
+ * Locks of the registry belong to the thread which obtained them, so all the lease work is done
+ * by a single lease keeper thread. It starts renewing the leases with the application context,
+ * once the lock table is created, and releases them when the context stops. The lease keeper lives as long
+ * as the bean, so a stopped context may be started again.
+ */
+@Slf4j
+@Service
+public class FleetPartitions implements SmartLifecycle {
+
+    private static final String PARTITION_LOCK = "fleet-partition-";
+    private static final String MEMBER_LOCK = "fleet-member-";
+
+    private static final String SELECT_NODES = """
+            SELECT COUNT(DISTINCT client_id) FROM int_lock
+            WHERE region = ? AND created_date >= ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String region;
+    private final int partitionCount;
+    private final Duration lease;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final JdbcLockRegistry lockRegistry;
+    private final ScheduledExecutorService leaseKeeper = Executors.newSingleThreadScheduledExecutor();
+    private volatile boolean running;
+    private ScheduledFuture<?> renewal;
+
+    /**
+     * Owned partition locks, accessed by the lease keeper only
+     */
+    private final NavigableMap<Integer, Lock> owned = new TreeMap<>();
+    private Lock memberLock;
+    private volatile FleetPartitionSet ownedPartitions;
+
+    public FleetPartitions(DataSource dataSource, PlatformTransactionManager transactionManager,
+                           JdbcTemplate jdbcTemplate,
+                           @Value("${drones.partitions.region:drones}") String region,
+                           @Value("${drones.partitions.count:16}") int partitionCount,
+                           @Value("${drones.partitions.lease:PT30S}") Duration lease) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.region = region;
+        this.partitionCount = partitionCount;
+        this.lease = lease;
+        this.ownedPartitions = new FleetPartitionSet(partitionCount, Set.of());
+
+        DefaultLockRepository lockRepository = new DefaultLockRepository(dataSource, nodeId);
+        lockRepository.setRegion(region);
+        lockRepository.setTimeToLive((int) lease.toMillis());
+        lockRepository.setTransactionManager(transactionManager);
+        lockRepository.afterPropertiesSet();
+        lockRepository.afterSingletonsInstantiated();
+        this.lockRegistry = new JdbcLockRegistry(lockRepository);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running)
+            return;
+
+        long renewInterval = lease.toMillis() / 3;
+        renewal = leaseKeeper.scheduleWithFixedDelay(this::rebalanceQuietly, 0, renewInterval, MILLISECONDS);
+        running = true;
+    }
+
+    /**
+     * Stops renewing the leases and releases them, so the other nodes take the partitions over
+     * without waiting for the leases to expire
+     */
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (renewal != null)
+            renewal.cancel(false);
+        renewal = null;
+        if (leaseKeeper.isShutdown())
+            return;
+
+        Future<?> released = leaseKeeper.submit(this::releaseAll);
+        try {
+            released.get(lease.toMillis(), MILLISECONDS);
+        } catch (ExecutionException | TimeoutException ex) {
+            log.warn("Leases of node {} weren't released: {}", nodeId, ex.toString());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return partitions owned by this node at the latest rebalance
+     */
+    public FleetPartitionSet getOwnedPartitions() {
+        return ownedPartitions;
+    }
+
+    /**
+     * Renews the owned leases and claims or releases partitions up to the fair share of this node
+     *
+     * @return partitions owned after the rebalance
+     */
+    public FleetPartitionSet rebalance() {
+        try {
+            return leaseKeeper.submit(this::doRebalance).get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Releases all leases and stops the lease keeper for good
+     */
+    @PreDestroy
+    public void shutdown() {
+        stop();
+        leaseKeeper.shutdown();
+    }
+
+    /**
+     * Stops renewing the leases without releasing them, as a failed node does
+     */
+    void abandon() {
+        running = false;
+        leaseKeeper.shutdownNow();
+    }
+
+    private void releaseAll() {
+        Set.copyOf(owned.keySet()).forEach(this::release);
+        if (memberLock != null)
+            unlockQuietly(memberLock);
+        memberLock = null;
+        ownedPartitions = new FleetPartitionSet(partitionCount, Set.of());
+    }
+
+    private FleetPartitionSet doRebalance() {
+        if (!renewMembership()) {
+            owned.clear();
+            ownedPartitions = new FleetPartitionSet(partitionCount, Set.of());
+            return ownedPartitions;
+        }
+        owned.keySet().removeIf(partition -> !renew(PARTITION_LOCK + partition));
+
+        int nodes = Math.max(1, countNodes());
+        int share = (partitionCount + nodes - 1) / nodes;
+
+        while (owned.size() > share)
+            release(owned.lastKey());
+
+        int offset = Math.floorMod(nodeId.hashCode(), partitionCount);
+        for (int i = 0; i < partitionCount && owned.size() < share; i++) {
+            int partition = (offset + i) % partitionCount;
+            if (owned.containsKey(partition))
+                continue;
+
+            Lock lock = lockRegistry.obtain(PARTITION_LOCK + partition);
+            if (lock.tryLock())
+                owned.put(partition, lock);
+        }
+
+        FleetPartitionSet partitions = new FleetPartitionSet(partitionCount, owned.keySet());
+        if (!partitions.equals(ownedPartitions))
+            log.info("Node {} of {} owns fleet partitions {} of {}", nodeId, nodes, partitions.partitions(),
+                    partitionCount);
+        ownedPartitions = partitions;
+        return partitions;
+    }
+
+    private boolean renewMembership() {
+        if (memberLock != null && renew(MEMBER_LOCK + nodeId))
+            return true;
+
+        memberLock = lockRegistry.obtain(MEMBER_LOCK + nodeId);
+        if (memberLock.tryLock())
+            return true;
+
+        memberLock = null;
+        return false;
+    }
+
+    private boolean renew(String lockKey) {
+        try {
+            lockRegistry.renewLock(lockKey);
+            return true;
+        } catch (IllegalStateException | IllegalMonitorStateException ex) {
+            log.warn("Lease {} of node {} was lost", lockKey, nodeId);
+            return false;
+        }
+    }
+
+    private void release(int partition) {
+        Lock lock = owned.remove(partition);
+        if (lock != null)
+            unlockQuietly(lock);
+    }
+
+    private int countNodes() {
+        LocalDateTime expiredBefore = LocalDateTime.now(ZoneOffset.UTC).minus(lease);
+        Integer nodes = jdbcTemplate.queryForObject(SELECT_NODES, Integer.class, region, expiredBefore);
+        return nodes != null ? nodes : 0;
+    }
+
+    private void rebalanceQuietly() {
+        try {
+            doRebalance();
+        } catch (RuntimeException ex) {
+            log.error("Couldn't rebalance fleet partitions", ex);
+        }
+    }
+
+    private static void unlockQuietly(Lock lock) {
+        try {
+            lock.unlock();
+        } catch (RuntimeException ex) {
+            log.warn("Couldn't release a lease: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.musala.gorskikh.services.telemetry;
+
+import com.musala.gorskikh.model.DroneState;
+import com.musala.gorskikh.model.TelemetryReading;
+import com.musala.gorskikh.services.DroneStateMachine;
+import com.musala.gorskikh.services.battery.BatteryHistory;
+import com.musala.gorskikh.services.battery.BatterySample;
+import com.musala.gorskikh.services.fleet.FleetIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.musala.gorskikh.util.ErrorsUtil.telemetryBatchTooLargeError;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.joining;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Coalescing write buffer of drone telemetry. Only the latest reading of every drone is kept,
+ * the buffer is flushed as batched JDBC updates every flush interval or as soon as it holds flush size drones.
+ * <p>
+ * A reading is applied only if it's newer than the latest applied one, and it increments the drone's version,
+ * so concurrent loads of the drone are retried over the new battery level and state. The reported state
+ * is written only if {@link DroneStateMachine} allows the transition from the current one, so telemetry
+ * can't move a drone out of a state a load has just set.
+ */
+@Slf4j
+@Service
+public class TelemetryBuffer {
+
+    private static final String UPDATE_DRONE = """
+            UPDATE drones SET battery_level = ?, state = %s, telemetry_at = ?, version = version + 1
+            WHERE serial_number = ? AND (telemetry_at IS NULL OR telemetry_at < ?)""".formatted(guardedState());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FleetIndex fleetIndex;
+    private final BatteryHistory batteryHistory;
+    private final int capacity;
+    private final int flushSize;
+    private final int batchSize;
+    private final Duration flushInterval;
+
+    private final Map<String, TelemetryReading> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicBoolean sizeFlushScheduled = new AtomicBoolean();
+
+    private final Counter acceptedReadings;
+    private final Counter rejectedReadings;
+    private final Counter ignoredReadings;
+    private final Timer flushes;
+
+    public TelemetryBuffer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           FleetIndex fleetIndex, BatteryHistory batteryHistory, MeterRegistry meterRegistry,
+                           @Value("${drones.telemetry.buffer-capacity:100000}") int capacity,
+                           @Value("${drones.telemetry.flush-interval:200ms}") Duration flushInterval,
+                           @Value("${drones.telemetry.flush-size:5000}") int flushSize,
+                           @Value("${drones.jdbc.batch-size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fleetIndex = fleetIndex;
+        this.batteryHistory = batteryHistory;
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+
+        this.acceptedReadings = meterRegistry.counter("drones.telemetry.readings", "result", "accepted");
+        this.rejectedReadings = meterRegistry.counter("drones.telemetry.readings", "result", "rejected");
+        this.ignoredReadings = meterRegistry.counter("drones.telemetry.readings", "result", "ignored");
+        this.flushes = meterRegistry.timer("drones.telemetry.flush");
+        meterRegistry.gaugeMapSize("drones.telemetry.buffer.size", List.of(), pending);
+
+        flusher.scheduleWithFixedDelay(this::flushQuietly,
+                flushInterval.toMillis(), flushInterval.toMillis(), MILLISECONDS);
+    }
+
+    /**
+     * Accepts the readings into the buffer without waiting for the database
+     *
+     * @return false if the buffer is full, in which case none of the readings is accepted
+     * @throws HttpServerErrorException with {@code BAD_REQUEST} if the readings exceed the capacity of the buffer,
+     *                                  as they would be rejected even by an empty buffer
+     */
+    public boolean offer(@NonNull List<TelemetryReading> readings) {
+        if (readings.size() > capacity)
+            throw new HttpServerErrorException(BAD_REQUEST, telemetryBatchTooLargeError(readings.size(), capacity));
+
+        if (pending.size() + readings.size() > capacity) {
+            rejectedReadings.increment(readings.size());
+            return false;
+        }
+
+        readings.forEach(this::merge);
+        acceptedReadings.increment(readings.size());
+
+        if (pending.size() >= flushSize && sizeFlushScheduled.compareAndSet(false, true))
+            flusher.execute(this::flushQuietly);
+        return true;
+    }
+
+    /**
+     * @return seconds a client should wait before offering rejected readings again
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, flushInterval.toSeconds() + (flushInterval.toNanosPart() > 0 ? 1 : 0));
+    }
+
+    /**
+     * Writes the buffered readings. If the write fails, the readings are put back into the buffer,
+     * unless newer readings of the same drones were offered meanwhile.
+     *
+     * @return count of drones updated by the readings
+     */
+    public synchronized int flush() {
+        sizeFlushScheduled.set(false);
+
+        List<TelemetryReading> readings = new ArrayList<>(pending.size());
+        for (String serialNumber : pending.keySet()) {
+            TelemetryReading reading = pending.remove(serialNumber);
+            if (reading != null)
+                readings.add(reading);
+        }
+        if (readings.isEmpty())
+            return 0;
+
+        try {
+            return flushes.record(() -> write(readings));
+        } catch (RuntimeException ex) {
+            readings.forEach(this::merge);
+            throw ex;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flushQuietly();
+    }
+
+    /**
+     * Writes all the batches in a single transaction, so the readings are either written or can be written again.
+     * The index and the battery history are updated only once the transaction is committed, the index
+     * with the drones read back in the transaction.
+     */
+    private int write(List<TelemetryReading> readings) {
+        List<TelemetryReading> applied = transactionTemplate.execute(status -> {
+            int[][] updateCounts = jdbcTemplate.batchUpdate(UPDATE_DRONE, readings, batchSize, (statement, reading) -> {
+                long telemetryAt = reading.getTimestamp().toEpochMilli();
+                statement.setBigDecimal(1, reading.getBatteryLevel());
+                statement.setString(2, reading.getState().name());
+                statement.setLong(3, telemetryAt);
+                statement.setString(4, reading.getDroneSerialNumber());
+                statement.setLong(5, telemetryAt);
+            });
+
+            List<TelemetryReading> updated = new ArrayList<>(readings.size());
+            int index = 0;
+            for (int[] batch : updateCounts) {
+                for (int updateCount : batch) {
+                    TelemetryReading reading = readings.get(index++);
+                    if (updateCount != 0)
+                        updated.add(reading);
+                }
+            }
+            fleetIndex.refreshAfterCommit(updated.stream().map(TelemetryReading::getDroneSerialNumber).toList());
+            return updated;
+        });
+
+        List<BatterySample> samples = applied.stream()
+                .map(reading -> new BatterySample(reading.getDroneSerialNumber(), reading.getTimestamp(),
+                        reading.getBatteryLevel()))
+                .toList();
+        batteryHistory.record(samples);
+        ignoredReadings.increment(readings.size() - samples.size());
+
+        log.debug("Telemetry of {} drones was written, {} readings were ignored",
+                samples.size(), readings.size() - samples.size());
+        return samples.size();
+    }
+
+    private void merge(TelemetryReading reading) {
+        pending.merge(reading.getDroneSerialNumber(), reading,
+                (current, offered) -> offered.getTimestamp().isAfter(current.getTimestamp()) ? offered : current);
+    }
+
+    /**
+     * @return expression of the reported state if it may follow the current one, of the current state otherwise
+     */
+    private static String guardedState() {
+        StringBuilder expression = new StringBuilder("CASE CAST(? AS VARCHAR(30))");
+        for (DroneState target : DroneState.values()) {
+            String sources = DroneStateMachine.getSources(target).stream()
+                    .map(source -> "'" + source.name() + "'")
+                    .collect(joining(", "));
+            if (!sources.isEmpty())
+                expression.append(" WHEN '").append(target.name()).append("' THEN CASE WHEN state IN (")
+                        .append(sources).append(") THEN '").append(target.name()).append("' ELSE state END");
+        }
+        return expression.append(" ELSE state END").toString();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.error("Couldn't write telemetry", ex);
+        }
+    }
+}
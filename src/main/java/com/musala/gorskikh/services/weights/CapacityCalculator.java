@@ -0,0 +1,33 @@
+package com.musala.gorskikh.services.weights;
+
+import lombok.NoArgsConstructor;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Capacity math of drones on {@link Milligrams}, which allocates nothing. Weights are non-negative,
+ * their products and sums saturate at {@link Long#MAX_VALUE}, which fits into no drone, instead of overflowing.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public class CapacityCalculator {
+
+    public static long freeSpace(long weightLimitMg, long payloadMg) {
+        return weightLimitMg - payloadMg;
+    }
+
+    public static long weight(long weightMg, int count) {
+        if (count > 0 && weightMg > Long.MAX_VALUE / count)
+            return Long.MAX_VALUE;
+
+        return weightMg * count;
+    }
+
+    public static long add(long weightMg, long otherWeightMg) {
+        long sum = weightMg + otherWeightMg;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    public static boolean fits(long weightMg, long freeSpaceMg) {
+        return weightMg <= freeSpaceMg;
+    }
+}
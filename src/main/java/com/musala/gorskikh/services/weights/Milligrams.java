@@ -0,0 +1,62 @@
+package com.musala.gorskikh.services.weights;
+
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Fixed-point weights: grams are stored by the database and exchanged with clients as {@link BigDecimal},
+ * and held in between as a {@code long} count of milligrams.
+ * <p>
+ * Grams finer than a milligram are rounded in favour of the capacity check, so a load never fits
+ * in milligrams if it doesn't fit in exact grams: weights of medications and payloads are rounded up
+ * by {@link #ofWeight}, limits of drones are rounded down by {@link #ofLimit}, a requested free capacity
+ * is rounded up by {@link #ofRequestedCapacity}. Milligrams convert back to grams exactly.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public class Milligrams {
+
+    public static final int PER_GRAM = 1000;
+
+    private static final int SCALE = 3;
+
+    public static long ofWeight(@NonNull BigDecimal grams) {
+        return of(grams, RoundingMode.CEILING);
+    }
+
+    public static long ofLimit(@NonNull BigDecimal grams) {
+        return of(grams, RoundingMode.FLOOR);
+    }
+
+    /**
+     * A capacity comes from a client, so one out of {@code long} range is clamped to it
+     */
+    public static long ofRequestedCapacity(@NonNull BigDecimal grams) {
+        try {
+            return of(grams, RoundingMode.CEILING);
+        } catch (ArithmeticException ex) {
+            return grams.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * @return grams without trailing zeros, e.g. {@code 45} for 45000 milligrams and {@code 45.5} for 45500
+     */
+    public static BigDecimal toGrams(long milligrams) {
+        if (milligrams % PER_GRAM == 0)
+            return BigDecimal.valueOf(milligrams / PER_GRAM);
+
+        return BigDecimal.valueOf(milligrams, SCALE).stripTrailingZeros();
+    }
+
+    /**
+     * @throws ArithmeticException if the weight doesn't fit into {@code long} milligrams
+     */
+    private static long of(BigDecimal grams, RoundingMode roundingMode) {
+        return grams.setScale(SCALE, roundingMode).unscaledValue().longValueExact();
+    }
+}
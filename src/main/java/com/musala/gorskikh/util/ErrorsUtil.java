@@ -1,76 +1,294 @@
 package com.musala.gorskikh.util;
 
+import com.musala.gorskikh.model.DroneModelEnum;
 import com.musala.gorskikh.model.DroneState;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-import static java.lang.String.format;
 import static lombok.AccessLevel.PRIVATE;
 
+/**
+ * Messages of errors returned to clients. The util only builds messages, a rejection is counted where it's
+ * returned to the client, see {@link com.musala.gorskikh.services.metrics.RejectionCounter}, which finds
+ * its reason by {@link #reasonOf}.
+ */
 @NoArgsConstructor(access = PRIVATE)
 public class ErrorsUtil {
 
+    /**
+     * Reason of messages not built by the util
+     */
+    public static final String UNKNOWN_REASON = "unknown";
+
+    private static final Pattern FORMAT_SPECIFIER = Pattern.compile("%[s%]");
+    private static final List<Rejection> REJECTIONS = new ArrayList<>();
+
+    private static final Rejection LESS_THAN_MIN_BATTERY_LEVEL = rejection("less-than-min-battery-level",
+            "Couldn't load the drone with serial number '%s', because level of battery is " +
+                    "%s%% and lower than %s%%");
+    private static final Rejection DRONE_NOT_EXIST = rejection("drone-not-exist",
+            "There isn't drone with serial number: '%s'");
+    private static final Rejection EMPTY_MEDICATIONS_LIST = rejection("empty-medications-list",
+            "Medications list for loading cannot be empty");
+    private static final Rejection DRONE_ALREADY_EXIST = rejection("drone-already-exist",
+            "Drone with serial number '%s' already exists");
+    private static final Rejection SERIAL_NUMBER_IS_BLANK = rejection("serial-number-is-blank",
+            "Serial number of new drone cannot be blank");
+    private static final Rejection SERIAL_NUMBER_IS_NULL = rejection("serial-number-is-null",
+            "Serial number of new drone cannot be null");
+    private static final Rejection SERIAL_NUMBER_IS_TOO_LONG = rejection("serial-number-is-too-long",
+            "Serial number of new drone cannot be longer than %s characters");
+    private static final Rejection UNKNOWN_DRONE_MODEL = rejection("unknown-drone-model", "Unknown model of drone: %s");
+    private static final Rejection MALFORMED_IMPORT_ROW = rejection("malformed-import-row",
+            "Couldn't parse the row: %s");
+    private static final Rejection CATALOG_MANIFEST_MISSING = rejection("catalog-manifest-missing",
+            "The archive must start with the manifest '%s'");
+    private static final Rejection MEDICATION_CODE_IS_BLANK = rejection("medication-code-is-blank",
+            "Code of medication cannot be blank");
+    private static final Rejection MEDICATION_NAME_IS_BLANK = rejection("medication-name-is-blank",
+            "Name of medication cannot be blank");
+    private static final Rejection MEDICATION_FIELD_IS_TOO_LONG = rejection("medication-field-is-too-long",
+            "%s of medication cannot be longer than %s characters");
+    private static final Rejection MEDICATION_FIELD_MISMATCHES_PATTERN =
+            rejection("medication-field-mismatches-pattern", "%s of medication must match the pattern %s");
+    private static final Rejection MEDICATION_WEIGHT_OUT_OF_RANGE = rejection("medication-weight-out-of-range",
+            "Weight of medication must be from %s to %s grams, but it is %s");
+    private static final Rejection DUPLICATE_MEDICATION = rejection("duplicate-medication",
+            "Medication with code '%s' is repeated in the manifest");
+    private static final Rejection UNKNOWN_MEDICATION_IMAGE = rejection("unknown-medication-image",
+            "Image '%s' isn't named after a medication of the manifest");
+    private static final Rejection NOT_JPEG_IMAGE = rejection("not-jpeg-image", "Image '%s' isn't a JPEG image");
+    private static final Rejection MODEL_IS_NULL = rejection("model-is-null", "Model of new drone cannot be null");
+    private static final Rejection OVERWEIGHT_LOADING = rejection("overweight-loading",
+            "Error while loading drone with serial number: '%s'. Medications total weight is " +
+                    "%s and available free space is %s");
+    private static final Rejection MEDICATIONS_NOT_EXIST = rejection("medications-not-exist",
+            "Medications with codes %s don't exist");
+    private static final Rejection MEDICATIONS_DUPLICATE = rejection("medications-duplicate",
+            "Gotten duplicate medications codes: %s");
+    private static final Rejection COUNT_WRONG = rejection("count-wrong",
+            "Gotten wrong medicine counts for loading: %s");
+    private static final Rejection ILLEGAL_DRONE_STATE = rejection("illegal-drone-state",
+            "Illegal state of drone with serial number '%s': %s. Expected state: %s");
+    private static final Rejection ILLEGAL_STATE_TRANSITION = rejection("illegal-state-transition",
+            "Couldn't change state of drone with serial number '%s' to %s");
+    private static final Rejection CONCURRENT_LOADING = rejection("concurrent-loading",
+            "Couldn't load the drone with serial number '%s': it was changed concurrently " +
+                    "during %s attempts");
+    private static final Rejection WRONG_CURSOR = rejection("wrong-cursor", "Cursor '%s' is wrong");
+    private static final Rejection STREAM_LIMIT = rejection("stream-limit",
+            "Limit isn't supported by a stream, it can only start after a cursor");
+    private static final Rejection EMPTY_SERIAL_NUMBERS_LIST = rejection("empty-serial-numbers-list",
+            "List of serial numbers cannot be empty");
+    private static final Rejection TOO_MANY_SERIAL_NUMBERS = rejection("too-many-serial-numbers",
+            "List of serial numbers cannot be longer than %s");
+    private static final Rejection EMPTY_LOADS_LIST = rejection("empty-loads-list", "List of loads cannot be empty");
+    private static final Rejection BULK_LOAD_ROLLED_BACK = rejection("bulk-load-rolled-back",
+            "The drone wasn't loaded, because another load of the all-or-nothing request " +
+                    "failed");
+    private static final Rejection CONCURRENT_BULK_LOADING = rejection("concurrent-bulk-loading",
+            "Couldn't load the drones: they were changed concurrently during %s attempts");
+    private static final Rejection TELEMETRY_BATCH_TOO_LARGE = rejection("telemetry-batch-too-large",
+            "Batch of %s readings exceeds the telemetry buffer capacity %s, it should be sent " +
+                    "in parts");
+    private static final Rejection MEDICATION_IMAGE_NOT_EXIST = rejection("medication-image-not-exist",
+            "There isn't image of medication with code: '%s'");
+    private static final Rejection ILLEGAL_TIME_RANGE = rejection("illegal-time-range",
+            "Start of the time range %s must be before its end %s");
+
     public static String lessThanMinBatteryLevelError(@NonNull String droneSerialNumber,
                                                       @NonNull BigDecimal minBatteryLevel,
                                                       @NonNull BigDecimal factBatteryLevel) {
-        return format("Couldn't load the drone with serial number '%s', " +
-                        "because level of battery is %s%% and lower than %s%%",
-                droneSerialNumber, minBatteryLevel, factBatteryLevel);
+        return LESS_THAN_MIN_BATTERY_LEVEL.format(droneSerialNumber, minBatteryLevel, factBatteryLevel);
     }
 
     public static String droneNotExistError(@NonNull String droneSerialNumber) {
-        return format("There isn't drone with serial number: '%s'", droneSerialNumber);
+        return DRONE_NOT_EXIST.format(droneSerialNumber);
     }
 
     public static String emptyMedicationsListError() {
-        return "Medications list for loading cannot be empty";
+        return EMPTY_MEDICATIONS_LIST.format();
     }
 
     public static String droneAlreadyExistError(@NonNull String droneSerialNumber) {
-        return format("Drone with serial number '%s' already exists", droneSerialNumber);
+        return DRONE_ALREADY_EXIST.format(droneSerialNumber);
     }
 
     public static String serialNumberIsBlankError() {
-        return "Serial number of new drone cannot be blank";
+        return SERIAL_NUMBER_IS_BLANK.format();
     }
 
     public static String serialNumberIsNullError() {
-        return "Serial number of new drone cannot be null";
+        return SERIAL_NUMBER_IS_NULL.format();
+    }
+
+    public static String serialNumberIsTooLongError(int maxLength) {
+        return SERIAL_NUMBER_IS_TOO_LONG.format(maxLength);
+    }
+
+    public static String unknownDroneModelError(@NonNull DroneModelEnum model) {
+        return UNKNOWN_DRONE_MODEL.format(model);
+    }
+
+    public static String malformedImportRowError(@NonNull String reason) {
+        return MALFORMED_IMPORT_ROW.format(reason);
+    }
+
+    public static String catalogManifestMissingError(@NonNull String manifest) {
+        return CATALOG_MANIFEST_MISSING.format(manifest);
+    }
+
+    public static String medicationCodeIsBlankError() {
+        return MEDICATION_CODE_IS_BLANK.format();
+    }
+
+    public static String medicationNameIsBlankError() {
+        return MEDICATION_NAME_IS_BLANK.format();
+    }
+
+    public static String medicationFieldIsTooLongError(@NonNull String field, int maxLength) {
+        return MEDICATION_FIELD_IS_TOO_LONG.format(field, maxLength);
+    }
+
+    public static String medicationFieldMismatchesPatternError(@NonNull String field, @NonNull String pattern) {
+        return MEDICATION_FIELD_MISMATCHES_PATTERN.format(field, pattern);
+    }
+
+    public static String medicationWeightOutOfRangeError(BigDecimal weight, int minWeight, int maxWeight) {
+        return MEDICATION_WEIGHT_OUT_OF_RANGE.format(minWeight, maxWeight, weight);
+    }
+
+    public static String duplicateMedicationError(@NonNull String code) {
+        return DUPLICATE_MEDICATION.format(code);
+    }
+
+    public static String unknownMedicationImageError(@NonNull String entry) {
+        return UNKNOWN_MEDICATION_IMAGE.format(entry);
+    }
+
+    public static String notJpegImageError(@NonNull String entry) {
+        return NOT_JPEG_IMAGE.format(entry);
     }
 
     public static String modelIsNullError() {
-        return "Model of new drone cannot be null";
+        return MODEL_IS_NULL.format();
     }
 
     public static String overweightLoadingError(@NonNull String droneSerialNumber,
                                                 BigDecimal freeSpace, BigDecimal medicationsWeight) {
-        return format("Error while loading drone with serial number: '%s'. " +
-                        "Medications total weight is %s and available free space is %s",
-                droneSerialNumber, medicationsWeight, freeSpace);
+        return OVERWEIGHT_LOADING.format(droneSerialNumber, medicationsWeight, freeSpace);
     }
 
     public static String medicationsNotExistError(@NonNull List<String> medicationCodes) {
-        return format("Medications with codes %s don't exist", String.join(",", medicationCodes));
+        return MEDICATIONS_NOT_EXIST.format(String.join(",", medicationCodes));
     }
 
     public static String medicationsDuplicateError(@NonNull List<String> duplicateCodes) {
-        return format("Gotten duplicate medications codes: %s", String.join(",", duplicateCodes));
+        return MEDICATIONS_DUPLICATE.format(String.join(",", duplicateCodes));
     }
 
     public static String countWrongError(@NonNull Map<String, Integer> wrongCodeToCount) {
         List<String> wrongItems = wrongCodeToCount.entrySet().stream()
                 .map(e -> e.getKey() + ": " + e.getValue()).toList();
-        return format("Gotten wrong medicine counts for loading: %s", String.join(",", wrongItems));
+        return COUNT_WRONG.format(String.join(",", wrongItems));
     }
 
     public static String illegalDroneStateError(String droneSerialNumber,
                                                 DroneState factState, List<DroneState> expectedStates) {
         String states = String.join(",", expectedStates.stream().map(DroneState::getValue).toList());
-        return format("Illegal state of drone with serial number '%s': %s. Expected state: %s",
-                droneSerialNumber, factState, states);
+        return ILLEGAL_DRONE_STATE.format(droneSerialNumber, factState, states);
+    }
+
+    public static String illegalStateTransitionError(@NonNull String droneSerialNumber, DroneState targetState) {
+        return ILLEGAL_STATE_TRANSITION.format(droneSerialNumber, targetState);
+    }
+
+    public static String concurrentLoadingError(@NonNull String droneSerialNumber, int attempts) {
+        return CONCURRENT_LOADING.format(droneSerialNumber, attempts);
+    }
+
+    public static String wrongCursorError(@NonNull String cursor) {
+        return WRONG_CURSOR.format(cursor);
+    }
+
+    public static String streamLimitError() {
+        return STREAM_LIMIT.format();
+    }
+
+    public static String emptySerialNumbersListError() {
+        return EMPTY_SERIAL_NUMBERS_LIST.format();
+    }
+
+    public static String tooManySerialNumbersError(int maxCount) {
+        return TOO_MANY_SERIAL_NUMBERS.format(maxCount);
+    }
+
+    public static String emptyLoadsListError() {
+        return EMPTY_LOADS_LIST.format();
+    }
+
+    public static String bulkLoadRolledBackError() {
+        return BULK_LOAD_ROLLED_BACK.format();
+    }
+
+    public static String concurrentBulkLoadingError(int attempts) {
+        return CONCURRENT_BULK_LOADING.format(attempts);
+    }
+
+    public static String telemetryBatchTooLargeError(int size, int capacity) {
+        return TELEMETRY_BATCH_TOO_LARGE.format(size, capacity);
+    }
+
+    public static String medicationImageNotExistError(@NonNull String medicationCode) {
+        return MEDICATION_IMAGE_NOT_EXIST.format(medicationCode);
+    }
+
+    public static String illegalTimeRangeError(@NonNull Instant from, @NonNull Instant to) {
+        return ILLEGAL_TIME_RANGE.format(from, to);
+    }
+
+    /**
+     * @return the reason of the rejection whose message was built by the util, {@value #UNKNOWN_REASON} otherwise
+     */
+    public static String reasonOf(@NonNull String message) {
+        for (Rejection rejection : REJECTIONS) {
+            if (rejection.pattern.matcher(message).matches())
+                return rejection.reason;
+        }
+        return UNKNOWN_REASON;
+    }
+
+    private static Rejection rejection(String reason, String template) {
+        StringBuilder regex = new StringBuilder();
+        Matcher specifier = FORMAT_SPECIFIER.matcher(template);
+        int literalStart = 0;
+        while (specifier.find()) {
+            regex.append(Pattern.quote(template.substring(literalStart, specifier.start())))
+                    .append(specifier.group().equals("%%") ? "%" : ".*");
+            literalStart = specifier.end();
+        }
+        regex.append(Pattern.quote(template.substring(literalStart)));
+
+        Rejection rejection = new Rejection(reason, template, Pattern.compile(regex.toString(), Pattern.DOTALL));
+        REJECTIONS.add(rejection);
+        return rejection;
+    }
+
+    /**
+     * Reason of a rejection and the template of its message, the pattern matches the messages built by the template
+     */
+    private record Rejection(String reason, String template, Pattern pattern) {
+
+        private String format(Object... args) {
+            return String.format(template, args);
+        }
     }
 }
@@ -0,0 +1,38 @@
+package com.musala.gorskikh.util;
+
+import lombok.NoArgsConstructor;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static lombok.AccessLevel.PRIVATE;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Opaque cursor of keyset pagination holding the last key of the previous page
+ */
+@NoArgsConstructor(access = PRIVATE)
+public class KeysetCursor {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public static String encode(String key) {
+        return ENCODER.encodeToString(key.getBytes(UTF_8));
+    }
+
+    /**
+     * @return the key or an empty string, which is lower than any key, if the cursor is null
+     */
+    public static String decode(String cursor) {
+        if (cursor == null)
+            return "";
+
+        try {
+            return new String(DECODER.decode(cursor), UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new HttpServerErrorException(BAD_REQUEST, ErrorsUtil.wrongCursorError(cursor));
+        }
+    }
+}
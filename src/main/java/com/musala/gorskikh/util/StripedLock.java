@@ -0,0 +1,46 @@
+package com.musala.gorskikh.util;
+
+import lombok.NonNull;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of locks shared by hash of the key: operations on the same key are serialized,
+ * operations on different keys only contend when their keys fall into the same stripe.
+ */
+public class StripedLock {
+
+    private final Lock[] stripes;
+
+    public StripedLock(int stripesCount) {
+        if (stripesCount <= 0)
+            throw new IllegalArgumentException("Count of stripes must be positive: " + stripesCount);
+
+        this.stripes = new Lock[stripesCount];
+        for (int i = 0; i < stripesCount; i++)
+            stripes[i] = new ReentrantLock();
+    }
+
+    public Lock get(@NonNull String key) {
+        return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    }
+
+    public <T> T callUnderLock(@NonNull String key, @NonNull Supplier<T> action) {
+        Lock lock = get(key);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void runUnderLock(@NonNull String key, @NonNull Runnable action) {
+        callUnderLock(key, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,7 @@
+alter table drones
+    add column payload_weight_gr numeric default 0 not null check (payload_weight_gr >= 0);
+
+alter table drones
+    add column items_count integer default 0 not null check (items_count >= 0);
+
+commit;
@@ -0,0 +1,10 @@
+update drones d
+set payload_weight_gr = (select coalesce(sum(m.weight_gr * dm.count), 0)
+                         from drone_medication dm
+                                  join medications m on m.code = dm.medication_code
+                         where dm.drone_serial_number = d.serial_number),
+    items_count       = (select coalesce(sum(dm.count), 0)
+                         from drone_medication dm
+                         where dm.drone_serial_number = d.serial_number);
+
+commit;
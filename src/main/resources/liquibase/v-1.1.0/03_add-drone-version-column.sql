@@ -0,0 +1,4 @@
+alter table drones
+    add column version bigint default 0 not null;
+
+commit;
@@ -0,0 +1,14 @@
+create table medication_images
+(
+    medication_code varchar(50) primary key references medications (code) on delete cascade,
+    image           blob        not null
+);
+
+insert into medication_images (medication_code, image)
+select code, image
+from medications;
+
+alter table medications
+    drop column image;
+
+commit;
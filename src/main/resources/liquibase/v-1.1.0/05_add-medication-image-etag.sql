@@ -0,0 +1,17 @@
+alter table medication_images
+    add column etag varchar(64);
+
+alter table medication_images
+    add column size bigint;
+
+update medication_images
+set etag = lower(rawtohex(hash('SHA-256', image))),
+    size = octet_length(image);
+
+alter table medication_images
+    alter column etag set not null;
+
+alter table medication_images
+    alter column size set not null;
+
+commit;
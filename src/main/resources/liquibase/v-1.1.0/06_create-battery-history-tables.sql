@@ -0,0 +1,24 @@
+-- raw battery samples, level in tenths of percent
+create table battery_samples
+(
+    drone_serial_number varchar(100) not null,
+    sampled_at          bigint       not null,
+    level               smallint     not null check (level >= 0 and level <= 1000),
+
+    primary key (drone_serial_number, sampled_at)
+);
+
+-- downsampled battery samples, levels in tenths of percent
+create table battery_buckets
+(
+    drone_serial_number varchar(100) not null,
+    bucket_start        bigint       not null,
+    min_level           smallint     not null,
+    max_level           smallint     not null,
+    level_sum           bigint       not null,
+    samples             integer      not null,
+
+    primary key (drone_serial_number, bucket_start)
+);
+
+commit;
@@ -0,0 +1,5 @@
+-- time of the latest applied telemetry reading in epoch milliseconds
+alter table drones
+    add column telemetry_at bigint;
+
+commit;
@@ -0,0 +1,12 @@
+-- leases of the JDBC lock registry, the schema of spring-integration-jdbc
+create table int_lock
+(
+    lock_key     char(36)     not null,
+    region       varchar(100) not null,
+    client_id    char(36),
+    created_date timestamp    not null,
+
+    constraint int_lock_pk primary key (lock_key, region)
+);
+
+commit;
@@ -0,0 +1,5 @@
+-- ingestion order of raw battery samples, bounds a downsampling to the samples it has aggregated
+alter table battery_samples
+    add column id bigint generated by default as identity;
+
+commit;
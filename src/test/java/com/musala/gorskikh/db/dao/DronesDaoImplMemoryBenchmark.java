@@ -0,0 +1,116 @@
+package com.musala.gorskikh.db.dao;
+
+import com.musala.gorskikh.db.entities.MedicationImageEntity;
+import com.musala.gorskikh.db.repositories.MedicationImagesRepository;
+import com.musala.gorskikh.db.repositories.MedicationsRepository;
+import com.musala.gorskikh.model.CreateDroneRequest;
+import com.musala.gorskikh.model.LoadingMedication;
+import com.musala.gorskikh.services.catalog.CatalogCache;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static com.musala.gorskikh.model.DroneModelEnum.HEAVYWEIGHT;
+import static com.musala.gorskikh.util.TestUtil.bd;
+import static com.musala.gorskikh.util.TestUtil.createMedicationEntity;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+/**
+ * Heap allocated by the calling thread per {@link DronesDao#load} of a 20 medication manifest
+ * whose medications have 256 KB images.
+ * <p>
+ * The "eager images" case reads the images along with the catalog rows, as {@code load()} did while the image
+ * was a column of {@code medications}. Not a part of the regular build, run it explicitly:
+ * {@code mvn test -Dtest=DronesDaoImplMemoryBenchmark}.
+ */
+@Slf4j
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+@TestInstance(PER_CLASS)
+class DronesDaoImplMemoryBenchmark {
+
+    private static final int MEDICATIONS = 20;
+    private static final int IMAGE_SIZE = 256 * 1024;
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int ITERATIONS = 50;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final DronesDao dronesDao;
+    private final MedicationsRepository medicationsRepository;
+    private final MedicationImagesRepository medicationImagesRepository;
+    private final CatalogCache catalogCache;
+
+    private final AtomicInteger droneCounter = new AtomicInteger();
+    private List<LoadingMedication> manifest;
+    private List<String> codes;
+
+    @Autowired
+    public DronesDaoImplMemoryBenchmark(DronesDao dronesDao, MedicationsRepository medicationsRepository,
+                                        MedicationImagesRepository medicationImagesRepository,
+                                        CatalogCache catalogCache) {
+        this.dronesDao = dronesDao;
+        this.medicationsRepository = medicationsRepository;
+        this.medicationImagesRepository = medicationImagesRepository;
+        this.catalogCache = catalogCache;
+    }
+
+    @BeforeAll
+    void createCatalog() {
+        codes = IntStream.rangeClosed(1, MEDICATIONS).mapToObj(i -> "memory_med_code_" + i).toList();
+        codes.forEach(code -> {
+            medicationsRepository.save(createMedicationEntity(code, bd(1), code));
+            medicationImagesRepository.save(new MedicationImageEntity(code, new byte[IMAGE_SIZE]));
+        });
+        manifest = codes.stream().map(code -> new LoadingMedication(code, 1)).toList();
+    }
+
+    @Test
+    @DisplayName("Allocation per load: eager images vs image-free projections")
+    void load() {
+        long eagerImages = measure(serialNumber -> {
+            medicationImagesRepository.findAllById(codes);
+            catalogCache.invalidateAll();
+            dronesDao.load(serialNumber, manifest);
+        });
+        long coldCatalog = measure(serialNumber -> {
+            catalogCache.invalidateAll();
+            dronesDao.load(serialNumber, manifest);
+        });
+        long warmCatalog = measure(serialNumber -> dronesDao.load(serialNumber, manifest));
+
+        log.info("Allocated per load(): eager images {} KB, image-free cold catalog {} KB, warm catalog {} KB",
+                eagerImages / 1024, coldCatalog / 1024, warmCatalog / 1024);
+    }
+
+    private long measure(Consumer<String> load) {
+        IntStream.range(0, WARMUP_ITERATIONS).forEach(i -> load.accept(registerDrone()));
+
+        long total = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            String serialNumber = registerDrone();
+            long before = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+            load.accept(serialNumber);
+            total += THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - before;
+        }
+        return total / ITERATIONS;
+    }
+
+    private String registerDrone() {
+        String serialNumber = "memory-serial-number_" + droneCounter.incrementAndGet();
+        dronesDao.register(new CreateDroneRequest(serialNumber, HEAVYWEIGHT));
+        return serialNumber;
+    }
+}
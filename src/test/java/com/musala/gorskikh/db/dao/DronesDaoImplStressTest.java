@@ -0,0 +1,139 @@
+package com.musala.gorskikh.db.dao;
+
+import com.musala.gorskikh.db.entities.DroneEntity;
+import com.musala.gorskikh.db.repositories.DronesRepository;
+import com.musala.gorskikh.model.CreateDroneRequest;
+import com.musala.gorskikh.model.LoadingMedication;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static com.musala.gorskikh.model.DroneModelEnum.LIGHTWEIGHT;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+class DronesDaoImplStressTest {
+
+    private static final int THREADS = 8;
+    private static final int LOADS_PER_THREAD = 40;
+
+    /**
+     * med_code_1 weighs 10 gr, so a LIGHTWEIGHT drone (100 gr) accepts exactly 10 loads.
+     */
+    private static final List<LoadingMedication> MANIFEST = List.of(new LoadingMedication("med_code_1", 1));
+    private static final int LOADS_PER_DRONE = 10;
+
+    private final DronesDao dronesDao;
+    private final DronesRepository dronesRepository;
+
+    @Autowired
+    public DronesDaoImplStressTest(DronesDao dronesDao, DronesRepository dronesRepository) {
+        this.dronesDao = dronesDao;
+        this.dronesRepository = dronesRepository;
+    }
+
+    @Test
+    @DisplayName("Concurrent loads of the same drone never overload it")
+    void load_whenSameDrone() throws Exception {
+        List<String> serialNumbers = registerDrones("stress-single", 1);
+
+        //when
+        StressResult result = hammer(serialNumbers);
+
+        //then
+        assertEquals(LOADS_PER_DRONE, result.accepted());
+        assertEquals(0, countOverloaded(serialNumbers));
+    }
+
+    @Test
+    @DisplayName("Concurrent loads of different drones are all accepted")
+    void load_whenManyDrones() throws Exception {
+        List<String> serialNumbers = registerDrones("stress-many", THREADS * LOADS_PER_THREAD / LOADS_PER_DRONE);
+
+        //when
+        StressResult result = hammer(serialNumbers);
+
+        //then
+        assertEquals(THREADS * LOADS_PER_THREAD, result.accepted());
+        assertEquals(0, countOverloaded(serialNumbers));
+    }
+
+    private StressResult hammer(List<String> serialNumbers) throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = IntStream.range(0, THREADS)
+                    .<Future<?>>mapToObj(t -> executor.submit(() -> {
+                        for (int i = 0; i < LOADS_PER_THREAD; i++) {
+                            String serialNumber = serialNumbers.get((t * LOADS_PER_THREAD + i) % serialNumbers.size());
+                            try {
+                                dronesDao.load(serialNumber, MANIFEST);
+                                accepted.incrementAndGet();
+                            } catch (HttpServerErrorException ex) {
+                                rejected.incrementAndGet();
+                            }
+                        }
+                    }))
+                    .toList();
+
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        StressResult result = new StressResult(accepted.get(), rejected.get(), elapsedNanos);
+        log.info("Loads of {} drone(s) by {} threads: accepted {}, rejected {}, throughput {} loads/s",
+                serialNumbers.size(), THREADS, result.accepted(), result.rejected(), result.throughput());
+        return result;
+    }
+
+    private List<String> registerDrones(String prefix, int count) {
+        List<String> serialNumbers = IntStream.range(0, count)
+                .mapToObj(i -> prefix + "-serial-number_" + i)
+                .toList();
+        serialNumbers.forEach(s -> dronesDao.register(new CreateDroneRequest(s, LIGHTWEIGHT)));
+        return serialNumbers;
+    }
+
+    private long countOverloaded(List<String> serialNumbers) {
+        List<DroneEntity> drones = dronesRepository.findAllById(serialNumbers);
+        assertEquals(serialNumbers.size(), drones.size());
+
+        long overloaded = drones.stream()
+                .filter(d -> d.getPayloadWeight().compareTo(d.getModel().getWeightLimit()) > 0)
+                .count();
+        if (overloaded > 0)
+            log.error("Found {} overloaded drone(s)", overloaded);
+
+        assertTrue(drones.stream().allMatch(d -> d.getItemsCount() <= LOADS_PER_DRONE));
+        return overloaded;
+    }
+
+    private record StressResult(int accepted, int rejected, long elapsedNanos) {
+
+        long throughput() {
+            return (accepted + rejected) * NANOSECONDS.convert(1, SECONDS) / elapsedNanos;
+        }
+    }
+}
@@ -2,34 +2,60 @@ package com.musala.gorskikh.db.dao;
 
 import com.musala.gorskikh.db.entities.DroneEntity;
 import com.musala.gorskikh.db.entities.DroneMedicationEntity;
+import com.musala.gorskikh.db.entities.MedicationImageEntity;
 import com.musala.gorskikh.db.entities.MedicationEntity;
 import com.musala.gorskikh.db.repositories.DroneMedicationRepository;
 import com.musala.gorskikh.db.repositories.DronesRepository;
+import com.musala.gorskikh.db.repositories.MedicationImagesRepository;
+import com.musala.gorskikh.db.repositories.MedicationsRepository;
 import com.musala.gorskikh.model.*;
+import com.musala.gorskikh.services.DroneStateMachine;
+import com.musala.gorskikh.services.battery.BatteryReading;
+import com.musala.gorskikh.services.catalog.MedicationJsonCache;
+import com.musala.gorskikh.services.fleet.AvailabilityFilter;
+import com.musala.gorskikh.services.fleet.FleetIndex;
+import com.musala.gorskikh.services.fleet.KeysetPage;
+import com.musala.gorskikh.services.partitions.FleetPartitionSet;
+import com.musala.gorskikh.services.validators.ValidationResult;
+import com.musala.gorskikh.util.DataSourceProxyConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import lombok.SneakyThrows;
+import net.ttddyy.dsproxy.QueryCountHolder;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.client.HttpServerErrorException;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static com.musala.gorskikh.db.dao.DronesDaoImpl.BATTERY_SCAN_CHUNK_SIZE;
 import static com.musala.gorskikh.model.DroneModelEnum.*;
 import static com.musala.gorskikh.model.DroneState.DELIVERING;
 import static com.musala.gorskikh.model.DroneState.IDLE;
+import static com.musala.gorskikh.model.DroneState.LOADING;
 import static com.musala.gorskikh.services.validators.DroneLoadingValidator.AVAILABLE_DRONE_STATES;
 import static com.musala.gorskikh.services.validators.DroneLoadingValidator.MIN_BATTERY_LEVEL;
 import static com.musala.gorskikh.util.ErrorsUtil.*;
+import static com.musala.gorskikh.util.StatementBudget.assertMaxStatements;
 import static com.musala.gorskikh.util.TestUtil.bd;
 import static com.musala.gorskikh.util.TestUtil.createMedication;
+import static com.musala.gorskikh.util.TestUtil.createMedicationEntity;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toMap;
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,26 +63,65 @@ import static org.springframework.http.HttpStatus.BAD_REQUEST;
 
 @SpringBootTest
 @AutoConfigureEmbeddedDatabase
+@Import(DataSourceProxyConfig.class)
 class DronesDaoImplTest {
 
+    /*
+     * Statement budgets of the DAO calls, which don't depend on the sizes of the fleet, manifests or pages.
+     * Budgets depending on them are computed by the methods below. Catalog and medication JSON caches may be cold,
+     * a JDBC batch counts as a single statement.
+     */
+    private static final int AVAILABLE_DRONES_STATEMENTS = 0;
+    private static final int BATTERY_LEVEL_STATEMENTS = 1;
+    private static final int PAGE_STATEMENTS = 1;
+    /**
+     * The drone with its model and medications, image metadata, images of the not cached medications
+     */
+    private static final int MEDICATIONS_STATEMENTS = 3;
+    private static final int REGISTER_STATEMENTS = 3;
+    private static final int SET_STATE_STATEMENTS = 1;
+
     private final DronesDao dronesDao;
+    private final DroneStateMachine droneStateMachine;
+    private final FleetIndex fleetIndex;
+    private final int batchSize;
+    private final int maxSerialNumbers;
 
     private final DronesRepository dronesRepository;
     private final DroneMedicationRepository droneMedicationRepository;
+    private final MedicationsRepository medicationsRepository;
+    private final MedicationImagesRepository medicationImagesRepository;
+    private final MedicationJsonCache medicationJsonCache;
+    private final ObjectMapper objectMapper;
 
     @Autowired
     public DronesDaoImplTest(DronesRepository dronesRepository, DronesDao dronesDao,
-                             DroneMedicationRepository droneMedicationRepository) {
+                             DroneStateMachine droneStateMachine, FleetIndex fleetIndex,
+                             @Value("${drones.jdbc.batch-size}") int batchSize,
+                             @Value("${drones.battery.max-serial-numbers}") int maxSerialNumbers,
+                             DroneMedicationRepository droneMedicationRepository,
+                             MedicationsRepository medicationsRepository,
+                             MedicationImagesRepository medicationImagesRepository,
+                             MedicationJsonCache medicationJsonCache, ObjectMapper objectMapper) {
         this.dronesRepository = dronesRepository;
         this.dronesDao = dronesDao;
+        this.droneStateMachine = droneStateMachine;
+        this.fleetIndex = fleetIndex;
+        this.batchSize = batchSize;
+        this.maxSerialNumbers = maxSerialNumbers;
         this.droneMedicationRepository = droneMedicationRepository;
+        this.medicationsRepository = medicationsRepository;
+        this.medicationImagesRepository = medicationImagesRepository;
+        this.medicationJsonCache = medicationJsonCache;
+        this.objectMapper = objectMapper;
     }
 
     @Test
     @DisplayName("Get all available drones")
     void getAvailableDrones() {
         //when
-        List<DroneDto> availableDrones = dronesDao.getAvailableDrones();
+        List<DroneDto> availableDrones = assertMaxStatements(AVAILABLE_DRONES_STATEMENTS,
+                () -> dronesDao.getAvailableDrones());
 
         //then
         assertTrue(availableDrones.stream()
@@ -64,6 +129,67 @@ class DronesDaoImplTest {
                         && AVAILABLE_DRONE_STATES.contains(d.getState())));
     }
 
+    @Test
+    @DisplayName("Get available drones filtered by model and free capacity after loading")
+    void getAvailableDrones_whenFiltered() {
+        dronesDao.register(new CreateDroneRequest("fleet-index-serial-number_1", LIGHTWEIGHT));
+        dronesDao.load("fleet-index-serial-number_1", List.of(new LoadingMedication("med_code_1", 5)));
+
+        //when
+        List<DroneDto> withEnoughCapacity = assertMaxStatements(AVAILABLE_DRONES_STATEMENTS,
+                () -> dronesDao.getAvailableDrones(new AvailabilityFilter(null, LIGHTWEIGHT, bd(50))));
+        List<DroneDto> withoutEnoughCapacity = assertMaxStatements(AVAILABLE_DRONES_STATEMENTS,
+                () -> dronesDao.getAvailableDrones(new AvailabilityFilter(null, LIGHTWEIGHT, bd(60))));
+        List<DroneDto> charged = assertMaxStatements(AVAILABLE_DRONES_STATEMENTS,
+                () -> dronesDao.getAvailableDrones(new AvailabilityFilter(bd(90), null, null)));
+
+        //then
+        assertTrue(withEnoughCapacity.stream()
+                .anyMatch(d -> d.getDroneSerialNumber().equals("fleet-index-serial-number_1")
+                        && d.getState() == DroneState.LOADED));
+        assertTrue(withEnoughCapacity.stream().allMatch(d -> d.getModel().getModel() == LIGHTWEIGHT));
+        assertTrue(withoutEnoughCapacity.stream()
+                .noneMatch(d -> d.getDroneSerialNumber().equals("fleet-index-serial-number_1")));
+        assertTrue(charged.stream().allMatch(d -> d.getBatteryLevel().compareTo(bd(90)) >= 0));
+    }
+
+    @Test
+    @DisplayName("Evict deleted drones from available drones when the fleet index is rebuilt")
+    void getAvailableDrones_whenDroneDeleted() {
+        dronesDao.register(new CreateDroneRequest("fleet-index-serial-number_2", LIGHTWEIGHT));
+        assertTrue(dronesDao.getAvailableDrones().stream()
+                .anyMatch(d -> d.getDroneSerialNumber().equals("fleet-index-serial-number_2")));
+        dronesRepository.deleteById("fleet-index-serial-number_2");
+
+        //when
+        fleetIndex.rebuild();
+
+        //then
+        List<DroneDto> availableDrones = dronesDao.getAvailableDrones();
+        assertTrue(availableDrones.stream()
+                .noneMatch(d -> d.getDroneSerialNumber().equals("fleet-index-serial-number_2")));
+        assertFalse(availableDrones.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Refresh available drones changed bypassing the fleet index, as by another node")
+    void getAvailableDrones_whenChangedByAnotherNode() {
+        dronesDao.register(new CreateDroneRequest("fleet-index-serial-number_3", LIGHTWEIGHT));
+        AvailabilityFilter charged = new AvailabilityFilter(bd(90), null, null);
+        assertTrue(dronesDao.getAvailableDrones(charged).stream()
+                .anyMatch(d -> d.getDroneSerialNumber().equals("fleet-index-serial-number_3")));
+        DroneEntity drone = dronesRepository.findById("fleet-index-serial-number_3").orElseThrow();
+        drone.setBatteryLevel(bd(30));
+        dronesRepository.save(drone);
+
+        //when
+        fleetIndex.refresh();
+
+        //then
+        assertTrue(dronesDao.getAvailableDrones(charged).stream()
+                .noneMatch(d -> d.getDroneSerialNumber().equals("fleet-index-serial-number_3")));
+    }
+
     @Test
     @DisplayName("Get battery levels of all drones")
     void getBatteryLevels() {
@@ -71,7 +197,8 @@ class DronesDaoImplTest {
                 .collect(toMap(DroneEntity::getDroneSerialNumber, DroneEntity::getBatteryLevel));
 
         //when
-        Map<String, BigDecimal> actualBatteryLevels = dronesDao.getBatteryLevels();
+        Map<String, BigDecimal> actualBatteryLevels =
+                assertMaxStatements(scanStatements(BATTERY_SCAN_CHUNK_SIZE), () -> dronesDao.getBatteryLevels());
 
         //then
         assertEquals(expectedBatteryLevels.size(), actualBatteryLevels.size());
@@ -82,6 +209,45 @@ class DronesDaoImplTest {
                 }));
     }
 
+    @Test
+    @DisplayName("Scan battery levels of all drones in chunks")
+    void scanBatteryLevels() {
+        Map<String, BigDecimal> expectedBatteryLevels = dronesRepository.findAll().stream()
+                .collect(toMap(DroneEntity::getDroneSerialNumber, DroneEntity::getBatteryLevel));
+        List<List<BatteryReading>> chunks = new ArrayList<>();
+
+        //when
+        assertMaxStatements(scanStatements(3), () -> dronesDao.scanBatteryLevels(3, chunks::add));
+
+        //then
+        List<BatteryReading> readings = chunks.stream().flatMap(List::stream).toList();
+        assertTrue(chunks.stream().allMatch(chunk -> chunk.size() <= 3));
+        assertEquals(expectedBatteryLevels.size(), readings.size());
+        assertTrue(readings.stream().allMatch(reading ->
+                expectedBatteryLevels.get(reading.droneSerialNumber()).equals(reading.level())));
+        assertEquals(readings.stream().map(BatteryReading::droneSerialNumber).sorted().toList(),
+                readings.stream().map(BatteryReading::droneSerialNumber).toList());
+    }
+
+    @Test
+    @DisplayName("Scan battery levels of drones split into disjoint partitions")
+    void scanBatteryLevels_whenPartitioned() {
+        List<String> even = new ArrayList<>();
+        List<String> odd = new ArrayList<>();
+
+        //when
+        assertMaxStatements(scanStatements(3), () -> dronesDao.scanBatteryLevels(3,
+                new FleetPartitionSet(4, Set.of(0, 2)), chunk -> chunk.forEach(reading ->
+                        even.add(reading.droneSerialNumber()))));
+        assertMaxStatements(scanStatements(3), () -> dronesDao.scanBatteryLevels(3,
+                new FleetPartitionSet(4, Set.of(1, 3)), chunk -> chunk.forEach(reading ->
+                        odd.add(reading.droneSerialNumber()))));
+
+        //then
+        assertEquals(dronesRepository.count(), even.size() + odd.size());
+        assertTrue(even.stream().noneMatch(odd::contains));
+    }
+
     @ParameterizedTest
     @MethodSource("serialNumberToBatteryLevel")
     @DisplayName("Get battery level of the specific drone by serial number")
@@ -90,21 +256,108 @@ class DronesDaoImplTest {
             assertThrows(NullPointerException.class, () -> dronesDao.getBatteryLevel(serialNumber));
         } else if (serialNumber.isBlank()) {
             //when
-            HttpServerErrorException exception =
-                    assertThrows(HttpServerErrorException.class, () -> dronesDao.getBatteryLevel(serialNumber));
+            HttpServerErrorException exception = assertThrows(HttpServerErrorException.class,
+                    () -> assertMaxStatements(BATTERY_LEVEL_STATEMENTS, () -> dronesDao.getBatteryLevel(serialNumber)));
 
             //then
             assertEquals(BAD_REQUEST, exception.getStatusCode());
             assertEquals(droneNotExistError(serialNumber), exception.getStatusText());
         } else {
             //when
-            BatteryLevel actualBatteryLevel = dronesDao.getBatteryLevel(serialNumber);
+            BatteryLevel actualBatteryLevel =
+                    assertMaxStatements(BATTERY_LEVEL_STATEMENTS, () -> dronesDao.getBatteryLevel(serialNumber));
 
             //then
             assertEquals(expectedBatteryLevel, actualBatteryLevel.getLevel());
         }
     }
 
+    @Test
+    @DisplayName("Get battery levels of several drones with a single query")
+    void getBatteryLevels_whenSerialNumbers() {
+        List<String> serialNumbers = List.of("serial-number_1", "serial-number_2", "unknown-serial-number",
+                "serial-number_1");
+
+        //when
+        BatteryLevels batteryLevels =
+                assertMaxStatements(batteryLevelsStatements(serialNumbers.size()),
+                        () -> dronesDao.getBatteryLevels(serialNumbers));
+
+        //then
+        assertEquals(Set.of("serial-number_1", "serial-number_2"), batteryLevels.getLevels().keySet());
+        assertEquals(dronesDao.getBatteryLevel("serial-number_2").getLevel(),
+                batteryLevels.getLevels().get("serial-number_2"));
+        assertEquals(List.of("unknown-serial-number"), batteryLevels.getUnknownDroneSerialNumbers());
+    }
+
+    @Test
+    @DisplayName("Get available drones page by page")
+    void getAvailableDrones_whenPaged() {
+        List<DroneDto> expectedDrones = dronesDao.getAvailableDrones();
+        List<DroneDto> actualDrones = new ArrayList<>();
+
+        //when
+        String cursor = null;
+        do {
+            String pageCursor = cursor;
+            KeysetPage<DroneDto> page = assertMaxStatements(PAGE_STATEMENTS,
+                    () -> dronesDao.getAvailableDrones(AvailabilityFilter.ANY, pageCursor, 2));
+            assertTrue(page.items().size() <= 2);
+            actualDrones.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        //then
+        assertEquals(expectedDrones.stream().map(DroneDto::getDroneSerialNumber).toList(),
+                actualDrones.stream().map(DroneDto::getDroneSerialNumber).toList());
+    }
+
+    @Test
+    @DisplayName("Get battery levels of all drones page by page")
+    void getBatteryLevels_whenPaged() {
+        Map<String, BigDecimal> expectedBatteryLevels = dronesDao.getBatteryLevels();
+        List<BatteryReading> readings = new ArrayList<>();
+
+        //when
+        String cursor = null;
+        do {
+            String pageCursor = cursor;
+            KeysetPage<BatteryReading> page =
+                    assertMaxStatements(PAGE_STATEMENTS, () -> dronesDao.getBatteryLevels(pageCursor, 3));
+            readings.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        //then
+        assertEquals(expectedBatteryLevels.size(), readings.size());
+        assertTrue(readings.stream().allMatch(reading ->
+                expectedBatteryLevels.get(reading.droneSerialNumber()).equals(reading.level())));
+    }
+
+    @Test
+    @DisplayName("Get battery levels of all drones page by page when the cursor is wrong")
+    void getBatteryLevels_whenWrongCursor() {
+        //when
+        HttpServerErrorException exception = assertThrows(HttpServerErrorException.class,
+                () -> assertMaxStatements(0, () -> dronesDao.getBatteryLevels("#wrong", 3)));
+
+        //then
+        assertEquals(BAD_REQUEST, exception.getStatusCode());
+        assertEquals(wrongCursorError("#wrong"), exception.getStatusText());
+    }
+
+    @Test
+    @DisplayName("Get battery levels of several drones when list of serial numbers is empty")
+    void getBatteryLevels_whenEmpty() {
+        //when
+        HttpServerErrorException exception = assertThrows(HttpServerErrorException.class,
+                () -> assertMaxStatements(0, () -> dronesDao.getBatteryLevels(List.of())));
+
+        //then
+        assertEquals(BAD_REQUEST, exception.getStatusCode());
+        assertEquals(emptySerialNumbersListError(), exception.getStatusText());
+    }
+
     @ParameterizedTest
     @MethodSource("serialNumberToMedications")
     @DisplayName("Get all medications of the specific drone by serial number")
@@ -113,8 +366,8 @@ class DronesDaoImplTest {
             assertThrows(NullPointerException.class, () -> dronesDao.getMedications(serialNumber));
         } else if (serialNumber.isBlank()) {
             //when
-            HttpServerErrorException exception =
-                    assertThrows(HttpServerErrorException.class, () -> dronesDao.getMedications(serialNumber));
+            HttpServerErrorException exception = assertThrows(HttpServerErrorException.class,
+                    () -> assertMaxStatements(MEDICATIONS_STATEMENTS, () -> dronesDao.getMedications(serialNumber)));
 
             //then
             assertEquals(BAD_REQUEST, exception.getStatusCode());
@@ -124,7 +377,8 @@ class DronesDaoImplTest {
                     .collect(toMap(MedicationDto::getCode, identity()));
 
             //when
-            List<MedicationDto> actualMedications = dronesDao.getMedications(serialNumber);
+            List<MedicationDto> actualMedications =
+                    assertMaxStatements(MEDICATIONS_STATEMENTS, () -> dronesDao.getMedications(serialNumber));
 
             //then
             assertEquals(expectedMedications.size(), actualMedications.size());
@@ -132,11 +386,66 @@ class DronesDaoImplTest {
                     .allMatch(actual -> {
                         MedicationDto expected = expectedCodeToMedication.get(actual.getCode());
                         return expected.getName().equals(actual.getName())
-                                && expected.getWeightGr().equals(actual.getWeightGr());
+                                && expected.getWeightGr().equals(actual.getWeightGr())
+                                && roundTrip(actual).getImage() != null;
                     }));
         }
     }
 
+    @Test
+    @DisplayName("Get medications of the drone with image URLs instead of images")
+    void getMedications_whenImageUrlMode() {
+        //when
+        List<MedicationDto> medications = assertMaxStatements(MEDICATIONS_STATEMENTS,
+                () -> dronesDao.getMedications("serial-number_1", ImageMode.URL));
+
+        //then
+        assertEquals(2, medications.size());
+        assertTrue(medications.stream().allMatch(medication -> medication.getImage() == null
+                && ("/medications/" + medication.getCode() + "/image").equals(medication.getImageUrl())));
+    }
+
+    @Test
+    @DisplayName("Get medications of the drone from the cached JSON")
+    void getMedications_whenCached() {
+        medicationJsonCache.invalidateAll();
+        QueryCountHolder.clear();
+        List<MedicationDto> expectedMedications =
+                assertMaxStatements(MEDICATIONS_STATEMENTS, () -> dronesDao.getMedications("serial-number_8"));
+        long notCachedSelects = QueryCountHolder.getGrandTotal().getSelect();
+
+        //when
+        QueryCountHolder.clear();
+        List<MedicationDto> actualMedications = assertMaxStatements(MEDICATIONS_STATEMENTS - 1,
+                () -> dronesDao.getMedications("serial-number_8"));
+
+        //then
+        assertEquals(notCachedSelects - 1, QueryCountHolder.getGrandTotal().getSelect());
+        assertEquals(serialize(expectedMedications), serialize(actualMedications));
+    }
+
+    @Test
+    @DisplayName("Get medications of the drone after a catalog change")
+    void getMedications_whenCatalogChanged() {
+        MedicationEntity medication = medicationsRepository.save(
+                createMedicationEntity("json_med_code_1", bd(10), "Json_medication_1"));
+        medicationImagesRepository.save(new MedicationImageEntity("json_med_code_1", new byte[]{1}));
+        dronesDao.register(new CreateDroneRequest("json-serial-number_1", LIGHTWEIGHT));
+        dronesDao.load("json-serial-number_1", List.of(new LoadingMedication("json_med_code_1", 1)));
+        dronesDao.getMedications("json-serial-number_1");
+
+        //when
+        medication.setName("Json_medication_2");
+        medicationsRepository.save(medication);
+        medicationImagesRepository.save(new MedicationImageEntity("json_med_code_1", new byte[]{2}));
+        MedicationDto actualMedication = roundTrip(assertMaxStatements(MEDICATIONS_STATEMENTS,
+                () -> dronesDao.getMedications("json-serial-number_1")).get(0));
+
+        //then
+        assertEquals("Json_medication_2", actualMedication.getName());
+        assertEquals("Ag==", actualMedication.getImage().getContent());
+    }
+
     @ParameterizedTest
     @MethodSource("createEmptyDroneRequest")
     @DisplayName("Register a new drone when there are empty fields")
@@ -145,8 +454,8 @@ class DronesDaoImplTest {
             assertThrows(NullPointerException.class, () -> dronesDao.register(request));
         } else {
             //when
-            HttpServerErrorException exception =
-                    assertThrows(HttpServerErrorException.class, () -> dronesDao.register(request));
+            HttpServerErrorException exception = assertThrows(HttpServerErrorException.class,
+                    () -> assertMaxStatements(0, () -> dronesDao.register(request)));
 
             //then
             assertEquals(BAD_REQUEST, exception.getStatusCode());
@@ -161,15 +470,15 @@ class DronesDaoImplTest {
         Optional<DroneEntity> droneFromDb = dronesRepository.findById(request.getDroneSerialNumber());
         if (droneFromDb.isPresent()) {
             //when
-            HttpServerErrorException exception =
-                    assertThrows(HttpServerErrorException.class, () -> dronesDao.register(request));
+            HttpServerErrorException exception = assertThrows(HttpServerErrorException.class,
+                    () -> assertMaxStatements(REGISTER_STATEMENTS, () -> dronesDao.register(request)));
 
             //then
             assertEquals(BAD_REQUEST, exception.getStatusCode());
             assertEquals(droneAlreadyExistError(request.getDroneSerialNumber()), exception.getStatusText());
         } else {
             //when
-            DroneDto registeredDrone = dronesDao.register(request);
+            DroneDto registeredDrone = assertMaxStatements(REGISTER_STATEMENTS, () -> dronesDao.register(request));
 
             //then
             Optional<DroneEntity> optRegisteredDroneDb = dronesRepository.findById(request.getDroneSerialNumber());
@@ -196,13 +505,15 @@ class DronesDaoImplTest {
                 .collect(toMap(LoadingMedication::getMedicationCode, identity()));
 
         //when
-        dronesDao.load(droneSerialNumber, medications);
+        assertMaxStatements(loadStatements(medications.size()), () -> dronesDao.load(droneSerialNumber, medications));
 
         //then
         Optional<DroneEntity> optLoadedDrone = dronesRepository.findByIdFetchMedications(droneSerialNumber);
         assertTrue(optLoadedDrone.isPresent());
 
         DroneEntity loadedDrone = optLoadedDrone.get();
+        BigDecimal manifestWeight = BigDecimal.ZERO;
+        int manifestItems = 0;
         for (MedicationEntity medication : loadedDrone.getMedications()) {
             Optional<DroneMedicationEntity> optDroneMedication =
                     droneMedicationRepository.findByDroneAndMedication(droneSerialNumber, medication.getCode());
@@ -211,7 +522,206 @@ class DronesDaoImplTest {
             Integer actualCount = optDroneMedication.get().getCount();
             Integer loadingCount = codeToLoadMedication.get(medication.getCode()).getCount();
             assertTrue(actualCount.compareTo(loadingCount) >= 0);
+
+            manifestWeight = manifestWeight.add(medication.getWeightGr().multiply(BigDecimal.valueOf(actualCount)));
+            manifestItems += actualCount;
         }
+
+        assertEquals(0, manifestWeight.compareTo(loadedDrone.getPayloadWeight()));
+        assertEquals(manifestItems, loadedDrone.getItemsCount());
+    }
+
+    @Test
+    @DisplayName("Load drone with a manifest larger than a JDBC batch using a statement per batch")
+    void load_whenLargeManifest() {
+        int largeManifestSize = batchSize * 2 + 20;
+        List<MedicationEntity> medications = IntStream.rangeClosed(1, largeManifestSize)
+                .mapToObj(i -> createMedicationEntity("bulk_med_code_" + i, bd(1), "Bulk_medication_" + i))
+                .toList();
+        medicationsRepository.saveAll(medications);
+
+        dronesDao.register(new CreateDroneRequest("bulk-serial-number_1", HEAVYWEIGHT));
+        dronesDao.register(new CreateDroneRequest("bulk-serial-number_2", HEAVYWEIGHT));
+
+        List<LoadingMedication> smallManifest = medications.stream().limit(5)
+                .map(m -> new LoadingMedication(m.getCode(), 1)).toList();
+        List<LoadingMedication> largeManifest = medications.stream()
+                .map(m -> new LoadingMedication(m.getCode(), 1)).toList();
+
+        //when
+        QueryCountHolder.clear();
+        assertMaxStatements(loadStatements(smallManifest.size()),
+                () -> dronesDao.load("bulk-serial-number_1", smallManifest));
+        long smallManifestStatements = QueryCountHolder.getGrandTotal().getTotal();
+
+        QueryCountHolder.clear();
+        assertMaxStatements(loadStatements(largeManifest.size()),
+                () -> dronesDao.load("bulk-serial-number_2", largeManifest));
+        long largeManifestStatements = QueryCountHolder.getGrandTotal().getTotal();
+
+        //then
+        assertTrue(smallManifestStatements > 0);
+        assertEquals(loadStatements(largeManifest.size()) - loadStatements(smallManifest.size()),
+                largeManifestStatements - smallManifestStatements);
+        assertEquals(largeManifestSize, dronesRepository.findById("bulk-serial-number_2").orElseThrow().getItemsCount());
+    }
+
+    @Test
+    @DisplayName("Load a drone by a cached catalog")
+    void load_whenCatalogCached() {
+        medicationsRepository.save(createMedicationEntity("cached_med_code_1", bd(10), "Cached_medication_1"));
+        dronesDao.register(new CreateDroneRequest("cached-serial-number_1", HEAVYWEIGHT));
+        dronesDao.register(new CreateDroneRequest("cached-serial-number_2", HEAVYWEIGHT));
+        List<LoadingMedication> manifest = List.of(new LoadingMedication("cached_med_code_1", 1));
+        dronesDao.load("cached-serial-number_1", manifest);
+
+        //when
+        QueryCountHolder.clear();
+        assertMaxStatements(loadStatements(manifest.size()), () -> dronesDao.load("cached-serial-number_2", manifest));
+
+        //then
+        assertEquals(1, QueryCountHolder.getGrandTotal().getSelect());
+    }
+
+    @Test
+    @DisplayName("Load a drone after a catalog change")
+    void load_whenCatalogChanged() {
+        MedicationEntity medication = medicationsRepository.save(
+                createMedicationEntity("changed_med_code_1", bd(10), "Changed_medication_1"));
+        dronesDao.register(new CreateDroneRequest("changed-serial-number_1", HEAVYWEIGHT));
+        dronesDao.register(new CreateDroneRequest("changed-serial-number_2", HEAVYWEIGHT));
+        List<LoadingMedication> manifest = List.of(new LoadingMedication("changed_med_code_1", 1));
+        dronesDao.load("changed-serial-number_1", manifest);
+
+        //when
+        medication.setWeightGr(bd(20));
+        medicationsRepository.save(medication);
+        assertMaxStatements(loadStatements(manifest.size()), () -> dronesDao.load("changed-serial-number_2", manifest));
+
+        //then
+        assertEquals(0, bd(20).compareTo(
+                dronesRepository.findById("changed-serial-number_2").orElseThrow().getPayloadWeight()));
+    }
+
+    @Test
+    @DisplayName("Load several drones at once writing only the accepted loads")
+    void loadAll() {
+        dronesDao.register(new CreateDroneRequest("bulk-load-serial-number_1", HEAVYWEIGHT));
+        dronesDao.register(new CreateDroneRequest("bulk-load-serial-number_2", LIGHTWEIGHT));
+        List<LoadDroneRequest> loads = List.of(
+                new LoadDroneRequest(List.of(new LoadingMedication("med_code_1", 2)), "bulk-load-serial-number_1"),
+                new LoadDroneRequest(List.of(new LoadingMedication("med_code_1", 100)), "bulk-load-serial-number_2"),
+                new LoadDroneRequest(List.of(new LoadingMedication("med_code_1", 1)), "bulk-load-serial-number_0"));
+
+        //when
+        List<ValidationResult> results =
+                assertMaxStatements(loadAllStatements(loads.size(), loads.size()),
+                        () -> dronesDao.loadAll(loads, BulkLoadMode.BEST_EFFORT));
+
+        //then
+        assertEquals(List.of(true, false, false), results.stream().map(ValidationResult::isValid).toList());
+        assertEquals(droneNotExistError("bulk-load-serial-number_0"), results.get(2).getErrorMsg());
+        assertEquals(DroneState.LOADED,
+                dronesRepository.findById("bulk-load-serial-number_1").orElseThrow().getState());
+        assertEquals(2, dronesRepository.findById("bulk-load-serial-number_1").orElseThrow().getItemsCount());
+        assertEquals(IDLE, dronesRepository.findById("bulk-load-serial-number_2").orElseThrow().getState());
+    }
+
+    @Test
+    @DisplayName("Load several drones at once writing nothing when a load is rejected")
+    void loadAll_whenAllOrNothing() {
+        dronesDao.register(new CreateDroneRequest("all-or-nothing-serial-number_1", HEAVYWEIGHT));
+        dronesDao.register(new CreateDroneRequest("all-or-nothing-serial-number_2", LIGHTWEIGHT));
+        List<LoadDroneRequest> loads = List.of(
+                new LoadDroneRequest(List.of(new LoadingMedication("med_code_1", 2)),
+                        "all-or-nothing-serial-number_1"),
+                new LoadDroneRequest(List.of(new LoadingMedication("med_code_1", 100)),
+                        "all-or-nothing-serial-number_2"));
+
+        //when
+        List<ValidationResult> results =
+                assertMaxStatements(loadAllStatements(loads.size(), loads.size()),
+                        () -> dronesDao.loadAll(loads, BulkLoadMode.ALL_OR_NOTHING));
+
+        //then
+        assertFalse(results.get(0).isValid());
+        assertEquals(bulkLoadRolledBackError(), results.get(0).getErrorMsg());
+        assertFalse(results.get(1).isValid());
+        assertEquals(IDLE, dronesRepository.findById("all-or-nothing-serial-number_1").orElseThrow().getState());
+        assertEquals(0, dronesRepository.findById("all-or-nothing-serial-number_1").orElseThrow().getItemsCount());
+    }
+
+    @Test
+    @DisplayName("Load more drones at once than fit into a JDBC batch using a statement per batch")
+    void loadAll_whenManyDrones() {
+        List<LoadDroneRequest> fewLoads = new ArrayList<>();
+        List<LoadDroneRequest> manyLoads = new ArrayList<>();
+        for (int i = 1; i <= batchSize * 2 + 10; i++) {
+            String serialNumber = "batched-serial-number_" + i;
+            dronesDao.register(new CreateDroneRequest(serialNumber, HEAVYWEIGHT));
+            LoadDroneRequest load = new LoadDroneRequest(List.of(new LoadingMedication("med_code_1", 1)), serialNumber);
+            (i <= 4 ? fewLoads : manyLoads).add(load);
+        }
+
+        //when
+        QueryCountHolder.clear();
+        assertMaxStatements(loadAllStatements(fewLoads.size(), fewLoads.size()),
+                () -> dronesDao.loadAll(fewLoads, BulkLoadMode.ALL_OR_NOTHING));
+        long fewLoadsStatements = QueryCountHolder.getGrandTotal().getTotal();
+
+        QueryCountHolder.clear();
+        assertMaxStatements(loadAllStatements(manyLoads.size(), manyLoads.size()),
+                () -> dronesDao.loadAll(manyLoads, BulkLoadMode.ALL_OR_NOTHING));
+        long manyLoadsStatements = QueryCountHolder.getGrandTotal().getTotal();
+
+        //then
+        assertTrue(fewLoadsStatements > 0);
+        assertEquals(loadAllStatements(manyLoads.size(), manyLoads.size())
+                - loadAllStatements(fewLoads.size(), fewLoads.size()), manyLoadsStatements - fewLoadsStatements);
+        assertTrue(manyLoads.stream().allMatch(load -> dronesRepository.findById(load.getDroneSerialNumber())
+                .orElseThrow().getState() == DroneState.LOADED));
+    }
+
+    @Test
+    @DisplayName("Load several drones at once when list of loads is empty")
+    void loadAll_whenEmpty() {
+        //when
+        HttpServerErrorException exception = assertThrows(HttpServerErrorException.class,
+                () -> assertMaxStatements(0, () -> dronesDao.loadAll(List.of(), BulkLoadMode.BEST_EFFORT)));
+
+        //then
+        assertEquals(BAD_REQUEST, exception.getStatusCode());
+        assertEquals(emptyLoadsListError(), exception.getStatusText());
+    }
+
+    @Test
+    @DisplayName("Set state of drone when the transition isn't allowed from its current state")
+    void setState_whenIllegalTransition() {
+        DroneEntity drone = dronesRepository.findById("serial-number_4").orElseThrow();
+
+        //when
+        HttpServerErrorException exception = assertThrows(HttpServerErrorException.class,
+                () -> assertMaxStatements(SET_STATE_STATEMENTS, () -> dronesDao.setState(drone, LOADING)));
+
+        //then
+        assertEquals(BAD_REQUEST, exception.getStatusCode());
+        assertEquals(illegalStateTransitionError("serial-number_4", LOADING), exception.getStatusText());
+        assertEquals(DELIVERING, dronesRepository.findById("serial-number_4").orElseThrow().getState());
+    }
+
+    @Test
+    @DisplayName("Write loads of several drones only when their states pass the load path")
+    void loadAll_whenIllegalTransition() {
+        DroneEntity drone = dronesRepository.findById("serial-number_4").orElseThrow();
+        drone.setItemsCount(drone.getItemsCount() + 1);
+
+        //when
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> droneStateMachine.loadAll(List.of(drone)));
+
+        //then
+        DroneEntity actual = dronesRepository.findById("serial-number_4").orElseThrow();
+        assertEquals(DELIVERING, actual.getState());
+        assertEquals(drone.getVersion(), actual.getVersion());
     }
 
     @ParameterizedTest
@@ -222,8 +732,8 @@ class DronesDaoImplTest {
             assertThrows(NullPointerException.class, () -> dronesDao.load(droneSerialNumber, medications));
         } else {
             //when
-            HttpServerErrorException exception =
-                    assertThrows(HttpServerErrorException.class, () -> dronesDao.load(droneSerialNumber, medications));
+            HttpServerErrorException exception = assertThrows(HttpServerErrorException.class,
+                    () -> assertMaxStatements(loadStatements(medications.size()), () -> dronesDao.load(droneSerialNumber, medications)));
 
             //then
             assertEquals(BAD_REQUEST, exception.getStatusCode());
@@ -342,4 +852,49 @@ class DronesDaoImplTest {
                 ))
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * The drone, the catalog, the manifest in batches, and a single conditional update of the state and payload
+     */
+    private int loadStatements(int manifestSize) {
+        return 3 + batches(manifestSize);
+    }
+
+    /**
+     * The drones with their models, the catalog, the drones updates and the manifests rows in batches
+     */
+    private int loadAllStatements(int drones, int manifestRows) {
+        return 2 + batches(drones) + batches(manifestRows);
+    }
+
+    /**
+     * Levels of the requested drones are read by a query per chunk of the allowed serial numbers
+     */
+    private int batteryLevelsStatements(int serialNumbers) {
+        return (serialNumbers + maxSerialNumbers - 1) / maxSerialNumbers;
+    }
+
+    private int batches(int rows) {
+        return (rows + batchSize - 1) / batchSize;
+    }
+
+    /**
+     * A scan reads a chunk per statement until a chunk isn't full
+     */
+    private int scanStatements(int chunkSize) {
+        return (int) (dronesRepository.count() / chunkSize) + 1;
+    }
+
+    @SneakyThrows
+    private MedicationDto roundTrip(MedicationDto medication) {
+        return objectMapper.readValue(objectMapper.writeValueAsString(medication), MedicationDto.class);
+    }
+
+    /**
+     * Serialized as a response body is, by the UTF-8 generator
+     */
+    @SneakyThrows
+    private String serialize(List<MedicationDto> medications) {
+        return new String(objectMapper.writeValueAsBytes(medications), UTF_8);
+    }
+}
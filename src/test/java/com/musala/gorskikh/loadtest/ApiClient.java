@@ -0,0 +1,65 @@
+package com.musala.gorskikh.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Blocking JSON client of the API recording the latency and the outcome of every request
+ * under the name of its operation
+ */
+class ApiClient {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient;
+    private final URI baseUri;
+    private final LatencyStats stats;
+
+    ApiClient(HttpClient httpClient, URI baseUri, LatencyStats stats) {
+        this.httpClient = httpClient;
+        this.baseUri = baseUri;
+        this.stats = stats;
+    }
+
+    /**
+     * @return whether the response status is 2xx
+     */
+    boolean get(String operation, String pathAndQuery) {
+        return send(operation, request(pathAndQuery).GET());
+    }
+
+    boolean put(String operation, String path, String json) {
+        return send(operation, request(path).PUT(HttpRequest.BodyPublishers.ofString(json)));
+    }
+
+    boolean post(String operation, String path, String json) {
+        return send(operation, request(path).POST(HttpRequest.BodyPublishers.ofString(json)));
+    }
+
+    private HttpRequest.Builder request(String pathAndQuery) {
+        return HttpRequest.newBuilder(baseUri.resolve(pathAndQuery))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json");
+    }
+
+    private boolean send(String operation, HttpRequest.Builder request) {
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            HttpResponse<Void> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding());
+            success = response.statusCode() / 100 == 2;
+        } catch (IOException ex) {
+            success = false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        stats.record(operation, System.nanoTime() - start, success);
+        return success;
+    }
+}
@@ -0,0 +1,65 @@
+package com.musala.gorskikh.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * Flows of {@code local/Musala.postman_collection.json}. Reads address the drones of the Liquibase test data,
+ * every {@link #REGISTER_AND_LOAD} registers a new cruiserweight drone and loads it with the manifest
+ * of the collection, which fits a drone only once.
+ */
+enum ApiFlow {
+
+    LIST_DRONES {
+        @Override
+        void run(ApiClient client) {
+            client.get("GET /drones", "/drones");
+        }
+    },
+    GET_MEDICATIONS {
+        @Override
+        void run(ApiClient client) {
+            client.get("GET /drones/medications", "/drones/medications?droneSerialNumber=" + testDrone());
+        }
+    },
+    GET_BATTERY {
+        @Override
+        void run(ApiClient client) {
+            client.get("GET /drones/battery", "/drones/battery?droneSerialNumber=" + testDrone());
+        }
+    },
+    REGISTER_AND_LOAD {
+        @Override
+        void run(ApiClient client) {
+            String serialNumber = SERIAL_NUMBER_PREFIX + DRONE_COUNTER.incrementAndGet();
+            if (!client.put("PUT /drones", "/drones", format("""
+                    {"droneSerialNumber": "%s", "model": "CRUISERWEIGHT"}""", serialNumber)))
+                return;
+
+            client.post("POST /drones", "/drones", format("""
+                    {
+                      "droneSerialNumber": "%s",
+                      "medications": [
+                        {"medicationCode": "med_code_1", "count": 3},
+                        {"medicationCode": "med_code_4", "count": 1},
+                        {"medicationCode": "med_code_3", "count": 2}
+                      ]
+                    }""", serialNumber));
+        }
+    };
+
+    private static final int TEST_DRONES = 10;
+    private static final String SERIAL_NUMBER_PREFIX = "load-test-" + System.currentTimeMillis() + "-";
+    private static final AtomicLong DRONE_COUNTER = new AtomicLong();
+
+    /**
+     * Sends the requests of the flow one after another, the next one only if the previous one succeeded
+     */
+    abstract void run(ApiClient client);
+
+    private static String testDrone() {
+        return "serial-number_" + ThreadLocalRandom.current().nextInt(1, TEST_DRONES + 1);
+    }
+}
@@ -0,0 +1,103 @@
+package com.musala.gorskikh.loadtest;
+
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Throughput and latency percentiles per operation of the API driven over HTTP by concurrent clients
+ * replaying the flows of the Postman collection, see {@link ApiFlow}.
+ * <p>
+ * Clients are closed-loop: each sends its next flow as soon as the previous one is answered, so latencies
+ * are those seen by the clients at the throughput the service sustains. The load is configured by system
+ * properties:
+ * <ul>
+ *     <li>{@code loadtest.clients} - count of concurrent clients, 16 by default</li>
+ *     <li>{@code loadtest.warmup} - ISO-8601 duration of the unrecorded warmup, PT10S by default</li>
+ *     <li>{@code loadtest.duration} - ISO-8601 duration of the recorded run, PT30S by default</li>
+ *     <li>{@code loadtest.mix} - weights of the flows,
+ *     {@code LIST_DRONES:40,GET_MEDICATIONS:20,GET_BATTERY:30,REGISTER_AND_LOAD:10} by default</li>
+ * </ul>
+ * Not a part of the regular build, run it explicitly:
+ * {@code mvn test -Dtest=ApiLoadBenchmark -Dloadtest.clients=32 -Dloadtest.duration=PT1M}.
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@AutoConfigureEmbeddedDatabase
+class ApiLoadBenchmark {
+
+    private static final String DEFAULT_MIX = "LIST_DRONES:40,GET_MEDICATIONS:20,GET_BATTERY:30,REGISTER_AND_LOAD:10";
+
+    private final int clients = Integer.getInteger("loadtest.clients", 16);
+    private final Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT10S"));
+    private final Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+    private final String mixSpec = System.getProperty("loadtest.mix", DEFAULT_MIX);
+    private final List<ApiFlow> mix = parseMix(mixSpec);
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    @DisplayName("API throughput and latency under concurrent Postman flows")
+    void load() throws InterruptedException {
+        LatencyStats stats = new LatencyStats();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ApiClient client = new ApiClient(httpClient, URI.create("http://localhost:" + port), stats);
+
+        log.info("Load test: {} clients, warmup {}, run {}, mix {}", clients, warmup, duration, mixSpec);
+        run(client, warmup);
+        stats.reset();
+        run(client, duration);
+
+        log.info("Load test results:{}", stats.report(duration));
+    }
+
+    private void run(ApiClient client, Duration runDuration) throws InterruptedException {
+        long deadline = System.nanoTime() + runDuration.toNanos();
+        ExecutorService clientThreads = Executors.newFixedThreadPool(clients);
+        for (int i = 0; i < clients; i++) {
+            clientThreads.execute(() -> {
+                while (System.nanoTime() < deadline)
+                    mix.get(ThreadLocalRandom.current().nextInt(mix.size())).run(client);
+            });
+        }
+        clientThreads.shutdown();
+        if (!clientThreads.awaitTermination(runDuration.toSeconds() + 60, TimeUnit.SECONDS))
+            clientThreads.shutdownNow();
+    }
+
+    /**
+     * @return flows repeated by their weights, a uniformly random element of the list follows the mix
+     */
+    private static List<ApiFlow> parseMix(String mix) {
+        List<ApiFlow> flows = new ArrayList<>();
+        Arrays.stream(mix.split(",")).map(String::trim).filter(weight -> !weight.isEmpty()).forEach(weight -> {
+            String[] flowAndWeight = weight.split(":");
+            ApiFlow flow = ApiFlow.valueOf(flowAndWeight[0].trim());
+            int count = flowAndWeight.length > 1 ? Integer.parseInt(flowAndWeight[1].trim()) : 1;
+            for (int i = 0; i < count; i++)
+                flows.add(flow);
+        });
+        if (flows.isEmpty())
+            throw new IllegalArgumentException("Load test mix is empty: " + mix);
+        return flows;
+    }
+}
@@ -0,0 +1,59 @@
+package com.musala.gorskikh.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Latencies and failures of HTTP operations recorded by concurrent clients, in microseconds
+ */
+class LatencyStats {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<String, Operation> operations = new ConcurrentSkipListMap<>();
+
+    void record(String operation, long latencyNanos, boolean success) {
+        Operation stats = operations.computeIfAbsent(operation, o -> new Operation());
+        stats.latencies.recordValue(Math.max(1, latencyNanos / 1000));
+        if (!success)
+            stats.failures.increment();
+    }
+
+    void reset() {
+        operations.clear();
+    }
+
+    /**
+     * @return table of throughput and latency percentiles per operation
+     */
+    String report(Duration duration) {
+        double seconds = duration.toNanos() / 1e9;
+        StringBuilder report = new StringBuilder(format("%n%-24s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "failed", "req/s", "p50 ms", "p95 ms", "p99 ms", "p999 ms", "max ms"));
+        operations.forEach((name, stats) -> {
+            Histogram latencies = stats.latencies;
+            report.append(format("%-24s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name,
+                    latencies.getTotalCount(), stats.failures.sum(), latencies.getTotalCount() / seconds,
+                    millis(latencies, 50), millis(latencies, 95), millis(latencies, 99), millis(latencies, 99.9),
+                    latencies.getMaxValue() / 1000.0));
+        });
+        return report.toString();
+    }
+
+    private static double millis(Histogram latencies, double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static class Operation {
+
+        private final Histogram latencies = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final LongAdder failures = new LongAdder();
+    }
+}
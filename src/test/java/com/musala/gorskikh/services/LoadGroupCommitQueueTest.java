@@ -0,0 +1,89 @@
+package com.musala.gorskikh.services;
+
+import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.db.entities.DroneEntity;
+import com.musala.gorskikh.db.repositories.DronesRepository;
+import com.musala.gorskikh.model.CreateDroneRequest;
+import com.musala.gorskikh.model.LoadingMedication;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+import static com.musala.gorskikh.model.DroneModelEnum.LIGHTWEIGHT;
+import static com.musala.gorskikh.util.TestUtil.bd;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+class LoadGroupCommitQueueTest {
+
+    private final DronesDao dronesDao;
+    private final DronesRepository dronesRepository;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LoadGroupCommitQueue queue;
+
+    @Autowired
+    public LoadGroupCommitQueueTest(DronesDao dronesDao, DronesRepository dronesRepository) {
+        this.dronesDao = dronesDao;
+        this.dronesRepository = dronesRepository;
+    }
+
+    @BeforeEach
+    void setUp() {
+        queue = new LoadGroupCommitQueue(dronesDao, meterRegistry, Duration.ofMillis(200), 100, 1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        queue.shutdown();
+    }
+
+    @Test
+    @DisplayName("Loads submitted within the commit window are written together and answered separately")
+    void submit() {
+        dronesDao.register(new CreateDroneRequest("group-commit-serial-number_1", LIGHTWEIGHT));
+
+        //when
+        List<CompletableFuture<Void>> results = IntStream.range(0, 12)
+                .mapToObj(i -> queue.submit("group-commit-serial-number_1",
+                        List.of(new LoadingMedication("med_code_1", 1))))
+                .toList();
+
+        //then
+        long accepted = results.stream().filter(LoadGroupCommitQueueTest::isAccepted).count();
+        assertEquals(10, accepted);
+
+        DroneEntity drone = dronesRepository.findById("group-commit-serial-number_1").orElseThrow();
+        assertEquals(0, bd(100).compareTo(drone.getPayloadWeight()));
+        assertEquals(10, drone.getItemsCount());
+
+        DistributionSummary batchSizes = meterRegistry.get("drones.load.group-commit.batch.size").summary();
+        assertEquals(1, batchSizes.count());
+        assertEquals(12, batchSizes.totalAmount());
+    }
+
+    private static boolean isAccepted(CompletableFuture<Void> result) {
+        try {
+            result.join();
+            return true;
+        } catch (CompletionException ex) {
+            assertInstanceOf(HttpServerErrorException.class, ex.getCause());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.musala.gorskikh.services;
+
+import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.db.entities.DroneEntity;
+import com.musala.gorskikh.db.repositories.DronesRepository;
+import com.musala.gorskikh.services.battery.BatteryHistory;
+import com.musala.gorskikh.services.partitions.FleetPartitions;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.musala.gorskikh.util.TestUtil.bd;
+import static java.lang.String.format;
+import static java.lang.String.join;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+/**
+ * Time and heap allocated by the calling thread per battery audit of 100k drones.
+ * <p>
+ * The legacy audit (entities of all drones and a report concatenated by {@code reduce}) is quadratic,
+ * so it is measured on 10k drones only. Not a part of the regular build, run it explicitly:
+ * {@code mvn test -Dtest=SchedulerBenchmark}.
+ */
+@Slf4j
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+@TestInstance(PER_CLASS)
+class SchedulerBenchmark {
+
+    private static final int DRONES = 100_000;
+    private static final int LEGACY_DRONES = 10_000;
+    private static final String SERIAL_NUMBER_PREFIX = "audit-bench-";
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final DronesDao dronesDao;
+    private final BatteryHistory batteryHistory;
+    private final FleetPartitions fleetPartitions;
+    private final DronesRepository dronesRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SchedulerBenchmark(DronesDao dronesDao, BatteryHistory batteryHistory, FleetPartitions fleetPartitions,
+                              DronesRepository dronesRepository, JdbcTemplate jdbcTemplate) {
+        this.dronesDao = dronesDao;
+        this.batteryHistory = batteryHistory;
+        this.fleetPartitions = fleetPartitions;
+        this.dronesRepository = dronesRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @BeforeAll
+    void createDrones() {
+        jdbcTemplate.execute("DELETE FROM drones WHERE serial_number LIKE '" + SERIAL_NUMBER_PREFIX + "%'");
+        insertDrones(0, DRONES);
+        fleetPartitions.rebalance();
+    }
+
+    @AfterAll
+    void deleteDrones() {
+        jdbcTemplate.execute("DELETE FROM drones WHERE serial_number LIKE '" + SERIAL_NUMBER_PREFIX + "%'");
+    }
+
+    @Test
+    @DisplayName("Battery audit of 100k drones")
+    void checkingBatteryLevelTask() {
+        Scheduler full = new Scheduler(dronesDao, batteryHistory, fleetPartitions,
+                Scheduler.AuditMode.FULL, 1000, bd(25));
+        Scheduler delta = new Scheduler(dronesDao, batteryHistory, fleetPartitions,
+                Scheduler.AuditMode.DELTA, 1000, bd(25));
+        delta.logThresholdCrossings();
+
+        measure("full", full::logBatteryLevels);
+        measure("delta", delta::logThresholdCrossings);
+
+        jdbcTemplate.execute("DELETE FROM drones WHERE serial_number LIKE '" + SERIAL_NUMBER_PREFIX + "%'");
+        insertDrones(0, LEGACY_DRONES);
+        measure("full, 10k drones", full::logBatteryLevels);
+        measure("legacy, 10k drones", this::legacyBatteryLevelTask);
+    }
+
+    private void legacyBatteryLevelTask() {
+        String values = dronesRepository.findAll().stream()
+                .collect(toMap(DroneEntity::getDroneSerialNumber, DroneEntity::getBatteryLevel))
+                .entrySet().stream()
+                .map(e -> format("Serial number: '%s' - Battery level: %s", e.getKey(), e.getValue()))
+                .reduce((s, s2) -> join("\n", s, s2))
+                .orElse("[]");
+
+        log.info("Battery level report of {} chars", values.length());
+    }
+
+    private void measure(String name, Runnable task) {
+        task.run();
+
+        long allocatedBefore = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        task.run();
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        log.info("Battery audit ({}): {} ms, {} MB allocated", name, NANOSECONDS.toMillis(elapsed), allocated >> 20);
+    }
+
+    private void insertDrones(int from, int to) {
+        List<Object[]> rows = IntStream.range(from, to)
+                .mapToObj(i -> new Object[]{format("%s%06d", SERIAL_NUMBER_PREFIX, i), i % 101})
+                .toList();
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO drones(serial_number, model, battery_level, state)
+                VALUES (?, 'LIGHTWEIGHT', ?, 'IDLE')""", rows);
+    }
+}
@@ -0,0 +1,86 @@
+package com.musala.gorskikh.services;
+
+import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.db.entities.DroneEntity;
+import com.musala.gorskikh.db.repositories.DronesRepository;
+import com.musala.gorskikh.services.battery.BatteryHistory;
+import com.musala.gorskikh.services.partitions.FleetPartitions;
+import com.musala.gorskikh.model.CreateDroneRequest;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+
+import static com.musala.gorskikh.model.DroneModelEnum.LIGHTWEIGHT;
+import static com.musala.gorskikh.util.TestUtil.bd;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+class SchedulerTest {
+
+    private final DronesDao dronesDao;
+    private final BatteryHistory batteryHistory;
+    private final FleetPartitions fleetPartitions;
+    private final DronesRepository dronesRepository;
+
+    @Autowired
+    public SchedulerTest(DronesDao dronesDao, BatteryHistory batteryHistory, FleetPartitions fleetPartitions,
+                         DronesRepository dronesRepository) {
+        this.dronesDao = dronesDao;
+        this.batteryHistory = batteryHistory;
+        this.fleetPartitions = fleetPartitions;
+        this.dronesRepository = dronesRepository;
+    }
+
+    @BeforeEach
+    void claimPartitions() {
+        fleetPartitions.rebalance();
+    }
+
+    @Test
+    @DisplayName("Log battery levels of all drones")
+    void logBatteryLevels() {
+        Scheduler scheduler = new Scheduler(dronesDao, batteryHistory, fleetPartitions,
+                Scheduler.AuditMode.FULL, 3, bd(25));
+
+        //when
+        int logged = scheduler.logBatteryLevels();
+
+        //then
+        assertEquals(dronesRepository.count(), logged);
+    }
+
+    @Test
+    @DisplayName("Log only drones whose battery level crossed the threshold")
+    void logThresholdCrossings() {
+        Scheduler scheduler = new Scheduler(dronesDao, batteryHistory, fleetPartitions,
+                Scheduler.AuditMode.DELTA, 3, bd(25));
+        dronesDao.register(new CreateDroneRequest("audit-serial-number_1", LIGHTWEIGHT));
+
+        //when
+        int initiallyBelow = scheduler.logThresholdCrossings();
+        int unchanged = scheduler.logThresholdCrossings();
+        setBatteryLevel("audit-serial-number_1", bd(10));
+        int dropped = scheduler.logThresholdCrossings();
+        setBatteryLevel("audit-serial-number_1", bd(90));
+        int rose = scheduler.logThresholdCrossings();
+
+        //then
+        assertTrue(initiallyBelow > 0);
+        assertEquals(0, unchanged);
+        assertEquals(1, dropped);
+        assertEquals(1, rose);
+    }
+
+    private void setBatteryLevel(String droneSerialNumber, BigDecimal batteryLevel) {
+        DroneEntity drone = dronesRepository.findById(droneSerialNumber).orElseThrow();
+        drone.setBatteryLevel(batteryLevel);
+        dronesRepository.save(drone);
+    }
+}
@@ -0,0 +1,149 @@
+package com.musala.gorskikh.services.battery;
+
+import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.db.repositories.DronesRepository;
+import com.musala.gorskikh.model.BatteryHistoryPoint;
+import com.musala.gorskikh.model.CreateDroneRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static com.musala.gorskikh.model.DroneModelEnum.LIGHTWEIGHT;
+import static com.musala.gorskikh.util.ErrorsUtil.illegalTimeRangeError;
+import static com.musala.gorskikh.util.TestUtil.bd;
+import static java.time.temporal.ChronoUnit.DAYS;
+import static java.time.temporal.ChronoUnit.HOURS;
+import static java.time.temporal.ChronoUnit.MINUTES;
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+class BatteryHistoryTest {
+
+    private final BatteryHistory batteryHistory;
+    private final DronesDao dronesDao;
+    private final DronesRepository dronesRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BatteryHistoryTest(BatteryHistory batteryHistory, DronesDao dronesDao,
+                              DronesRepository dronesRepository, JdbcTemplate jdbcTemplate) {
+        this.batteryHistory = batteryHistory;
+        this.dronesDao = dronesDao;
+        this.dronesRepository = dronesRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Test
+    @DisplayName("Get battery history with downsampled old samples")
+    void getHistory() {
+        String serialNumber = "history-serial-number_1";
+        dronesDao.register(new CreateDroneRequest(serialNumber, LIGHTWEIGHT));
+        Instant now = Instant.now().truncatedTo(SECONDS);
+        Instant bucketStart = now.minus(3, DAYS).truncatedTo(HOURS);
+        batteryHistory.record(List.of(
+                new BatterySample(serialNumber, bucketStart.plus(1, MINUTES), bd(10)),
+                new BatterySample(serialNumber, bucketStart.plus(2, MINUTES), new BigDecimal("20.5")),
+                new BatterySample(serialNumber, bucketStart.plus(3, MINUTES), bd(30)),
+                new BatterySample(serialNumber, now.minus(1, HOURS), bd(50)),
+                new BatterySample(serialNumber, now.minus(10, MINUTES), bd(60))));
+        batteryHistory.flush();
+
+        //when
+        batteryHistory.downsample(now);
+        List<BatteryHistoryPoint> history = batteryHistory.getHistory(serialNumber, now.minus(4, DAYS), now);
+
+        //then
+        assertEquals(3, history.size());
+        assertPoint(history.get(0), bucketStart, "10.0", "20.2", "30.0", 3);
+        assertPoint(history.get(1), now.minus(1, HOURS), "50.0", "50.0", "50.0", 1);
+        assertPoint(history.get(2), now.minus(10, MINUTES), "60.0", "60.0", "60.0", 1);
+    }
+
+    @Test
+    @DisplayName("Keep a sample written while downsampling for the next downsampling")
+    void downsample_whenSampleWrittenConcurrently() {
+        String serialNumber = "history-serial-number_2";
+        dronesDao.register(new CreateDroneRequest(serialNumber, LIGHTWEIGHT));
+        Instant now = Instant.now().truncatedTo(SECONDS);
+        Instant bucketStart = now.minus(3, DAYS).truncatedTo(HOURS);
+        BatterySample lateSample = new BatterySample(serialNumber, bucketStart.plus(4, MINUTES), bd(40));
+        BatteryHistory history = new BatteryHistory(new SampleWritingJdbcTemplate(jdbcTemplate, lateSample),
+                dronesRepository, new SimpleMeterRegistry(), 100, 50, Duration.ofHours(24), Duration.ofHours(1),
+                Duration.ofDays(90));
+        history.record(List.of(
+                new BatterySample(serialNumber, bucketStart.plus(1, MINUTES), bd(10)),
+                new BatterySample(serialNumber, bucketStart.plus(2, MINUTES), bd(20))));
+        history.flush();
+
+        //when
+        history.downsample(now);
+        history.downsample(now);
+
+        //then
+        List<BatteryHistoryPoint> points = history.getHistory(serialNumber, now.minus(4, DAYS), now);
+        assertEquals(1, points.size());
+        assertPoint(points.get(0), bucketStart, "10.0", "23.3", "40.0", 3);
+    }
+
+    @Test
+    @DisplayName("Get battery history over an empty time range")
+    void getHistory_whenEmptyRange() {
+        Instant now = Instant.now();
+
+        //when
+        HttpServerErrorException exception = assertThrows(HttpServerErrorException.class,
+                () -> batteryHistory.getHistory("serial-number_1", now, now));
+
+        //then
+        assertEquals(BAD_REQUEST, exception.getStatusCode());
+        assertEquals(illegalTimeRangeError(now, now), exception.getStatusText());
+    }
+
+    /**
+     * Writes a sample right before the first deletion of the downsampled samples, as a concurrent flush may
+     */
+    private static class SampleWritingJdbcTemplate extends JdbcTemplate {
+
+        private final BatterySample sample;
+        private boolean written;
+
+        private SampleWritingJdbcTemplate(JdbcTemplate jdbcTemplate, BatterySample sample) {
+            super(jdbcTemplate.getDataSource());
+            this.sample = sample;
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (!written && sql.startsWith("DELETE FROM battery_samples")) {
+                written = true;
+                super.update("INSERT INTO battery_samples (drone_serial_number, sampled_at, level) VALUES (?, ?, ?)",
+                        sample.droneSerialNumber(), sample.sampledAt().getEpochSecond(),
+                        sample.level().movePointRight(1).intValueExact());
+            }
+            return super.update(sql, args);
+        }
+    }
+
+    private static void assertPoint(BatteryHistoryPoint point, Instant timestamp,
+                                    String min, String avg, String max, int samples) {
+        assertEquals(timestamp, point.getTimestamp());
+        assertEquals(new BigDecimal(min), point.getMinLevel());
+        assertEquals(new BigDecimal(avg), point.getAvgLevel());
+        assertEquals(new BigDecimal(max), point.getMaxLevel());
+        assertEquals(samples, point.getSamples());
+    }
+}
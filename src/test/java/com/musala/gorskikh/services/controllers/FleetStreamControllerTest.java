@@ -0,0 +1,141 @@
+package com.musala.gorskikh.services.controllers;
+
+import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.model.DroneBatteryLevel;
+import com.musala.gorskikh.model.DroneDto;
+import com.musala.gorskikh.model.Error;
+import com.musala.gorskikh.util.KeysetCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.musala.gorskikh.services.controllers.FleetStreamController.NDJSON_VALUE;
+import static com.musala.gorskikh.util.ErrorsUtil.streamLimitError;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+class FleetStreamControllerTest {
+
+    private final MockMvc mockMvc;
+    private final DronesDao dronesDao;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public FleetStreamControllerTest(WebApplicationContext context, DronesDao dronesDao, ObjectMapper objectMapper) {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+        this.dronesDao = dronesDao;
+        this.objectMapper = objectMapper;
+    }
+
+    @Test
+    @DisplayName("Stream available drones as NDJSON")
+    void streamAvailableDrones() throws Exception {
+        List<String> expectedSerialNumbers = dronesDao.getAvailableDrones().stream()
+                .map(DroneDto::getDroneSerialNumber)
+                .toList();
+
+        //when
+        String body = stream("/drones");
+
+        //then
+        assertEquals(expectedSerialNumbers, parseLines(body, DroneDto.class).stream()
+                .map(DroneDto::getDroneSerialNumber)
+                .toList());
+    }
+
+    @Test
+    @DisplayName("Stream available drones as NDJSON starting after the cursor")
+    void streamAvailableDrones_whenCursor() throws Exception {
+        List<String> serialNumbers = dronesDao.getAvailableDrones().stream()
+                .map(DroneDto::getDroneSerialNumber)
+                .toList();
+        String cursor = KeysetCursor.encode(serialNumbers.get(0));
+
+        //when
+        String body = stream("/drones?cursor=" + cursor);
+
+        //then
+        assertEquals(serialNumbers.subList(1, serialNumbers.size()), parseLines(body, DroneDto.class).stream()
+                .map(DroneDto::getDroneSerialNumber)
+                .toList());
+    }
+
+    @Test
+    @DisplayName("Reject a limit of the available drones stream")
+    void streamAvailableDrones_whenLimit() throws Exception {
+        //when
+        MvcResult result = mockMvc.perform(get("/drones?limit=2").accept(NDJSON_VALUE)).andReturn();
+
+        //then
+        Error error = objectMapper.readValue(result.getResponse().getContentAsString(), Error.class);
+        assertEquals(400, error.getCode());
+        assertTrue(error.getDescription().endsWith(streamLimitError()));
+    }
+
+    @Test
+    @DisplayName("Stream battery levels of all drones as NDJSON")
+    void streamBatteryLevels() throws Exception {
+        List<DroneBatteryLevel> expectedLevels = new ArrayList<>();
+        dronesDao.forEachBatteryLevel(reading ->
+                expectedLevels.add(new DroneBatteryLevel(reading.droneSerialNumber(), reading.level())));
+
+        //when
+        String body = stream("/drones/battery/levels");
+
+        //then
+        assertEquals(expectedLevels.size(), parseLines(body, DroneBatteryLevel.class).size());
+        assertEquals(expectedLevels.get(0).getDroneSerialNumber(),
+                parseLines(body, DroneBatteryLevel.class).get(0).getDroneSerialNumber());
+    }
+
+    @Test
+    @DisplayName("Get available drones as a JSON array when NDJSON isn't requested")
+    void getAvailableDrones() throws Exception {
+        //when
+        MvcResult result = mockMvc.perform(get("/drones")).andReturn();
+
+        //then
+        assertEquals(200, result.getResponse().getStatus());
+        assertEquals(dronesDao.getAvailableDrones().size(),
+                objectMapper.readValue(result.getResponse().getContentAsString(), DroneDto[].class).length);
+    }
+
+    private String stream(String path) throws Exception {
+        MvcResult result = mockMvc.perform(get(path).accept(NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(NDJSON_VALUE))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+    }
+
+    private <T> List<T> parseLines(String body, Class<T> type) throws IOException {
+        List<T> values = new ArrayList<>();
+        for (String line : Arrays.stream(body.split("\n")).filter(line -> !line.isBlank()).toList())
+            values.add(objectMapper.readValue(line, type));
+        return values;
+    }
+}
@@ -0,0 +1,114 @@
+package com.musala.gorskikh.services.controllers;
+
+import com.musala.gorskikh.db.entities.MedicationImageEntity;
+import com.musala.gorskikh.db.repositories.MedicationImagesRepository;
+import com.musala.gorskikh.db.repositories.MedicationsRepository;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static com.musala.gorskikh.util.ErrorsUtil.medicationImageNotExistError;
+import static com.musala.gorskikh.util.TestUtil.bd;
+import static com.musala.gorskikh.util.TestUtil.createMedicationEntity;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.OK;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+class MedicationsControllerTest {
+
+    private static final String IMAGE_PATH = "liquibase/v-1.0.0/test/images/Medication.jpg";
+
+    private final MedicationsController medicationsController;
+    private final MedicationsRepository medicationsRepository;
+    private final MedicationImagesRepository medicationImagesRepository;
+
+    @Autowired
+    public MedicationsControllerTest(MedicationsController medicationsController,
+                                     MedicationsRepository medicationsRepository,
+                                     MedicationImagesRepository medicationImagesRepository) {
+        this.medicationsController = medicationsController;
+        this.medicationsRepository = medicationsRepository;
+        this.medicationImagesRepository = medicationImagesRepository;
+    }
+
+    @Test
+    @DisplayName("Get the medication image")
+    void getMedicationImage() throws Exception {
+        byte[] expectedImage = new ClassPathResource(IMAGE_PATH).getContentAsByteArray();
+
+        //when
+        ResponseEntity<Resource> response = medicationsController.getMedicationImage("med_code_1", null);
+
+        //then
+        assertEquals(OK, response.getStatusCode());
+        assertEquals(etag(expectedImage), response.getHeaders().getETag());
+        assertEquals(expectedImage.length, response.getHeaders().getContentLength());
+        assertArrayEquals(expectedImage, read(response.getBody()));
+    }
+
+    @Test
+    @DisplayName("Get the medication image when the client has the same version")
+    void getMedicationImage_whenNotModified() throws Exception {
+        String etag = etag(new ClassPathResource(IMAGE_PATH).getContentAsByteArray());
+
+        //when
+        ResponseEntity<Resource> response =
+                medicationsController.getMedicationImage("med_code_1", "\"outdated\", " + etag);
+
+        //then
+        assertEquals(NOT_MODIFIED, response.getStatusCode());
+        assertEquals(etag, response.getHeaders().getETag());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    @DisplayName("Get the image of a new medication")
+    void getMedicationImage_whenSaved() throws Exception {
+        byte[] image = {1, 2, 3};
+        medicationsRepository.save(createMedicationEntity("image_med_code_1", bd(10), "Image_medication_1"));
+        medicationImagesRepository.save(new MedicationImageEntity("image_med_code_1", image));
+
+        //when
+        ResponseEntity<Resource> response = medicationsController.getMedicationImage("image_med_code_1", null);
+
+        //then
+        assertEquals(etag(image), response.getHeaders().getETag());
+        assertArrayEquals(image, read(response.getBody()));
+    }
+
+    @Test
+    @DisplayName("Get the image of an unknown medication")
+    void getMedicationImage_whenNotExist() {
+        //when
+        HttpServerErrorException exception = assertThrows(HttpServerErrorException.class,
+                () -> medicationsController.getMedicationImage("unknown_med_code", null));
+
+        //then
+        assertEquals(BAD_REQUEST, exception.getStatusCode());
+        assertEquals(medicationImageNotExistError("unknown_med_code"), exception.getStatusText());
+    }
+
+    private static String etag(byte[] image) throws Exception {
+        return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(image)) + "\"";
+    }
+
+    private static byte[] read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.musala.gorskikh.services.feed;
+
+import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.model.CreateDroneRequest;
+import com.musala.gorskikh.model.DroneState;
+import com.musala.gorskikh.services.fleet.FleetEntry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.musala.gorskikh.model.DroneModelEnum.LIGHTWEIGHT;
+import static com.musala.gorskikh.model.DroneState.IDLE;
+import static com.musala.gorskikh.model.DroneState.LOADING;
+import static com.musala.gorskikh.services.feed.FleetChange.ChangeType.REGISTERED;
+import static com.musala.gorskikh.util.TestUtil.bd;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+class FleetChangeFeedTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final FleetChangeFeed changeFeed;
+    private final DronesDao dronesDao;
+
+    @Autowired
+    public FleetChangeFeedTest(FleetChangeFeed changeFeed, DronesDao dronesDao) {
+        this.changeFeed = changeFeed;
+        this.dronesDao = dronesDao;
+    }
+
+    @Test
+    @DisplayName("Stream a committed registration of a drone")
+    void subscribe() throws InterruptedException {
+        String serialNumber = "feed-serial-number_1";
+        RecordingEmitter emitter = new RecordingEmitter();
+        changeFeed.subscribe(new FleetChangeFilter(Set.of(serialNumber), Set.of()), null, emitter);
+
+        //when
+        dronesDao.register(new CreateDroneRequest(serialNumber, LIGHTWEIGHT));
+
+        //then
+        Event event = emitter.await(1).get(0);
+        assertEquals(FleetChangeFeed.CHANGE_EVENT, event.name());
+        FleetChange change = (FleetChange) event.data();
+        assertEquals(serialNumber, change.droneSerialNumber());
+        assertEquals(Set.of(REGISTERED), change.changes());
+        emitter.complete();
+    }
+
+    @Test
+    @DisplayName("Stream only changes matching the filter")
+    void publish_whenFiltered() throws InterruptedException {
+        FleetChangeFeed feed = newFeed(16, 16);
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(new FleetChangeFilter(Set.of("d1", "d2"), Set.of(LOADING)), null, emitter);
+
+        //when
+        feed.publish(null, entry("d1", IDLE, 100));
+        feed.publish(null, entry("d2", LOADING, 100));
+        feed.publish(null, entry("d3", LOADING, 100));
+        feed.publish(entry("d1", IDLE, 100), entry("d1", LOADING, 100));
+
+        //then
+        assertEquals(List.of("d2", "d1"), emitter.await(2).stream()
+                .map(event -> ((FleetChange) event.data()).droneSerialNumber())
+                .toList());
+    }
+
+    @Test
+    @DisplayName("Replay missed changes after the last event id")
+    void subscribe_whenReconnected() throws InterruptedException {
+        FleetChangeFeed feed = newFeed(16, 16);
+        for (int i = 1; i <= 5; i++)
+            feed.publish(null, entry("d" + i, IDLE, 100));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        //when
+        feed.subscribe(FleetChangeFilter.ANY, feed.eventId(3), emitter);
+        feed.publish(null, entry("d6", IDLE, 100));
+
+        //then
+        assertEquals(List.of(feed.eventId(4), feed.eventId(5), feed.eventId(6)),
+                emitter.await(3).stream().map(Event::id).toList());
+    }
+
+    @Test
+    @DisplayName("Replay more missed changes than the buffer of a subscriber holds")
+    void subscribe_whenReconnectedAfterBufferOverflow() throws InterruptedException {
+        FleetChangeFeed feed = newFeed(64, 4);
+        for (int i = 1; i <= 20; i++)
+            feed.publish(null, entry("d" + i, IDLE, 100));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        //when
+        feed.subscribe(FleetChangeFilter.ANY, feed.eventId(2), emitter);
+        feed.publish(null, entry("d21", IDLE, 100));
+
+        //then
+        List<Event> events = emitter.await(19);
+        assertEquals(19, events.size());
+        assertTrue(events.stream().allMatch(event -> event.name().equals(FleetChangeFeed.CHANGE_EVENT)));
+        assertEquals(feed.eventId(3), events.get(0).id());
+        assertEquals(feed.eventId(21), events.get(18).id());
+    }
+
+    @Test
+    @DisplayName("Resync a client whose last event was sent by another feed")
+    void subscribe_whenLastEventOfAnotherEpoch() throws InterruptedException {
+        FleetChangeFeed previousFeed = newFeed(16, 16);
+        FleetChangeFeed feed = newFeed(16, 16);
+        for (int i = 1; i <= 5; i++)
+            feed.publish(null, entry("d" + i, IDLE, 100));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        //when
+        feed.subscribe(FleetChangeFilter.ANY, previousFeed.eventId(3), emitter);
+
+        //then
+        Event event = emitter.await(1).get(0);
+        assertEquals(FleetChangeFeed.RESYNC_EVENT, event.name());
+        assertEquals(feed.eventId(5), event.id());
+    }
+
+    @Test
+    @DisplayName("Resync a client whose last event is no longer kept")
+    void subscribe_whenLastEventExpired() throws InterruptedException {
+        FleetChangeFeed feed = newFeed(4, 16);
+        for (int i = 1; i <= 10; i++)
+            feed.publish(null, entry("d" + i, IDLE, 100));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        //when
+        feed.subscribe(FleetChangeFilter.ANY, feed.eventId(2), emitter);
+
+        //then
+        Event event = emitter.await(1).get(0);
+        assertEquals(FleetChangeFeed.RESYNC_EVENT, event.name());
+        assertEquals(feed.eventId(10), event.id());
+    }
+
+    @Test
+    @DisplayName("Resync a slow client without blocking publishers")
+    void publish_whenSlowSubscriber() throws InterruptedException {
+        FleetChangeFeed feed = newFeed(1024, 4);
+        CountDownLatch released = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(released);
+        feed.subscribe(FleetChangeFilter.ANY, null, emitter);
+
+        //when
+        for (int i = 1; i <= 100; i++)
+            feed.publish(null, entry("d" + i, IDLE, 100));
+        released.countDown();
+
+        //then
+        List<Event> events = emitter.awaitId(feed.eventId(100));
+        assertTrue(events.size() <= 6);
+        assertTrue(events.stream().anyMatch(event -> event.name().equals(FleetChangeFeed.RESYNC_EVENT)));
+        assertEquals(feed.eventId(100), events.get(events.size() - 1).id());
+    }
+
+    private static FleetChangeFeed newFeed(int historySize, int subscriberBuffer) {
+        return new FleetChangeFeed(new SimpleMeterRegistry(), historySize, subscriberBuffer, 2, TIMEOUT);
+    }
+
+    private static FleetEntry entry(String serialNumber, DroneState state, int batteryLevel) {
+        return new FleetEntry(serialNumber, LIGHTWEIGHT, 100_000, state, bd(batteryLevel), 100_000, 0);
+    }
+
+    private record Event(String name, String id, Object data) {
+    }
+
+    /**
+     * Emitter recording sent events, a send blocks until the latch is released
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private static final Pattern FIELD = Pattern.compile("^(id|event):(.*)$", Pattern.MULTILINE);
+
+        private final List<Event> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch released;
+
+        private RecordingEmitter() {
+            this(new CountDownLatch(0));
+        }
+
+        private RecordingEmitter(CountDownLatch released) {
+            this.released = released;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                released.await();
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+
+            Set<DataWithMediaType> parts = builder.build();
+            String fields = parts.stream()
+                    .map(DataWithMediaType::getData)
+                    .filter(String.class::isInstance)
+                    .map(String.class::cast)
+                    .collect(Collectors.joining());
+            Object data = parts.stream()
+                    .map(DataWithMediaType::getData)
+                    .filter(part -> !(part instanceof String))
+                    .findFirst()
+                    .orElse(null);
+
+            String name = null;
+            String id = null;
+            Matcher matcher = FIELD.matcher(fields);
+            while (matcher.find()) {
+                if (matcher.group(1).equals("id"))
+                    id = matcher.group(2);
+                else
+                    name = matcher.group(2);
+            }
+            events.add(new Event(name, id, data));
+        }
+
+        private List<Event> awaitId(String id) throws InterruptedException {
+            long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while (events.stream().noneMatch(event -> id.equals(event.id())) && System.nanoTime() < deadline)
+                Thread.sleep(10);
+            return List.copyOf(events);
+        }
+
+        /**
+         * Waits for at least the count of events and for the delivery to settle
+         */
+        private List<Event> await(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while (events.size() < count && System.nanoTime() < deadline)
+                Thread.sleep(10);
+            Thread.sleep(100);
+            return List.copyOf(events);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.musala.gorskikh.services.imports;
+
+import com.musala.gorskikh.db.repositories.MedicationImagesRepository;
+import com.musala.gorskikh.db.repositories.MedicationsRepository;
+import com.musala.gorskikh.services.catalog.CatalogCache;
+import com.musala.gorskikh.services.catalog.MedicationJsonCache;
+import com.musala.gorskikh.services.images.MedicationImageMetadata;
+import com.musala.gorskikh.services.images.MedicationImages;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.musala.gorskikh.services.imports.CatalogImporter.MANIFEST;
+import static com.musala.gorskikh.util.ErrorsUtil.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+class CatalogImporterTest {
+
+    private static final String IMAGE_PATH = "liquibase/v-1.0.0/test/images/Medication.jpg";
+
+    private final MedicationsRepository medicationsRepository;
+    private final MedicationImagesRepository medicationImagesRepository;
+    private final MedicationImages medicationImages;
+    private final CatalogCache catalogCache;
+    private final MedicationJsonCache medicationJsonCache;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Autowired
+    public CatalogImporterTest(MedicationsRepository medicationsRepository,
+                               MedicationImagesRepository medicationImagesRepository,
+                               MedicationImages medicationImages, CatalogCache catalogCache,
+                               MedicationJsonCache medicationJsonCache, ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager) {
+        this.medicationsRepository = medicationsRepository;
+        this.medicationImagesRepository = medicationImagesRepository;
+        this.medicationImages = medicationImages;
+        this.catalogCache = catalogCache;
+        this.medicationJsonCache = medicationJsonCache;
+        this.objectMapper = objectMapper;
+        this.transactionManager = transactionManager;
+    }
+
+    @Test
+    @DisplayName("Import medications with images streamed into the database in chunks")
+    void importCatalog() throws Exception {
+        byte[] image = new ClassPathResource(IMAGE_PATH).getContentAsByteArray();
+        Map<String, byte[]> archive = new LinkedHashMap<>();
+        archive.put(MANIFEST, """
+                {"code": "IMPORT_CODE_1", "name": "Imported_1", "weightGr": 10}
+                {"code": "IMPORT_CODE_2", "name": "Imported_2", "weightGr": 20}
+                {"code": "IMPORT_CODE_3", "name": "Imported_3", "weightGr": 200}
+                {"code": "IMPORT_CODE_1", "name": "Imported_1", "weightGr": 10}
+                """.getBytes(UTF_8));
+        archive.put("images/IMPORT_CODE_1.jpg", image);
+        archive.put("images/IMPORT_CODE_2.jpg", image);
+        archive.put("images/IMPORT_CODE_3.jpg", image);
+        archive.put("images/readme.txt", new byte[]{1});
+
+        //when
+        CatalogImportSummary summary = newImporter(1).importCatalog(zip(archive));
+
+        //then
+        assertEquals(2, summary.medications());
+        assertEquals(2, summary.images());
+        assertEquals(List.of(MANIFEST + ":3", MANIFEST + ":4", "images/IMPORT_CODE_3.jpg", "images/readme.txt"),
+                summary.errors().stream().map(CatalogImportError::entry).toList());
+        assertEquals(duplicateMedicationError("IMPORT_CODE_1"), summary.errors().get(1).error());
+
+        MedicationImageMetadata metadata = medicationImages.getMetadata("IMPORT_CODE_2").orElseThrow();
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(image)), metadata.etag());
+        assertEquals(image.length, metadata.size());
+        try (InputStream stored = medicationImages.getImage(metadata).getInputStream()) {
+            assertArrayEquals(image, stored.readAllBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Import medications updating the existing ones and their cached versions")
+    void importCatalog_whenExisting() throws Exception {
+        CatalogImporter importer = newImporter(500);
+        importer.importCatalog(zip(Map.of(MANIFEST,
+                "{\"code\": \"UPSERT_CODE_1\", \"name\": \"Upserted_1\", \"weightGr\": 10}".getBytes(UTF_8))));
+        assertEquals(10_000, catalogCache.getMedications(List.of("UPSERT_CODE_1")).get("UPSERT_CODE_1").weightMg());
+
+        //when
+        Map<String, byte[]> archive = new LinkedHashMap<>();
+        archive.put(MANIFEST,
+                "{\"code\": \"UPSERT_CODE_1\", \"name\": \"Upserted_2\", \"weightGr\": 15}".getBytes(UTF_8));
+        archive.put("UPSERT_CODE_1.jpg", new ClassPathResource(IMAGE_PATH).getContentAsByteArray());
+        CatalogImportSummary summary = importer.importCatalog(zip(archive));
+
+        //then
+        assertEquals(1, summary.medications());
+        assertEquals(1, summary.images());
+        assertEquals("Upserted_2", medicationsRepository.findById("UPSERT_CODE_1").orElseThrow().getName());
+        assertEquals(15_000, catalogCache.getMedications(List.of("UPSERT_CODE_1")).get("UPSERT_CODE_1").weightMg());
+        assertTrue(medicationImagesRepository.existsById("UPSERT_CODE_1"));
+    }
+
+    @Test
+    @DisplayName("Import medications rejecting rows whose code or name mismatch the medication contract")
+    void importCatalog_whenPatternMismatched() throws Exception {
+        Map<String, byte[]> archive = new LinkedHashMap<>();
+        archive.put(MANIFEST, """
+                {"code": "PATTERN_CODE_1", "name": "Pattern_1", "weightGr": 10}
+                {"code": "PATTERN-CODE-2", "name": "Pattern_2", "weightGr": 10}
+                {"code": "PATTERN_CODE_3", "name": "Pattern 3", "weightGr": 10}
+                """.getBytes(UTF_8));
+        archive.put("PATTERN_CODE_1.jpg", new ClassPathResource(IMAGE_PATH).getContentAsByteArray());
+
+        //when
+        CatalogImportSummary summary = newImporter(500).importCatalog(zip(archive));
+
+        //then
+        assertEquals(1, summary.medications());
+        assertEquals(List.of(MANIFEST + ":2", MANIFEST + ":3"),
+                summary.errors().stream().map(CatalogImportError::entry).toList());
+        assertTrue(summary.errors().get(0).error().startsWith("Code of medication must match"));
+        assertTrue(summary.errors().get(1).error().startsWith("Name of medication must match"));
+        assertFalse(medicationsRepository.existsById("PATTERN_CODE_3"));
+    }
+
+    @Test
+    @DisplayName("Import medications reporting the ones left without an image")
+    void importCatalog_whenImageMissing() throws Exception {
+        CatalogImporter importer = newImporter(1);
+        Map<String, byte[]> stored = new LinkedHashMap<>();
+        stored.put(MANIFEST, "{\"code\": \"NO_IMAGE_CODE_1\", \"name\": \"No_image_1\", \"weightGr\": 10}"
+                .getBytes(UTF_8));
+        stored.put("NO_IMAGE_CODE_1.jpg", new ClassPathResource(IMAGE_PATH).getContentAsByteArray());
+        importer.importCatalog(zip(stored));
+
+        Map<String, byte[]> archive = new LinkedHashMap<>();
+        archive.put(MANIFEST, """
+                {"code": "NO_IMAGE_CODE_1", "name": "No_image_1", "weightGr": 10}
+                {"code": "NO_IMAGE_CODE_2", "name": "No_image_2", "weightGr": 10}
+                {"code": "NO_IMAGE_CODE_3", "name": "No_image_3", "weightGr": 10}
+                {"code": "NO_IMAGE_CODE_4", "name": "No_image_4", "weightGr": 10}
+                """.getBytes(UTF_8));
+        archive.put("NO_IMAGE_CODE_3.jpg", new ClassPathResource(IMAGE_PATH).getContentAsByteArray());
+
+        //when
+        CatalogImportSummary summary = importer.importCatalog(zip(archive));
+
+        //then
+        assertEquals(4, summary.medications());
+        assertEquals(1, summary.images());
+        assertEquals(List.of(
+                        new CatalogImportError("NO_IMAGE_CODE_2.jpg", "NO_IMAGE_CODE_2",
+                                medicationImageNotExistError("NO_IMAGE_CODE_2")),
+                        new CatalogImportError("NO_IMAGE_CODE_4.jpg", "NO_IMAGE_CODE_4",
+                                medicationImageNotExistError("NO_IMAGE_CODE_4"))),
+                summary.errors());
+    }
+
+    @Test
+    @DisplayName("Import medications when the archive doesn't start with the manifest")
+    void importCatalog_whenManifestNotFirst() throws IOException {
+        Map<String, byte[]> archive = new LinkedHashMap<>();
+        archive.put("NO_MANIFEST_CODE.jpg", new ClassPathResource(IMAGE_PATH).getContentAsByteArray());
+        archive.put(MANIFEST, "{\"code\": \"NO_MANIFEST_CODE\"}".getBytes(UTF_8));
+        InputStream body = zip(archive);
+
+        //when
+        HttpServerErrorException exception =
+                assertThrows(HttpServerErrorException.class, () -> newImporter(500).importCatalog(body));
+
+        //then
+        assertEquals(BAD_REQUEST, exception.getStatusCode());
+        assertEquals(catalogManifestMissingError(MANIFEST), exception.getStatusText());
+        assertFalse(medicationsRepository.existsById("NO_MANIFEST_CODE"));
+    }
+
+    private CatalogImporter newImporter(int chunkSize) {
+        return new CatalogImporter(medicationsRepository, medicationImagesRepository, catalogCache,
+                medicationJsonCache, objectMapper, transactionManager, new SimpleMeterRegistry(), chunkSize, 10);
+    }
+
+    private static InputStream zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return new ByteArrayInputStream(archive.toByteArray());
+    }
+}
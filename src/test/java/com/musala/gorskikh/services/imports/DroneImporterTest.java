@@ -0,0 +1,116 @@
+package com.musala.gorskikh.services.imports;
+
+import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.db.repositories.DronesRepository;
+import com.musala.gorskikh.model.CreateDroneRequest;
+import com.musala.gorskikh.model.DroneDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static com.musala.gorskikh.model.DroneModelEnum.LIGHTWEIGHT;
+import static com.musala.gorskikh.util.ErrorsUtil.droneAlreadyExistError;
+import static com.musala.gorskikh.util.ErrorsUtil.serialNumberIsBlankError;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+class DroneImporterTest {
+
+    private final DronesDao dronesDao;
+    private final DronesRepository dronesRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public DroneImporterTest(DronesDao dronesDao, DronesRepository dronesRepository, ObjectMapper objectMapper) {
+        this.dronesDao = dronesDao;
+        this.dronesRepository = dronesRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Test
+    @DisplayName("Import drones from NDJSON in chunks reporting rejected rows")
+    void importDrones() throws IOException {
+        dronesDao.register(new CreateDroneRequest("ndjson-serial-number_0", LIGHTWEIGHT));
+        String body = """
+                {"droneSerialNumber": "ndjson-serial-number_1", "model": "LIGHTWEIGHT"}
+                {"droneSerialNumber": "ndjson-serial-number_0", "model": "LIGHTWEIGHT"}
+
+                {"droneSerialNumber": "ndjson-serial-number_2", "model": "HEAVYWEIGHT"}
+                {"droneSerialNumber": "ndjson-serial-number_1", "model": "HEAVYWEIGHT"}
+                {"droneSerialNumber": "ndjson-serial-number_3",
+                {"droneSerialNumber": " ", "model": "HEAVYWEIGHT"}
+                {"droneSerialNumber": "ndjson-serial-number_4", "model": "MIDDLEWEIGHT"}
+                """;
+
+        //when
+        DroneImportSummary summary = newImporter(2, 10).importDrones(stream(body), DroneImportFormat.NDJSON);
+
+        //then
+        assertEquals(3, summary.imported());
+        assertEquals(4, summary.rejected());
+        assertFalse(summary.errorsTruncated());
+        assertEquals(List.of(2L, 5L, 6L, 7L), summary.errors().stream().map(DroneImportError::line).toList());
+        assertEquals(droneAlreadyExistError("ndjson-serial-number_0"), summary.errors().get(0).error());
+        assertEquals(droneAlreadyExistError("ndjson-serial-number_1"), summary.errors().get(1).error());
+        assertNull(summary.errors().get(2).droneSerialNumber());
+        assertEquals(serialNumberIsBlankError(), summary.errors().get(3).error());
+        assertTrue(dronesRepository.findAllById(List.of("ndjson-serial-number_1", "ndjson-serial-number_2",
+                "ndjson-serial-number_4")).stream().allMatch(drone -> drone.getVersion() == 0));
+        assertTrue(dronesDao.getAvailableDrones().stream()
+                .map(DroneDto::getDroneSerialNumber)
+                .anyMatch("ndjson-serial-number_4"::equals));
+    }
+
+    @Test
+    @DisplayName("Import drones from CSV with a header")
+    void importDrones_whenCsv() throws IOException {
+        String body = """
+                droneSerialNumber,model
+                csv-serial-number_1,LIGHTWEIGHT
+                "csv-serial-number_2", "CRUISERWEIGHT"
+                csv-serial-number_3,UNKNOWN
+                csv-serial-number_4
+                """;
+
+        //when
+        DroneImportSummary summary = newImporter(500, 10).importDrones(stream(body), DroneImportFormat.CSV);
+
+        //then
+        assertEquals(2, summary.imported());
+        assertEquals(List.of(4L, 5L), summary.errors().stream().map(DroneImportError::line).toList());
+        assertTrue(dronesRepository.existsById("csv-serial-number_2"));
+    }
+
+    @Test
+    @DisplayName("Import drones reporting only the configured count of errors")
+    void importDrones_whenManyErrors() throws IOException {
+        String body = "droneSerialNumber,model\n" + ",LIGHTWEIGHT\n".repeat(5);
+
+        //when
+        DroneImportSummary summary = newImporter(500, 2).importDrones(stream(body), DroneImportFormat.CSV);
+
+        //then
+        assertEquals(0, summary.imported());
+        assertEquals(5, summary.rejected());
+        assertEquals(2, summary.errors().size());
+        assertTrue(summary.errorsTruncated());
+    }
+
+    private DroneImporter newImporter(int chunkSize, int maxErrors) {
+        return new DroneImporter(dronesDao, objectMapper, new SimpleMeterRegistry(), chunkSize, maxErrors, 3);
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,127 @@
+package com.musala.gorskikh.services.metrics;
+
+import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.model.CreateDroneRequest;
+import com.musala.gorskikh.model.LoadingMedication;
+import com.musala.gorskikh.util.ErrorsUtil;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static com.musala.gorskikh.model.DroneModelEnum.HEAVYWEIGHT;
+import static com.musala.gorskikh.services.metrics.RequestSqlMetricsFilter.STATEMENTS_METER;
+import static com.musala.gorskikh.services.metrics.RequestSqlMetricsFilter.TRANSACTIONS_METER;
+import static com.musala.gorskikh.services.metrics.RejectionCounter.REJECTIONS_METER;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "drones.metrics.sql-per-request.enabled=true")
+@AutoConfigureEmbeddedDatabase
+class MetricsTest {
+
+    private final DronesDao dronesDao;
+    private final MeterRegistry meterRegistry;
+    private final MockMvc mockMvc;
+
+    @Autowired
+    public MetricsTest(DronesDao dronesDao, MeterRegistry meterRegistry, WebApplicationContext context,
+                       RequestSqlMetricsFilter requestSqlMetricsFilter) {
+        this.dronesDao = dronesDao;
+        this.meterRegistry = meterRegistry;
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(context)
+                .addFilters(requestSqlMetricsFilter)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Time calls of the DAO and phases of a load")
+    void load() {
+        dronesDao.register(new CreateDroneRequest("metrics-serial-number_1", HEAVYWEIGHT));
+        long loads = timerCount(meterRegistry.find("drones.dao").tag("method", "load"));
+        long catalogLookups = timerCount(meterRegistry.find("drones.load.phase").tag("phase", "catalog"));
+        long stateTransitions = timerCount(meterRegistry.find("drones.load.phase").tag("phase", "state-transition"));
+
+        //when
+        dronesDao.load("metrics-serial-number_1", List.of(new LoadingMedication("med_code_1", 1)));
+
+        //then
+        assertEquals(loads + 1, timerCount(meterRegistry.find("drones.dao").tag("method", "load")));
+        assertEquals(catalogLookups + 1,
+                timerCount(meterRegistry.find("drones.load.phase").tag("phase", "catalog")));
+        assertEquals(stateTransitions + 1,
+                timerCount(meterRegistry.find("drones.load.phase").tag("phase", "state-transition")));
+    }
+
+    @Test
+    @DisplayName("Record SQL statements and transactions per HTTP request")
+    void sqlPerRequest() throws Exception {
+        //when
+        mockMvc.perform(get("/drones/battery").param("droneSerialNumber", "serial-number_1"))
+                .andExpect(status().isOk());
+
+        //then
+        DistributionSummary statements = meterRegistry.get(STATEMENTS_METER)
+                .tag("method", "GET").tag("uri", "/drones/battery").summary();
+        DistributionSummary transactions = meterRegistry.get(TRANSACTIONS_METER)
+                .tag("method", "GET").tag("uri", "/drones/battery").summary();
+        assertEquals(1, statements.count());
+        assertEquals(1, statements.totalAmount());
+        assertEquals(1, transactions.totalAmount());
+    }
+
+    @Test
+    @DisplayName("Count rejections returned to clients by reason")
+    void rejections() throws Exception {
+        double rejections = rejectionCount("drone-not-exist");
+
+        //when
+        mockMvc.perform(get("/drones/medications").param("droneSerialNumber", "metrics-unknown"));
+
+        //then
+        assertEquals(rejections + 1, rejectionCount("drone-not-exist"));
+    }
+
+    @Test
+    @DisplayName("Don't count building an error message as a rejection")
+    void rejections_whenNotReturned() {
+        double rejections = rejectionCount("drone-not-exist");
+
+        //when
+        assertThrows(HttpServerErrorException.class, () -> dronesDao.getBatteryLevel("metrics-unknown"));
+
+        //then
+        assertEquals(rejections, rejectionCount("drone-not-exist"));
+    }
+
+    @Test
+    @DisplayName("Find the reason of an error message")
+    void reasonOf() {
+        assertEquals("drone-not-exist", ErrorsUtil.reasonOf(ErrorsUtil.droneNotExistError("metrics-unknown")));
+        assertEquals("less-than-min-battery-level", ErrorsUtil.reasonOf(
+                ErrorsUtil.lessThanMinBatteryLevelError("metrics-unknown", BigDecimal.TEN, BigDecimal.ONE)));
+        assertEquals(ErrorsUtil.UNKNOWN_REASON, ErrorsUtil.reasonOf("Unexpected error"));
+    }
+
+    private static long timerCount(Search search) {
+        return search.timer() != null ? search.timer().count() : 0;
+    }
+
+    private double rejectionCount(String reason) {
+        return meterRegistry.find(REJECTIONS_METER).tag("reason", reason).counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+}
@@ -0,0 +1,124 @@
+package com.musala.gorskikh.services.partitions;
+
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+class FleetPartitionsTest {
+
+    private static final int PARTITIONS = 16;
+    private static final Duration LEASE = Duration.ofSeconds(1);
+
+    private final DataSource dataSource;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<FleetPartitions> nodes = new ArrayList<>();
+
+    @Autowired
+    public FleetPartitionsTest(DataSource dataSource, PlatformTransactionManager transactionManager,
+                               JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.transactionManager = transactionManager;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @AfterEach
+    void shutdownNodes() {
+        nodes.forEach(FleetPartitions::shutdown);
+    }
+
+    @Test
+    @DisplayName("Split partitions between nodes")
+    void rebalance() {
+        FleetPartitions first = startNode("partitions-test-1");
+        FleetPartitions second = startNode("partitions-test-1");
+
+        //when
+        converge(first, second);
+
+        //then
+        assertSplit(first.getOwnedPartitions(), second.getOwnedPartitions());
+        assertEquals(PARTITIONS / 2, first.getOwnedPartitions().partitions().size());
+    }
+
+    @Test
+    @DisplayName("Take partitions of a failed node over after its leases expire")
+    void rebalance_whenNodeFailed() throws InterruptedException {
+        FleetPartitions first = startNode("partitions-test-2");
+        FleetPartitions second = startNode("partitions-test-2");
+        converge(first, second);
+        assertEquals(PARTITIONS / 2, second.getOwnedPartitions().partitions().size());
+
+        //when
+        first.abandon();
+        Thread.sleep(LEASE.multipliedBy(3).dividedBy(2).toMillis());
+        FleetPartitionSet partitions = second.rebalance();
+
+        //then
+        assertEquals(allPartitions(), partitions.partitions());
+    }
+
+    @Test
+    @DisplayName("Claim partitions again when a stopped node is started")
+    void start_whenStopped() {
+        FleetPartitions node = startNode("partitions-test-3");
+        assertEquals(allPartitions(), node.rebalance().partitions());
+        node.stop();
+        assertTrue(node.getOwnedPartitions().partitions().isEmpty());
+
+        //when
+        node.start();
+        FleetPartitionSet partitions = node.rebalance();
+
+        //then
+        assertTrue(node.isRunning());
+        assertEquals(allPartitions(), partitions.partitions());
+    }
+
+    private FleetPartitions startNode(String region) {
+        FleetPartitions node = new FleetPartitions(dataSource, transactionManager, jdbcTemplate, region,
+                PARTITIONS, LEASE);
+        node.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private static void converge(FleetPartitions first, FleetPartitions second) {
+        for (int i = 0; i < 3; i++) {
+            first.rebalance();
+            second.rebalance();
+        }
+    }
+
+    private static void assertSplit(FleetPartitionSet first, FleetPartitionSet second) {
+        Set<Integer> union = new HashSet<>(first.partitions());
+        union.addAll(second.partitions());
+
+        assertEquals(allPartitions(), union);
+        assertTrue(first.partitions().stream().noneMatch(second.partitions()::contains));
+    }
+
+    private static Set<Integer> allPartitions() {
+        return IntStream.range(0, PARTITIONS).boxed().collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,265 @@
+package com.musala.gorskikh.services.telemetry;
+
+import com.musala.gorskikh.db.dao.DronesDao;
+import com.musala.gorskikh.model.CreateDroneRequest;
+import com.musala.gorskikh.model.DroneState;
+import com.musala.gorskikh.model.TelemetryReading;
+import com.musala.gorskikh.services.battery.BatteryHistory;
+import com.musala.gorskikh.services.fleet.AvailabilityFilter;
+import com.musala.gorskikh.services.fleet.FleetIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import static com.musala.gorskikh.model.DroneModelEnum.LIGHTWEIGHT;
+import static com.musala.gorskikh.model.DroneState.DELIVERING;
+import static com.musala.gorskikh.model.DroneState.IDLE;
+import static com.musala.gorskikh.model.DroneState.LOADING;
+import static com.musala.gorskikh.model.DroneState.RETURNING;
+import static com.musala.gorskikh.util.ErrorsUtil.telemetryBatchTooLargeError;
+import static com.musala.gorskikh.util.TestUtil.bd;
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+class TelemetryBufferTest {
+
+    private static final int CAPACITY = 3;
+
+    private final DronesDao dronesDao;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final FleetIndex fleetIndex;
+    private final BatteryHistory batteryHistory;
+
+    private TelemetryBuffer telemetryBuffer;
+
+    @Autowired
+    public TelemetryBufferTest(DronesDao dronesDao, JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager, FleetIndex fleetIndex,
+                               BatteryHistory batteryHistory) {
+        this.dronesDao = dronesDao;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.fleetIndex = fleetIndex;
+        this.batteryHistory = batteryHistory;
+    }
+
+    @BeforeEach
+    void createBuffer() {
+        telemetryBuffer = new TelemetryBuffer(jdbcTemplate, transactionManager, fleetIndex, batteryHistory,
+                new SimpleMeterRegistry(), CAPACITY, Duration.ofHours(1), Integer.MAX_VALUE, 50);
+    }
+
+    @AfterEach
+    void shutdownBuffer() {
+        telemetryBuffer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Flush only the latest reading of a drone")
+    void flush() {
+        String serialNumber = "telemetry-serial-number_1";
+        dronesDao.register(new CreateDroneRequest(serialNumber, LIGHTWEIGHT));
+        Instant now = Instant.now().truncatedTo(MILLIS);
+
+        //when
+        assertTrue(telemetryBuffer.offer(List.of(
+                reading(serialNumber, 40, DELIVERING, now),
+                reading(serialNumber, 60, RETURNING, now.minus(1, SECONDS)))));
+        assertTrue(telemetryBuffer.offer(List.of(reading(serialNumber, 35, LOADING, now.plus(1, SECONDS)))));
+        int updated = telemetryBuffer.flush();
+
+        //then
+        assertEquals(1, updated);
+        assertEquals(bd(35), dronesDao.getBatteryLevel(serialNumber).getLevel().setScale(0));
+        assertEquals(LOADING.name(), jdbcTemplate.queryForObject(
+                "SELECT state FROM drones WHERE serial_number = ?", String.class, serialNumber));
+    }
+
+    @Test
+    @DisplayName("Keep the state of a drone when the reported state may not follow it")
+    void flush_whenIllegalTransition() {
+        String serialNumber = "telemetry-serial-number_7";
+        dronesDao.register(new CreateDroneRequest(serialNumber, LIGHTWEIGHT));
+
+        //when
+        telemetryBuffer.offer(List.of(reading(serialNumber, 45, DELIVERING, Instant.now())));
+        int updated = telemetryBuffer.flush();
+
+        //then
+        assertEquals(1, updated);
+        assertEquals(bd(45), dronesDao.getBatteryLevel(serialNumber).getLevel().setScale(0));
+        assertEquals(IDLE.name(), jdbcTemplate.queryForObject(
+                "SELECT state FROM drones WHERE serial_number = ?", String.class, serialNumber));
+        assertEquals(IDLE, fleetIndex.findAvailable(AvailabilityFilter.ANY).stream()
+                .filter(entry -> entry.droneSerialNumber().equals(serialNumber))
+                .findFirst().orElseThrow().state());
+    }
+
+    @Test
+    @DisplayName("Ignore readings older than the applied one and readings of unknown drones")
+    void flush_whenStaleReading() {
+        String serialNumber = "telemetry-serial-number_2";
+        dronesDao.register(new CreateDroneRequest(serialNumber, LIGHTWEIGHT));
+        Instant now = Instant.now().truncatedTo(MILLIS);
+        telemetryBuffer.offer(List.of(reading(serialNumber, 40, DELIVERING, now)));
+        telemetryBuffer.flush();
+
+        //when
+        telemetryBuffer.offer(List.of(
+                reading(serialNumber, 90, LOADING, now.minus(1, SECONDS)),
+                reading("telemetry-unknown-serial-number", 90, LOADING, now)));
+        int updated = telemetryBuffer.flush();
+
+        //then
+        assertEquals(0, updated);
+        assertEquals(bd(40), dronesDao.getBatteryLevel(serialNumber).getLevel().setScale(0));
+    }
+
+    @Test
+    @DisplayName("Keep readings in the buffer when writing them fails")
+    void flush_whenWriteFailed() {
+        String serialNumber = "telemetry-serial-number_8";
+        dronesDao.register(new CreateDroneRequest(serialNumber, LIGHTWEIGHT));
+        TelemetryBuffer failingOnceBuffer = new TelemetryBuffer(new FailingOnceJdbcTemplate(jdbcTemplate, 0),
+                transactionManager, fleetIndex, batteryHistory, new SimpleMeterRegistry(), CAPACITY,
+                Duration.ofHours(1), Integer.MAX_VALUE, 50);
+        Instant now = Instant.now().truncatedTo(MILLIS);
+        failingOnceBuffer.offer(List.of(reading(serialNumber, 55, LOADING, now)));
+
+        //when
+        assertThrows(DataAccessResourceFailureException.class, failingOnceBuffer::flush);
+        failingOnceBuffer.offer(List.of(reading(serialNumber, 60, LOADING, now.minus(1, SECONDS))));
+        int updated = failingOnceBuffer.flush();
+
+        //then
+        assertEquals(1, updated);
+        assertEquals(bd(55), dronesDao.getBatteryLevel(serialNumber).getLevel().setScale(0));
+        failingOnceBuffer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Roll back all batches of readings when a later batch fails")
+    void flush_whenLaterBatchFailed() {
+        String firstSerialNumber = "telemetry-serial-number_9";
+        String secondSerialNumber = "telemetry-serial-number_10";
+        dronesDao.register(new CreateDroneRequest(firstSerialNumber, LIGHTWEIGHT));
+        dronesDao.register(new CreateDroneRequest(secondSerialNumber, LIGHTWEIGHT));
+        TelemetryBuffer failingOnceBuffer = new TelemetryBuffer(new FailingOnceJdbcTemplate(jdbcTemplate, 1),
+                transactionManager, fleetIndex, batteryHistory, new SimpleMeterRegistry(), CAPACITY,
+                Duration.ofHours(1), Integer.MAX_VALUE, 1);
+        Instant now = Instant.now().truncatedTo(MILLIS);
+        failingOnceBuffer.offer(List.of(
+                reading(firstSerialNumber, 65, IDLE, now),
+                reading(secondSerialNumber, 65, IDLE, now)));
+
+        //when
+        assertThrows(DataAccessException.class, failingOnceBuffer::flush);
+        BigDecimal rolledBackLevel = dronesDao.getBatteryLevel(firstSerialNumber).getLevel();
+        int updated = failingOnceBuffer.flush();
+
+        //then
+        assertEquals(bd(100), rolledBackLevel.setScale(0));
+        assertEquals(2, updated);
+        assertEquals(bd(65), fleetIndex.findAvailable(AvailabilityFilter.ANY).stream()
+                .filter(entry -> entry.droneSerialNumber().equals(firstSerialNumber))
+                .findFirst().orElseThrow().batteryLevel().setScale(0));
+        failingOnceBuffer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Reject readings while the buffer is full")
+    void offer_whenBufferFull() {
+        Instant now = Instant.now();
+        assertTrue(telemetryBuffer.offer(List.of(
+                reading("telemetry-serial-number_3", 50, LOADING, now),
+                reading("telemetry-serial-number_4", 50, LOADING, now))));
+
+        //when
+        boolean accepted = telemetryBuffer.offer(List.of(
+                reading("telemetry-serial-number_5", 50, LOADING, now),
+                reading("telemetry-serial-number_6", 50, LOADING, now)));
+
+        //then
+        assertFalse(accepted);
+        telemetryBuffer.flush();
+        assertTrue(telemetryBuffer.offer(List.of(
+                reading("telemetry-serial-number_5", 50, LOADING, now),
+                reading("telemetry-serial-number_6", 50, LOADING, now))));
+    }
+
+    @Test
+    @DisplayName("Reject a batch larger than the buffer as a bad request")
+    void offer_whenBatchExceedsCapacity() {
+        Instant now = Instant.now();
+
+        //when
+        HttpServerErrorException exception = assertThrows(HttpServerErrorException.class,
+                () -> telemetryBuffer.offer(List.of(
+                        reading("telemetry-serial-number_3", 50, LOADING, now),
+                        reading("telemetry-serial-number_4", 50, LOADING, now),
+                        reading("telemetry-serial-number_5", 50, LOADING, now),
+                        reading("telemetry-serial-number_6", 50, LOADING, now))));
+
+        //then
+        assertEquals(BAD_REQUEST, exception.getStatusCode());
+        assertEquals(telemetryBatchTooLargeError(4, CAPACITY), exception.getStatusText());
+    }
+
+    /**
+     * Fails the first batch update when it gets to the item with the given index
+     */
+    private static class FailingOnceJdbcTemplate extends JdbcTemplate {
+
+        private final int failingItem;
+        private boolean failed;
+
+        private FailingOnceJdbcTemplate(JdbcTemplate jdbcTemplate, int failingItem) {
+            super(jdbcTemplate.getDataSource());
+            this.failingItem = failingItem;
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            if (failed)
+                return super.batchUpdate(sql, batchArgs, batchSize, pss);
+
+            failed = true;
+            int[] items = {0};
+            return super.batchUpdate(sql, batchArgs, batchSize, (statement, item) -> {
+                if (items[0]++ == failingItem)
+                    throw new DataAccessResourceFailureException("Database isn't available");
+                pss.setValues(statement, item);
+            });
+        }
+    }
+
+    private static TelemetryReading reading(String serialNumber, int level, DroneState state, Instant timestamp) {
+        return new TelemetryReading(serialNumber, bd(level), state, timestamp);
+    }
+}
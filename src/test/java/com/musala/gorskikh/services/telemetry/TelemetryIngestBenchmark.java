@@ -0,0 +1,145 @@
+package com.musala.gorskikh.services.telemetry;
+
+import com.musala.gorskikh.model.TelemetryReading;
+import com.musala.gorskikh.services.battery.BatteryHistory;
+import com.musala.gorskikh.services.fleet.FleetIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static com.musala.gorskikh.model.DroneState.DELIVERING;
+import static com.musala.gorskikh.util.TestUtil.bd;
+import static java.lang.String.format;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+/**
+ * Telemetry readings per second accepted by {@link TelemetryBuffer} from 8 concurrent clients sending batches
+ * of 100 readings of 10k drones, and readings rejected by backpressure.
+ * <p>
+ * The "unbuffered" case writes every batch synchronously, as a handler without the buffer would.
+ * Not a part of the regular build, run it explicitly: {@code mvn test -Dtest=TelemetryIngestBenchmark}.
+ */
+@Slf4j
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase
+@TestInstance(PER_CLASS)
+class TelemetryIngestBenchmark {
+
+    private static final int DRONES = 10_000;
+    private static final int CLIENTS = 8;
+    private static final int BATCH_SIZE = 100;
+    private static final Duration DURATION = Duration.ofSeconds(10);
+    private static final String SERIAL_NUMBER_PREFIX = "telemetry-bench-";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final FleetIndex fleetIndex;
+    private final BatteryHistory batteryHistory;
+
+    @Autowired
+    public TelemetryIngestBenchmark(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                    FleetIndex fleetIndex, BatteryHistory batteryHistory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.fleetIndex = fleetIndex;
+        this.batteryHistory = batteryHistory;
+    }
+
+    @BeforeAll
+    void createDrones() {
+        jdbcTemplate.execute("DELETE FROM drones WHERE serial_number LIKE '" + SERIAL_NUMBER_PREFIX + "%'");
+        List<Object[]> rows = IntStream.range(0, DRONES)
+                .mapToObj(i -> new Object[]{serialNumber(i)})
+                .toList();
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO drones(serial_number, model, battery_level, state)
+                VALUES (?, 'LIGHTWEIGHT', 100, 'IDLE')""", rows);
+    }
+
+    @AfterAll
+    void deleteDrones() {
+        jdbcTemplate.execute("DELETE FROM drones WHERE serial_number LIKE '" + SERIAL_NUMBER_PREFIX + "%'");
+    }
+
+    @Test
+    @DisplayName("Telemetry ingest throughput: buffered vs unbuffered")
+    void ingest() throws InterruptedException {
+        TelemetryBuffer unbuffered = new TelemetryBuffer(jdbcTemplate, transactionManager, fleetIndex,
+                batteryHistory, new SimpleMeterRegistry(), Integer.MAX_VALUE, Duration.ofHours(1), Integer.MAX_VALUE, 50);
+        measure("unbuffered", batch -> {
+            unbuffered.offer(batch);
+            unbuffered.flush();
+            return true;
+        });
+        unbuffered.shutdown();
+
+        TelemetryBuffer buffered = new TelemetryBuffer(jdbcTemplate, transactionManager, fleetIndex,
+                batteryHistory, new SimpleMeterRegistry(), 100_000, Duration.ofMillis(200), 5000, 50);
+        measure("buffered", buffered::offer);
+        buffered.shutdown();
+        batteryHistory.flush();
+    }
+
+    private void measure(String name, Client client) throws InterruptedException {
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        long deadline = System.nanoTime() + DURATION.toNanos();
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    List<TelemetryReading> batch = batch();
+                    if (client.send(batch))
+                        accepted.addAndGet(batch.size());
+                    else
+                        rejected.addAndGet(batch.size());
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(DURATION.toSeconds() * 2, TimeUnit.SECONDS);
+
+        log.info("Telemetry ingest ({}): {} readings/s accepted, {} readings/s rejected", name,
+                accepted.get() / DURATION.toSeconds(), rejected.get() / DURATION.toSeconds());
+    }
+
+    private static List<TelemetryReading> batch() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Instant now = Instant.now();
+        List<TelemetryReading> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++)
+            batch.add(new TelemetryReading(serialNumber(random.nextInt(DRONES)), bd(random.nextInt(101)),
+                    DELIVERING, now));
+        return batch;
+    }
+
+    private static String serialNumber(int i) {
+        return format("%s%06d", SERIAL_NUMBER_PREFIX, i);
+    }
+
+    @FunctionalInterface
+    private interface Client {
+        boolean send(List<TelemetryReading> batch);
+    }
+}
@@ -0,0 +1,49 @@
+package com.musala.gorskikh.services.weights;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static com.musala.gorskikh.util.TestUtil.bd;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MilligramsTest {
+
+    @Test
+    @DisplayName("Convert grams to milligrams rounding in favour of the capacity check")
+    void of() {
+        BigDecimal grams = new BigDecimal("10.0005");
+
+        //then
+        assertEquals(10_001, Milligrams.ofWeight(grams));
+        assertEquals(10_000, Milligrams.ofLimit(grams));
+        assertEquals(10_001, Milligrams.ofRequestedCapacity(grams));
+        assertEquals(45_500, Milligrams.ofWeight(new BigDecimal("45.50")));
+        assertEquals(500_000, Milligrams.ofLimit(bd(500)));
+        assertEquals(Long.MAX_VALUE, Milligrams.ofRequestedCapacity(new BigDecimal("1e30")));
+        assertThrows(ArithmeticException.class, () -> Milligrams.ofWeight(new BigDecimal("1e30")));
+    }
+
+    @Test
+    @DisplayName("Convert milligrams to grams without trailing zeros")
+    void toGrams() {
+        assertEquals("500", Milligrams.toGrams(500_000).toString());
+        assertEquals("45.5", Milligrams.toGrams(45_500).toString());
+        assertEquals("0.001", Milligrams.toGrams(1).toString());
+        assertEquals("-5", Milligrams.toGrams(-5_000).toString());
+    }
+
+    @Test
+    @DisplayName("Sum weights saturating instead of overflowing")
+    void capacity() {
+        long weightMg = CapacityCalculator.add(CapacityCalculator.weight(150_000, 100), 5_000);
+
+        //then
+        assertEquals(15_005_000, weightMg);
+        assertEquals(Long.MAX_VALUE, CapacityCalculator.weight(Long.MAX_VALUE / 2, 3));
+        assertEquals(Long.MAX_VALUE, CapacityCalculator.add(Long.MAX_VALUE, 1));
+        assertTrue(CapacityCalculator.fits(5_000, CapacityCalculator.freeSpace(10_000, 5_000)));
+        assertFalse(CapacityCalculator.fits(5_001, CapacityCalculator.freeSpace(10_000, 5_000)));
+    }
+}
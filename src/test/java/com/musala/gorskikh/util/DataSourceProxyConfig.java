@@ -0,0 +1,34 @@
+package com.musala.gorskikh.util;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the test data source into a proxy counting executed statements per thread,
+ * see {@link net.ttddyy.dsproxy.QueryCountHolder}, and checking them against budgets, see {@link StatementBudget}.
+ */
+@TestConfiguration
+public class DataSourceProxyConfig {
+
+    @Bean
+    public static BeanPostProcessor dataSourceProxyPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NotNull Object bean, @NotNull String beanName) {
+                if (bean instanceof DataSource dataSource)
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .countQuery()
+                            .listener(new StatementBudget())
+                            .build();
+
+                return bean;
+            }
+        };
+    }
+}
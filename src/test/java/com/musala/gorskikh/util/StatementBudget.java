@@ -0,0 +1,75 @@
+package com.musala.gorskikh.util;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Listener of the test data source proxy, see {@link DataSourceProxyConfig}, capturing statements executed
+ * by the current thread while a call is checked against its statement budget. A JDBC batch is counted
+ * as a single statement, as it's a single round trip to the database.
+ * <p>
+ * Statements of other threads, e.g. of background flushers, aren't counted.
+ */
+public class StatementBudget implements QueryExecutionListener {
+
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+    StatementBudget() {
+    }
+
+    /**
+     * Calls {@code call} and fails with the captured SQL when it executes more than {@code maxStatements}
+     * statements, even if the call itself throws.
+     */
+    public static <T> T assertMaxStatements(int maxStatements, Supplier<T> call) {
+        List<String> previous = CAPTURED.get();
+        List<String> captured = new ArrayList<>();
+        CAPTURED.set(captured);
+        try {
+            return call.get();
+        } finally {
+            CAPTURED.set(previous);
+            if (previous != null)
+                previous.addAll(captured);
+            if (captured.size() > maxStatements)
+                fail(budgetExceededMessage(maxStatements, captured));
+        }
+    }
+
+    public static void assertMaxStatements(int maxStatements, Runnable call) {
+        assertMaxStatements(maxStatements, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        List<String> captured = CAPTURED.get();
+        if (captured == null)
+            return;
+
+        String sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+        captured.add(execInfo.isBatch() ? sql + " [batch of " + execInfo.getBatchSize() + "]" : sql);
+    }
+
+    private static String budgetExceededMessage(int maxStatements, List<String> captured) {
+        StringBuilder message = new StringBuilder("Expected at most " + maxStatements + " statements, but "
+                + captured.size() + " were executed:");
+        for (int i = 0; i < captured.size(); i++)
+            message.append(System.lineSeparator()).append(i + 1).append(". ").append(captured.get(i));
+        return message.toString();
+    }
+}
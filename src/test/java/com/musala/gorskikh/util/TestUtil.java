@@ -1,5 +1,6 @@
 package com.musala.gorskikh.util;
 
+import com.musala.gorskikh.db.entities.MedicationEntity;
 import com.musala.gorskikh.model.MedicationDto;
 import lombok.NoArgsConstructor;
 import org.jetbrains.annotations.NotNull;
@@ -19,6 +20,15 @@ public class TestUtil {
                 .code(code);
     }
 
+    @NotNull
+    public static MedicationEntity createMedicationEntity(String code, BigDecimal weight, String name) {
+        MedicationEntity medication = new MedicationEntity();
+        medication.setCode(code);
+        medication.setName(name);
+        medication.setWeightGr(weight);
+        return medication;
+    }
+
     @NotNull
     public static BigDecimal bd(int value) {
         return BigDecimal.valueOf(value);